@@ -0,0 +1,47 @@
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <h1>Benchmarks for the recipes</h1>
+ * <br>
+ *
+ * Entry point of {@code target/benchmarks.jar} (built with {@code mvn -P benchmark package}).
+ *
+ * <br>
+ * Every benchmark class declares {@link org.openjdk.jmh.annotations.Mode#Throughput} and
+ * {@link org.openjdk.jmh.annotations.Mode#AverageTime}; the runner always adds the {@link GCProfiler} so each result
+ * also reports the allocation rate ({@code gc.alloc.rate} and {@code gc.alloc.rate.norm}).
+ *
+ * <pre>
+ * {@code
+ * java -jar target/benchmarks.jar                          // all the benchmarks
+ * java -jar target/benchmarks.jar Recipe_3_3               // only the benchmarks for recipe 3.3.
+ * java -jar target/benchmarks.jar Recipe_3_8 -p size=1000  // only one input size
+ * }
+ * </pre>
+ *
+ * Any other JMH command line option is passed through.
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Run the benchmarks selected by the command line.
+     *
+     * @param args JMH command line options
+     * @throws CommandLineOptionException if the options can't be parsed
+     * @throws RunnerException if a benchmark fails
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,76 @@
+package chapter_1_The_Basics;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <h1>Benchmarks for (1.1.) Lambda Expression</h1>
+ * <br>
+ *
+ * Runs {@code tasks} small {@link Runnable}s:
+ * <ul>
+ *     <li>
+ *         {@link #threadPerTask()}
+ *         - with {@code new Thread(runnable).start()}, as in the book
+ *     </li>
+ *     <li>
+ *         {@link #taskExecutor()}
+ *         - on a {@link Recipe_1_1_Lambda_Expression.TaskExecutor} with one thread per core
+ *     </li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Recipe_1_1_Lambda_Expression_Benchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int tasks;
+
+    Recipe_1_1_Lambda_Expression.TaskExecutor executor;
+    final LongAdder counter = new LongAdder();
+
+    @Setup
+    public void setUp() {
+        executor = new Recipe_1_1_Lambda_Expression.TaskExecutor("benchmark",
+                Runtime.getRuntime().availableProcessors(), 10_000,
+                Recipe_1_1_Lambda_Expression.TaskExecutor.RejectionPolicy.CALLER_RUNS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Benchmark
+    public long threadPerTask() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(tasks);
+        for (int i = 0; i < tasks; i++) {
+            new Thread(() -> {
+                counter.increment();
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        return counter.sum();
+    }
+
+    @Benchmark
+    public long taskExecutor() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(tasks);
+        for (int i = 0; i < tasks; i++) {
+            executor.execute(() -> {
+                counter.increment();
+                done.countDown();
+            });
+        }
+        done.await();
+        return counter.sum();
+    }
+}
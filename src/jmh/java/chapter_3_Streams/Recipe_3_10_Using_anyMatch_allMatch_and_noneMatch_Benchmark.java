@@ -0,0 +1,74 @@
+package chapter_3_Streams;
+
+import chapter_3_Streams.Recipe_3_10_Using_anyMatch_allMatch_and_noneMatch.CancellingMatchers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Benchmarks for (3.10.) Using anyMatch, allMatch and noneMatch</h1>
+ * <br>
+ *
+ * Time to decision of parallel matches over {@code size} records where one record, at {@code hit} (a fraction of
+ * the size, or {@code -1} for none), decides the answer: the JDK's parallel {@code anyMatch}, {@code allMatch} and
+ * {@code noneMatch} against {@link CancellingMatchers}. With no deciding record, every record is tested by both, which
+ * measures the cost of polling the shared flag.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Recipe_3_10_Using_anyMatch_allMatch_and_noneMatch_Benchmark {
+
+    @Param({"20000000"})
+    int size;
+
+    @Param({"0.1", "0.6", "-1"})
+    double hit;
+
+    List<Integer> records;
+
+    @Setup
+    public void setUp() {
+        Integer[] array = new Integer[size];
+        Arrays.fill(array, 1);
+        if (hit >= 0) {
+            array[(int) (hit * size)] = -1;
+        }
+        records = Arrays.asList(array);
+    }
+
+    @Benchmark
+    public boolean jdkAnyMatch() {
+        return records.parallelStream().anyMatch(record -> record < 0);
+    }
+
+    @Benchmark
+    public boolean cancellingAnyMatch() {
+        return CancellingMatchers.anyMatch(records.parallelStream(), record -> record < 0);
+    }
+
+    @Benchmark
+    public boolean jdkAllMatch() {
+        return records.parallelStream().allMatch(record -> record > 0);
+    }
+
+    @Benchmark
+    public boolean cancellingAllMatch() {
+        return CancellingMatchers.allMatch(records.parallelStream(), record -> record > 0);
+    }
+
+    @Benchmark
+    public boolean jdkNoneMatch() {
+        return records.parallelStream().noneMatch(record -> record < 0);
+    }
+
+    @Benchmark
+    public boolean cancellingNoneMatch() {
+        return CancellingMatchers.noneMatch(records.parallelStream(), record -> record < 0);
+    }
+}
@@ -0,0 +1,117 @@
+package chapter_3_Streams;
+
+import chapter_3_Streams.Recipe_3_11_Stream_flatMap_Versus_map.MultiMapping;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * <h1>Benchmarks for (3.11.) Stream flatMap Versus map</h1>
+ * <br>
+ *
+ * Maps each of {@code size} numbers to {@code fanOut} results (0, 1 or a few), with {@code flatMap} (a stream per
+ * element) and with {@link MultiMapping} (results pushed to a consumer):
+ * <ul>
+ *     <li>
+ *         {@link #flatMap()} / {@link #mapMulti()} - to objects, counted
+ *     </li>
+ *     <li>
+ *         {@link #flatMapToInt()} / {@link #mapMultiToInt()} - to ints, summed
+ *     </li>
+ *     <li>
+ *         {@link #flatMapOptionals()} / {@link #mapMultiOptionals()} - the present values of {@link Optional}s
+ *         (one in two is empty), with {@code optional.map(Stream::of).orElseGet(Stream::empty)} and
+ *         {@code Optional::ifPresent}
+ *     </li>
+ * </ul>
+ * Run with {@code -prof gc} for the allocation per operation ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Recipe_3_11_Stream_flatMap_Versus_map_Benchmark {
+
+    @Param({"1000000"})
+    int size;
+
+    @Param({"0", "1", "3"})
+    int fanOut;
+
+    List<Integer> numbers;
+    List<Optional<Integer>> optionals;
+
+    @Setup
+    public void setUp() {
+        numbers = IntStream.range(0, size).boxed().collect(Collectors.toList());
+        optionals = numbers.stream()
+                .map(i -> i % 2 == 0 ? Optional.of(i) : Optional.<Integer>empty())
+                .collect(Collectors.toList());
+    }
+
+    private Stream<Integer> expand(Integer number) {
+        switch (fanOut) {
+            case 0:
+                return Stream.empty();
+            case 1:
+                return Stream.of(number);
+            default:
+                return IntStream.range(0, fanOut).mapToObj(k -> number);
+        }
+    }
+
+    private void expand(Integer number, Consumer<Integer> downstream) {
+        for (int k = 0; k < fanOut; k++) {
+            downstream.accept(number);
+        }
+    }
+
+    @Benchmark
+    public long flatMap() {
+        return numbers.stream().flatMap(this::expand).count();
+    }
+
+    @Benchmark
+    public long mapMulti() {
+        return MultiMapping.<Integer, Integer>mapMulti(numbers.stream(), this::expand).count();
+    }
+
+    @Benchmark
+    public int flatMapToInt() {
+        return numbers.stream()
+                .flatMapToInt(number -> fanOut == 0 ? IntStream.empty()
+                        : fanOut == 1 ? IntStream.of(number)
+                        : IntStream.range(number, number + fanOut))
+                .sum();
+    }
+
+    @Benchmark
+    public int mapMultiToInt() {
+        return MultiMapping.mapMultiToInt(numbers.stream(), (Integer number, IntConsumer downstream) -> {
+            for (int k = 0; k < fanOut; k++) {
+                downstream.accept(number + k);
+            }
+        }).sum();
+    }
+
+    @Benchmark
+    public long flatMapOptionals() {
+        return optionals.stream()
+                .flatMap(optional -> optional.map(Stream::of).orElseGet(Stream::empty))
+                .count();
+    }
+
+    @Benchmark
+    public long mapMultiOptionals() {
+        return MultiMapping.<Optional<Integer>, Integer>mapMulti(optionals.stream(), Optional::ifPresent).count();
+    }
+}
@@ -0,0 +1,95 @@
+package chapter_3_Streams;
+
+import chapter_3_Streams.Recipe_3_12_Concatenating_Streams.ConcatenatedStreams;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * <h1>Benchmarks for (3.12.) Concatenating Streams</h1>
+ * <br>
+ *
+ * Concatenates {@code streams} streams of {@code elements} numbers each, created for each invocation, with
+ * {@code flatMap(Function.identity())} and with {@link ConcatenatedStreams#concatAll}:
+ * <ul>
+ *     <li>
+ *         {@code ...Sum} - a parallel sum, where {@code flatMap} can only split between the streams
+ *     </li>
+ *     <li>
+ *         {@code ...ToArray} - a parallel {@code toArray}, which fills a single array when the size is known
+ *     </li>
+ *     <li>
+ *         {@code ...Count} - a sequential {@code count}, computed from the size when it is known
+ *     </li>
+ * </ul>
+ * The chain of {@code Stream.concat}s ({@code reduce(Stream::concat)}) is as deep as the number of streams: it
+ * overflows the stack of the benchmark threads at this number of streams, so it isn't measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Recipe_3_12_Concatenating_Streams_Benchmark {
+
+    @Param({"10000"})
+    int streams;
+
+    @Param({"100"})
+    int elements;
+
+    Integer[][] arrays;
+
+    @Setup
+    public void setUp() {
+        arrays = new Integer[streams][elements];
+        for (int i = 0; i < streams; i++) {
+            for (int j = 0; j < elements; j++) {
+                arrays[i][j] = i * elements + j;
+            }
+        }
+    }
+
+    private List<Stream<Integer>> parts() {
+        List<Stream<Integer>> parts = new ArrayList<>(streams);
+        for (Integer[] array : arrays) {
+            parts.add(Stream.of(array));
+        }
+        return parts;
+    }
+
+    @Benchmark
+    public long flatMapSum() {
+        return parts().parallelStream().flatMap(Function.identity()).mapToLong(i -> i).sum();
+    }
+
+    @Benchmark
+    public long concatAllSum() {
+        return ConcatenatedStreams.concatAll(parts()).parallel().mapToLong(i -> i).sum();
+    }
+
+    @Benchmark
+    public Object[] flatMapToArray() {
+        return parts().parallelStream().flatMap(Function.identity()).toArray();
+    }
+
+    @Benchmark
+    public Object[] concatAllToArray() {
+        return ConcatenatedStreams.concatAll(parts()).parallel().toArray();
+    }
+
+    @Benchmark
+    public long flatMapCount() {
+        return parts().stream().flatMap(Function.identity()).count();
+    }
+
+    @Benchmark
+    public long concatAllCount() {
+        return ConcatenatedStreams.concatAll(parts()).count();
+    }
+}
@@ -0,0 +1,79 @@
+package chapter_3_Streams;
+
+import chapter_3_Streams.Recipe_3_13_Lazy_Streams.LazySeq;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <h1>Benchmarks for (3.13.) Lazy Streams</h1>
+ * <br>
+ *
+ * <ul>
+ *     <li>
+ *         {@link #streamIterate()}
+ *         - summing the first {@code size} naturals of {@code Stream.iterate(BigDecimal.ONE, ...)}, computed again
+ *         for each traversal
+ *     </li>
+ *     <li>
+ *         {@link #lazySeqFirstTraversal()}
+ *         - the same with a new {@link LazySeq}, computing and memoizing the elements
+ *     </li>
+ *     <li>
+ *         {@link #lazySeqTraversal()}
+ *         - the same with a {@link LazySeq} already traversed once: the elements are read from its chunks
+ *     </li>
+ *     <li>
+ *         {@link #linkedListTraversal()}
+ *         - the same elements memoized in linked cells ({@link LinkedList}), the baseline for the chunks
+ *     </li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Recipe_3_13_Lazy_Streams_Benchmark {
+
+    @Param({"100000"})
+    int size;
+
+    LazySeq<BigDecimal> naturals;
+    LinkedList<BigDecimal> linkedNaturals;
+
+    @Setup
+    public void setUp() {
+        naturals = LazySeq.iterate(BigDecimal.ONE, n -> n.add(BigDecimal.ONE)).take(size);
+        naturals.forEach(n -> { });
+        linkedNaturals = Stream.iterate(BigDecimal.ONE, n -> n.add(BigDecimal.ONE)).limit(size)
+                .collect(Collectors.toCollection(LinkedList::new));
+    }
+
+    @Benchmark
+    public BigDecimal streamIterate() {
+        return Stream.iterate(BigDecimal.ONE, n -> n.add(BigDecimal.ONE)).limit(size)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Benchmark
+    public BigDecimal lazySeqFirstTraversal() {
+        return LazySeq.iterate(BigDecimal.ONE, n -> n.add(BigDecimal.ONE)).take(size).stream()
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Benchmark
+    public BigDecimal lazySeqTraversal() {
+        return naturals.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Benchmark
+    public BigDecimal linkedListTraversal() {
+        return linkedNaturals.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
@@ -0,0 +1,145 @@
+package chapter_3_Streams;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * <h1>Benchmarks for (3.3.) Reduction Operations Using Reduce</h1>
+ * <br>
+ *
+ * The pipelines of {@link Recipe_3_3_Reduction_Operations_Using_Reduce}, copied here (the recipe methods print their
+ * results) and run over many elements instead of the few values hard-coded in the recipe. Each group of benchmarks
+ * has its own {@link State} with its own sizes, so that JMH doesn't run a group once per size of another.
+ *
+ * <ul>
+ *     <li>
+ *         {@link #summingNumbersUsingReduce(NumbersState)}, {@link #summingNumbersUsingReduceWithIdentity(NumbersState)}
+ *         and {@link #summingNumbersUsingSum(NumbersState)}
+ *         - the variants of {@link Recipe_3_3_Reduction_Operations_Using_Reduce#summingNumbersUsingReduce()}
+ *     </li>
+ *     <li>
+ *         {@link #usingACollectorStringBuilder(WordsState)} and {@link #usingACollectorJoining(WordsState)}
+ *         - the variants of {@link Recipe_3_3_Reduction_Operations_Using_Reduce#usingACollector()}, with at most
+ *         10<sup>7</sup> words as the result holds them all (about 55 MB of chars, and as much for its copy)
+ *     </li>
+ *     <li>
+ *         {@link #accumulatingBooksIntoAMap(BooksState)}
+ *         - {@link Recipe_3_3_Reduction_Operations_Using_Reduce#accumulatingBooksIntoAMap()}, with its own (smaller)
+ *         sizes as every element is a {@code Book} kept in memory
+ *     </li>
+ *     <li>
+ *         {@link #accumulatingBooksIntoABookIndex(BooksState)} and
+ *         {@link #accumulatingBooksIntoABookIndexInParallel(BooksState)}
+ *         - the same books collected into a {@link Recipe_3_3_Reduction_Operations_Using_Reduce.BookIndex}
+ *     </li>
+ * </ul>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Recipe_3_3_Reduction_Operations_Using_Reduce_Benchmark {
+
+    private static final String[] WORDS = {"this", "is", "a", "list"};
+
+    @Benchmark
+    public int summingNumbersUsingReduce(NumbersState state) {
+        return IntStream.rangeClosed(1, state.numbers_size).reduce((x, y) -> x + y).orElse(0);
+    }
+
+    @Benchmark
+    public int summingNumbersUsingReduceWithIdentity(NumbersState state) {
+        return IntStream.rangeClosed(1, state.numbers_size).reduce(0, Integer::sum);
+    }
+
+    @Benchmark
+    public int summingNumbersUsingSum(NumbersState state) {
+        return IntStream.rangeClosed(1, state.numbers_size).sum();
+    }
+
+    @Benchmark
+    public int usingACollectorStringBuilder(WordsState state) {
+        return IntStream.range(0, state.words_size).mapToObj(i -> WORDS[i & 3])
+                .collect(StringBuilder::new,
+                        StringBuilder::append,
+                        StringBuilder::append)
+                .length();
+    }
+
+    @Benchmark
+    public int usingACollectorJoining(WordsState state) {
+        return IntStream.range(0, state.words_size).mapToObj(i -> WORDS[i & 3])
+                .collect(Collectors.joining())
+                .length();
+    }
+
+    @Benchmark
+    public HashMap<Integer, Recipe_3_3_Reduction_Operations_Using_Reduce.Book> accumulatingBooksIntoAMap(BooksState state) {
+        return state.books.stream()
+                .reduce(new HashMap<Integer, Recipe_3_3_Reduction_Operations_Using_Reduce.Book>(),
+                        (map, book) -> {
+                            map.put(book.getId(), book);
+                            return map;
+                        },
+                        (map1, map2) -> {
+                            map1.putAll(map2);
+                            return map1;
+                        });
+    }
+
+    @Benchmark
+    public Recipe_3_3_Reduction_Operations_Using_Reduce.BookIndex accumulatingBooksIntoABookIndex(BooksState state) {
+        return state.books.stream().collect(Recipe_3_3_Reduction_Operations_Using_Reduce.BookIndex.toBookIndex());
+    }
+
+    @Benchmark
+    public Recipe_3_3_Reduction_Operations_Using_Reduce.BookIndex accumulatingBooksIntoABookIndexInParallel(BooksState state) {
+        return state.books.parallelStream().collect(Recipe_3_3_Reduction_Operations_Using_Reduce.BookIndex.toBookIndex());
+    }
+
+    /**
+     * The number of integers summed by the {@code summingNumbers...} benchmarks.
+     */
+    @State(Scope.Benchmark)
+    public static class NumbersState {
+        @Param({"1000", "100000", "10000000", "100000000"})
+        int numbers_size;
+    }
+
+    /**
+     * The number of words joined by the {@code usingACollector...} benchmarks.
+     */
+    @State(Scope.Benchmark)
+    public static class WordsState {
+        @Param({"1000", "100000", "10000000"})
+        int words_size;
+    }
+
+    /**
+     * The books used by the {@code accumulatingBooksInto...} benchmarks.
+     */
+    @State(Scope.Benchmark)
+    public static class BooksState {
+        @Param({"1000", "100000", "1000000"})
+        int books_size;
+
+        List<Recipe_3_3_Reduction_Operations_Using_Reduce.Book> books;
+
+        @Setup
+        public void setUp() {
+            Recipe_3_3_Reduction_Operations_Using_Reduce recipe = new Recipe_3_3_Reduction_Operations_Using_Reduce();
+
+            books = new ArrayList<>(books_size);
+            for (int i = 0; i < books_size; i++) {
+                books.add(recipe.new Book(i, "Title " + i));
+            }
+        }
+    }
+}
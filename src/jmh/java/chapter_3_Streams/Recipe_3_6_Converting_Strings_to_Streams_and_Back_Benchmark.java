@@ -0,0 +1,97 @@
+package chapter_3_Streams;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Benchmarks for (3.6.) Converting Strings to Streams and back</h1>
+ * <br>
+ *
+ * <ul>
+ *     <li>
+ *         {@link #isPalindromeBeforeJava8(Blackhole)}, {@link #isPalindromeAfterJava8(Blackhole)} and
+ *         {@link #isPalindrome(Blackhole)}
+ *         - the three implementations over the same {@code size} lines (about one in eight is a palindrome)
+ *     </li>
+ *     <li>
+ *         {@link #palindromesInFile()}
+ *         - the same lines read from a file with {@link Recipe_3_6_Converting_Strings_to_Streams_and_Back#palindromesInFile(Path)}
+ *     </li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Recipe_3_6_Converting_Strings_to_Streams_and_Back_Benchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    List<String> lines;
+    Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+
+        lines = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(4, 40);
+            for (int j = 0; j < length; j++) {
+                sb.append((char) random.nextInt('a', 'f'));
+                if (random.nextInt(8) == 0) sb.append(", ");
+            }
+            if (random.nextInt(8) == 0) {
+                sb.append(new StringBuilder(sb).reverse());
+            }
+            lines.add(sb.toString());
+        }
+
+        file = Files.createTempFile("palindromes", ".txt");
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void isPalindromeBeforeJava8(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(Recipe_3_6_Converting_Strings_to_Streams_and_Back.isPalindromeBeforeJava8(line));
+        }
+    }
+
+    @Benchmark
+    public void isPalindromeAfterJava8(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(Recipe_3_6_Converting_Strings_to_Streams_and_Back.isPalindromeAfterJava8(line));
+        }
+    }
+
+    @Benchmark
+    public void isPalindrome(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(Recipe_3_6_Converting_Strings_to_Streams_and_Back.isPalindrome(line));
+        }
+    }
+
+    @Benchmark
+    public List<String> palindromesInFile() throws IOException {
+        return Recipe_3_6_Converting_Strings_to_Streams_and_Back.palindromesInFile(file);
+    }
+}
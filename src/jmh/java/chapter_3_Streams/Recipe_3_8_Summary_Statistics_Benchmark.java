@@ -0,0 +1,131 @@
+package chapter_3_Streams;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.DoubleSummaryStatistics;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+
+/**
+ * <h1>Benchmarks for (3.8.) Summary Statistics</h1>
+ * <br>
+ *
+ * <ul>
+ *     <li>
+ *         {@link #useSummaryStatistics()}
+ *         - {@link Recipe_3_8_Summary_Statistics#useSummaryStatistics()} with {@code size} generated values
+ *     </li>
+ *     <li>
+ *         {@link #useSummaryStatisticsWithSplittableRandom()}
+ *         - the same pipeline without the shared {@link java.util.Random} behind {@link Math#random()}
+ *     </li>
+ *     <li>
+ *         {@link #useQuantileStatistics()}
+ *         - the same values summarized with {@link Recipe_3_8_Summary_Statistics.QuantileStatistics}
+ *     </li>
+ *     <li>
+ *         {@link #useTheCollectMethod(TeamsState)} and {@link #useSummarizingDouble(TeamsState)}
+ *         - the two variants of {@link Recipe_3_8_Summary_Statistics#useTheCollectMethod()}
+ *     </li>
+ *     <li>
+ *         {@link #useTheStreamSum(TeamsState)}
+ *         - {@code teams.stream().mapToDouble(Team::getSalary).sum()}, the baseline for the {@code TeamTable}
+ *     </li>
+ *     <li>
+ *         {@link #useATeamTable(TeamsState)}, {@link #useATeamTableSum(TeamsState)} and
+ *         {@link #useATeamTableInParallel(TeamsState)}
+ *         - the same teams aggregated from a {@link Recipe_3_8_Summary_Statistics.TeamTable}
+ *     </li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Recipe_3_8_Summary_Statistics_Benchmark {
+
+    @Param({"1000", "100000", "10000000", "100000000"})
+    int size;
+
+    @Benchmark
+    public DoubleSummaryStatistics useSummaryStatistics() {
+        return DoubleStream.generate(Math::random).limit(size).summaryStatistics();
+    }
+
+    @Benchmark
+    public DoubleSummaryStatistics useSummaryStatisticsWithSplittableRandom() {
+        return new SplittableRandom(42).doubles(size).summaryStatistics();
+    }
+
+    @Benchmark
+    public Recipe_3_8_Summary_Statistics.QuantileStatistics useQuantileStatistics() {
+        return new SplittableRandom(42).doubles(size)
+                .collect(Recipe_3_8_Summary_Statistics.QuantileStatistics::new,
+                         Recipe_3_8_Summary_Statistics.QuantileStatistics::accept,
+                         Recipe_3_8_Summary_Statistics.QuantileStatistics::combine);
+    }
+
+    @Benchmark
+    public DoubleSummaryStatistics useTheCollectMethod(TeamsState state) {
+        return state.teams.stream().mapToDouble(Recipe_3_8_Summary_Statistics.Team::getSalary)
+                .collect(DoubleSummaryStatistics::new,
+                         DoubleSummaryStatistics::accept,
+                         DoubleSummaryStatistics::combine);
+    }
+
+    @Benchmark
+    public DoubleSummaryStatistics useSummarizingDouble(TeamsState state) {
+        return state.teams.stream().collect(Collectors.summarizingDouble(Recipe_3_8_Summary_Statistics.Team::getSalary));
+    }
+
+    @Benchmark
+    public double useTheStreamSum(TeamsState state) {
+        return state.teams.stream().mapToDouble(Recipe_3_8_Summary_Statistics.Team::getSalary).sum();
+    }
+
+    @Benchmark
+    public DoubleSummaryStatistics useATeamTable(TeamsState state) {
+        return state.table.summaryStatistics();
+    }
+
+    @Benchmark
+    public double useATeamTableSum(TeamsState state) {
+        return state.table.sum();
+    }
+
+    @Benchmark
+    public DoubleSummaryStatistics useATeamTableInParallel(TeamsState state) {
+        return state.table.parallelSummaryStatistics();
+    }
+
+    /**
+     * The teams used by the collect / summarizingDouble / stream sum benchmarks, and the same teams in a
+     * {@link Recipe_3_8_Summary_Statistics.TeamTable}.
+     */
+    @State(Scope.Benchmark)
+    public static class TeamsState {
+        @Param({"1000", "100000", "1000000"})
+        int teams_size;
+
+        List<Recipe_3_8_Summary_Statistics.Team> teams;
+        Recipe_3_8_Summary_Statistics.TeamTable table;
+
+        @Setup
+        public void setUp() {
+            Recipe_3_8_Summary_Statistics recipe = new Recipe_3_8_Summary_Statistics();
+            SplittableRandom random = new SplittableRandom(42);
+
+            teams = new ArrayList<>(teams_size);
+            for (int i = 0; i < teams_size; i++) {
+                teams.add(recipe.new Team(i, "Team " + i, random.nextInt(10_000, 100_000)));
+            }
+            table = Recipe_3_8_Summary_Statistics.TeamTable.of(teams);
+        }
+    }
+}
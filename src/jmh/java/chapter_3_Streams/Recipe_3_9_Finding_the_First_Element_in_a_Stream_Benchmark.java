@@ -0,0 +1,78 @@
+package chapter_3_Streams;
+
+import chapter_3_Streams.Recipe_3_9_Finding_the_First_Element_in_a_Stream.IndexedElement;
+import chapter_3_Streams.Recipe_3_9_Finding_the_First_Element_in_a_Stream.OrderedSearch;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * <h1>Benchmarks for (3.9.) Finding the First Element in a Stream</h1>
+ * <br>
+ *
+ * Parallel search of the first of {@code size} records that matches, the first match being at {@code hit} (a fraction
+ * of the size, or {@code -1} for none) and another one further:
+ * <ul>
+ *     <li>
+ *         {@link #jdkFindFirst()} / {@link #orderedFindFirst()}
+ *         - {@code filter(...).findFirst()} against {@link OrderedSearch#findFirst}
+ *     </li>
+ *     <li>
+ *         {@link #jdkFindFirstIndex()} / {@link #orderedFindFirstIndexed()}
+ *         - the index as well, with a parallel {@code IntStream} of the indexes against
+ *         {@link OrderedSearch#findFirstIndexed}
+ *     </li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Recipe_3_9_Finding_the_First_Element_in_a_Stream_Benchmark {
+
+    @Param({"20000000"})
+    int size;
+
+    @Param({"0.01", "0.3", "-1"})
+    double hit;
+
+    List<Integer> records;
+
+    @Setup
+    public void setUp() {
+        Integer[] array = new Integer[size];
+        Arrays.fill(array, 1);
+        if (hit >= 0) {
+            array[(int) (hit * size)] = -1;
+            array[(int) ((hit + 1) / 2 * size)] = -2;
+        }
+        records = Arrays.asList(array);
+    }
+
+    @Benchmark
+    public Optional<Integer> jdkFindFirst() {
+        return records.parallelStream().filter(record -> record < 0).findFirst();
+    }
+
+    @Benchmark
+    public Optional<Integer> orderedFindFirst() {
+        return OrderedSearch.findFirst(records.parallelStream(), record -> record < 0);
+    }
+
+    @Benchmark
+    public OptionalInt jdkFindFirstIndex() {
+        return IntStream.range(0, size).parallel().filter(i -> records.get(i) < 0).findFirst();
+    }
+
+    @Benchmark
+    public Optional<IndexedElement<Integer>> orderedFindFirstIndexed() {
+        return OrderedSearch.findFirstIndexed(records.parallelStream(), record -> record < 0);
+    }
+}
@@ -0,0 +1,74 @@
+package chapter_4_Comparators_and_Collectors;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * <h1>Benchmarks for (4.2.) Converting a Stream into a Collection</h1>
+ * <br>
+ *
+ * Collects {@code size} boxed integers ({@code IntStream.range(0, size).boxed()}, a SIZED and SUBSIZED source) with
+ * the {@link Collectors} methods and with {@link Recipe_4_2_Converting_a_Stream_into_a_Collection.SizedCollectors}.
+ *
+ * <br>
+ * Run with {@code -prof gc} (added by {@code BenchmarkRunner}) to compare the allocation rate: the pre-sized versions
+ * allocate the result once instead of growing it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Recipe_4_2_Converting_a_Stream_into_a_Collection_Benchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Benchmark
+    public List<Integer> collectorsToList() {
+        return IntStream.range(0, size).boxed().collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Integer> sizedToList() {
+        return Recipe_4_2_Converting_a_Stream_into_a_Collection.SizedCollectors.toList(IntStream.range(0, size).boxed());
+    }
+
+    @Benchmark
+    public List<Integer> parallelCollectorsToList() {
+        return IntStream.range(0, size).parallel().boxed().collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Integer> parallelSizedToList() {
+        return Recipe_4_2_Converting_a_Stream_into_a_Collection.SizedCollectors
+                .toList(IntStream.range(0, size).parallel().boxed());
+    }
+
+    @Benchmark
+    public Set<Integer> collectorsToSet() {
+        return IntStream.range(0, size).boxed().collect(Collectors.toSet());
+    }
+
+    @Benchmark
+    public Set<Integer> sizedToSet() {
+        return Recipe_4_2_Converting_a_Stream_into_a_Collection.SizedCollectors.toSet(IntStream.range(0, size).boxed());
+    }
+
+    @Benchmark
+    public Integer[] streamToArray() {
+        return IntStream.range(0, size).boxed().toArray(Integer[]::new);
+    }
+
+    @Benchmark
+    public Integer[] sizedToArray() {
+        return Recipe_4_2_Converting_a_Stream_into_a_Collection.SizedCollectors
+                .toArray(IntStream.range(0, size).boxed(), Integer[]::new);
+    }
+}
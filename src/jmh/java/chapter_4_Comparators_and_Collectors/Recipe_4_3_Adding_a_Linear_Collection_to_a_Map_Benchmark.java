@@ -0,0 +1,170 @@
+package chapter_4_Comparators_and_Collectors;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * <h1>Benchmarks for (4.3.) Adding a Linear Collection to a Map</h1>
+ * <br>
+ *
+ * Builds a map of {@code size} books by id (random {@code int} ids) with {@link Collectors#toMap(Function, Function)}
+ * and with the collectors of {@link Recipe_4_3_Adding_a_Linear_Collection_to_a_Map}, then looks up
+ * {@code lookups_size} ids (half of them missing) in the built maps.
+ *
+ * <br>
+ * {@code gc.alloc.rate.norm} of the {@code to...} benchmarks is the memory allocated to build one map.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Recipe_4_3_Adding_a_Linear_Collection_to_a_Map_Benchmark {
+
+    @Param({"10000", "1000000"})
+    int size;
+
+    @Param({"1000"})
+    int lookups_size;
+
+    List<Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.Book> books;
+    int[] lookups;
+    long[] isbnLookups;
+    String[] nameLookups;
+
+    Map<Integer, Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.Book> hashMap;
+    Map<Long, Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.Book> longHashMap;
+    Map<String, Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.Book> stringHashMap;
+    Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.IntKeyMap<Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.Book> intKeyMap;
+    Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.LongKeyMap<Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.Book> longKeyMap;
+    Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.ObjectKeyMap<String, Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.Book> objectKeyMap;
+
+    @Setup
+    public void setUp() {
+        Recipe_4_3_Adding_a_Linear_Collection_to_a_Map recipe = new Recipe_4_3_Adding_a_Linear_Collection_to_a_Map();
+        SplittableRandom random = new SplittableRandom(42);
+
+        // unique random ids, every name is unique too
+        books = new ArrayList<>(size);
+        int id = 0;
+        for (int i = 0; i < size; i++) {
+            id += 1 + random.nextInt(4);
+            books.add(recipe.new Book(id, "Title " + id, 10 + random.nextInt(50)));
+        }
+
+        lookups = new int[lookups_size];
+        isbnLookups = new long[lookups_size];
+        nameLookups = new String[lookups_size];
+        for (int i = 0; i < lookups_size; i++) {
+            lookups[i] = random.nextBoolean() ? books.get(random.nextInt(size)).getId() : -1 - random.nextInt(size);
+            isbnLookups[i] = lookups[i];
+            nameLookups[i] = "Title " + lookups[i];
+        }
+
+        hashMap = toMap();
+        longHashMap = books.stream().collect(Collectors.toMap(book -> (long) book.getId(), Function.identity()));
+        stringHashMap = toStringMap();
+        intKeyMap = toIntKeyMap();
+        longKeyMap = books.stream().collect(Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.LongKeyMap
+                .toLongKeyMap(book -> (long) book.getId(), Function.identity()));
+        objectKeyMap = toObjectKeyMap();
+    }
+
+    @Benchmark
+    public Map<Integer, Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.Book> toMap() {
+        return books.stream().collect(Collectors.toMap(Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.Book::getId,
+                                                        Function.identity()));
+    }
+
+    @Benchmark
+    public Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.IntKeyMap<Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.Book> toIntKeyMap() {
+        return books.stream().collect(Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.IntKeyMap
+                .toIntKeyMap(Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.Book::getId, Function.identity()));
+    }
+
+    @Benchmark
+    public Map<String, Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.Book> toStringMap() {
+        return books.stream().collect(Collectors.toMap(Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.Book::getName,
+                                                        Function.identity()));
+    }
+
+    @Benchmark
+    public Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.ObjectKeyMap<String, Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.Book> toObjectKeyMap() {
+        return books.stream().collect(Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.ObjectKeyMap
+                .toObjectKeyMap(Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.Book::getName, Function.identity()));
+    }
+
+    @Benchmark
+    public int hashMapLookups() {
+        int found = 0;
+        for (int id : lookups) {
+            if (hashMap.get(id) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int intKeyMapLookups() {
+        int found = 0;
+        for (int id : lookups) {
+            if (intKeyMap.get(id) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int longHashMapLookups() {
+        int found = 0;
+        for (long isbn : isbnLookups) {
+            if (longHashMap.get(isbn) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int longKeyMapLookups() {
+        int found = 0;
+        for (long isbn : isbnLookups) {
+            if (longKeyMap.get(isbn) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int stringHashMapLookups() {
+        int found = 0;
+        for (String name : nameLookups) {
+            if (stringHashMap.get(name) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int objectKeyMapLookups() {
+        int found = 0;
+        for (String name : nameLookups) {
+            if (objectKeyMap.get(name) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
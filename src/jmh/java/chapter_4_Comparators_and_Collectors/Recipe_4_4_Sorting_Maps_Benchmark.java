@@ -0,0 +1,66 @@
+package chapter_4_Comparators_and_Collectors;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * <h1>Benchmarks for (4.4.) Sorting Maps</h1>
+ * <br>
+ *
+ * Keeps the {@code k} entries with the largest values out of {@code size} (name, score) entries, with
+ * {@code sorted(...).limit(k)} and with {@link Recipe_4_4_Sorting_Maps.TopK}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Recipe_4_4_Sorting_Maps_Benchmark {
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    @Param({"10", "100"})
+    int k;
+
+    List<Map.Entry<String, Long>> entries;
+    Comparator<Map.Entry<String, Long>> byScore = Map.Entry.comparingByValue(Comparator.reverseOrder());
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>("player" + i, (long) random.nextInt(size)));
+        }
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Long>> sortedLimit() {
+        return entries.stream().sorted(byScore).limit(k).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Long>> topK() {
+        return entries.stream().collect(Recipe_4_4_Sorting_Maps.TopK.topK(k, byScore));
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Long>> parallelSortedLimit() {
+        return entries.parallelStream().sorted(byScore).limit(k).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Long>> parallelTopK() {
+        return entries.parallelStream().collect(Recipe_4_4_Sorting_Maps.TopK.topK(k, byScore));
+    }
+}
@@ -0,0 +1,78 @@
+package chapter_4_Comparators_and_Collectors;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * <h1>Benchmarks for (4.5.) Partitioning and Grouping</h1>
+ * <br>
+ *
+ * Splits {@code size} random integers into {@code buckets} buckets ({@code value % buckets}) with
+ * {@link Collectors#groupingBy(java.util.function.Function)} and with
+ * {@link Recipe_4_5_Partitioning_and_Collectors.IntPartitioning}, keeping the elements of every bucket or only counting
+ * them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Recipe_4_5_Partitioning_and_Collectors_Benchmark {
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    @Param({"8", "64"})
+    int buckets;
+
+    Integer[] values;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        values = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = random.nextInt(1_000_000);
+        }
+    }
+
+    @Benchmark
+    public Map<Integer, List<Integer>> groupingBy() {
+        return Arrays.stream(values).collect(Collectors.groupingBy(v -> v % buckets));
+    }
+
+    @Benchmark
+    public Recipe_4_5_Partitioning_and_Collectors.IntPartitioning.Buckets<List<Integer>> partitioningByInt() {
+        return Arrays.stream(values)
+                .collect(Recipe_4_5_Partitioning_and_Collectors.IntPartitioning.partitioningByInt(buckets, v -> v % buckets));
+    }
+
+    @Benchmark
+    public Map<Integer, Long> groupingByCounting() {
+        return Arrays.stream(values).collect(Collectors.groupingBy(v -> v % buckets, Collectors.counting()));
+    }
+
+    @Benchmark
+    public long[] bucketSizes() {
+        return Arrays.stream(values)
+                .collect(Recipe_4_5_Partitioning_and_Collectors.IntPartitioning.bucketSizes(buckets, v -> v % buckets));
+    }
+
+    @Benchmark
+    public Map<Integer, List<Integer>> parallelGroupingBy() {
+        return Arrays.stream(values).parallel().collect(Collectors.groupingBy(v -> v % buckets));
+    }
+
+    @Benchmark
+    public Recipe_4_5_Partitioning_and_Collectors.IntPartitioning.Buckets<List<Integer>> parallelPartitioningByInt() {
+        return Arrays.stream(values).parallel()
+                .collect(Recipe_4_5_Partitioning_and_Collectors.IntPartitioning.partitioningByInt(buckets, v -> v % buckets));
+    }
+}
@@ -0,0 +1,70 @@
+package chapter_4_Comparators_and_Collectors;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * <h1>Benchmarks for (4.6.) Downstream Collectors</h1>
+ * <br>
+ *
+ * Counts {@code size} random integers per key ({@code value % keys}) on a parallel stream with
+ * {@code groupingBy(..., counting())}, {@code groupingByConcurrent(..., counting())} and
+ * {@link Recipe_4_6_Downstream_Collectors.StripedGroups}. With {@code keys = 4} every key is hot.
+ *
+ * <br>
+ * The difference between the concurrent versions grows with the number of cores: run it on the target machine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Recipe_4_6_Downstream_Collectors_Benchmark {
+
+    @Param({"1000000"})
+    int size;
+
+    @Param({"4", "1000"})
+    int keys;
+
+    Integer[] values;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        values = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = random.nextInt(1_000_000);
+        }
+    }
+
+    @Benchmark
+    public Map<Integer, Long> groupingByCounting() {
+        return Arrays.stream(values).parallel()
+                .collect(Collectors.groupingBy(v -> v % keys, Collectors.counting()));
+    }
+
+    @Benchmark
+    public Map<Integer, Long> groupingByConcurrentCounting() {
+        return Arrays.stream(values).parallel()
+                .collect(Collectors.groupingByConcurrent(v -> v % keys, Collectors.counting()));
+    }
+
+    @Benchmark
+    public Map<Integer, Long> countingByConcurrent() {
+        return Arrays.stream(values).parallel()
+                .collect(Recipe_4_6_Downstream_Collectors.StripedGroups.countingByConcurrent(v -> v % keys));
+    }
+
+    @Benchmark
+    public Recipe_4_6_Downstream_Collectors.StripedGroups<Integer> summingLong() {
+        return Arrays.stream(values).parallel()
+                .collect(new Recipe_4_6_Downstream_Collectors.StripedGroups<Integer>().summingLong(v -> v % keys, v -> v));
+    }
+}
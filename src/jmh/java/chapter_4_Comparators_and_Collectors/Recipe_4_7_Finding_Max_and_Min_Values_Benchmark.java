@@ -0,0 +1,73 @@
+package chapter_4_Comparators_and_Collectors;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * <h1>Benchmarks for (4.7.) Finding Max and Min Values</h1>
+ * <br>
+ *
+ * Finds the minimum and the maximum of {@code size} random {@code int} values (and of the same values boxed) with two
+ * passes ({@code min()} then {@code max()}), with {@code summaryStatistics()} and with
+ * {@link Recipe_4_7_Finding_Max_and_Min_Values.IntMinMax} / {@link Recipe_4_7_Finding_Max_and_Min_Values.MinMax}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Recipe_4_7_Finding_Max_and_Min_Values_Benchmark {
+
+    @Param({"1000", "1000000"})
+    int size;
+
+    int[] values;
+    List<Integer> boxed;
+
+    @Setup
+    public void setUp() {
+        values = new SplittableRandom(42).ints(size).toArray();
+        boxed = Arrays.stream(values).boxed().collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public void minThenMax(Blackhole blackhole) {
+        blackhole.consume(Arrays.stream(values).min().getAsInt());
+        blackhole.consume(Arrays.stream(values).max().getAsInt());
+    }
+
+    @Benchmark
+    public IntSummaryStatistics summaryStatistics() {
+        return Arrays.stream(values).summaryStatistics();
+    }
+
+    @Benchmark
+    public Recipe_4_7_Finding_Max_and_Min_Values.IntMinMax intMinMaxOfArray() {
+        return Recipe_4_7_Finding_Max_and_Min_Values.IntMinMax.of(values);
+    }
+
+    @Benchmark
+    public Recipe_4_7_Finding_Max_and_Min_Values.IntMinMax intMinMaxOfStream() {
+        return Recipe_4_7_Finding_Max_and_Min_Values.IntMinMax.of(Arrays.stream(values));
+    }
+
+    @Benchmark
+    public void boxedMinThenMax(Blackhole blackhole) {
+        blackhole.consume(boxed.stream().min(Comparator.naturalOrder()).get());
+        blackhole.consume(boxed.stream().max(Comparator.naturalOrder()).get());
+    }
+
+    @Benchmark
+    public Recipe_4_7_Finding_Max_and_Min_Values.MinMax<Integer> boxedMinMax() {
+        return boxed.stream().collect(Recipe_4_7_Finding_Max_and_Min_Values.MinMax.minMax());
+    }
+}
@@ -0,0 +1,134 @@
+package chapter_4_Comparators_and_Collectors;
+
+import chapter_4_Comparators_and_Collectors.Recipe_4_8_Creating_Immutable_Collections.CompactCollections;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * <h1>Benchmarks for (4.8.) Creating Immutable Collections</h1>
+ * <br>
+ *
+ * Builds immutable lists, sets and maps of {@code size} strings with {@code collectingAndThen(..., unmodifiable...)}
+ * and with the {@link CompactCollections} collectors, and looks up {@code size} keys (half of them missing) in the
+ * resulting sets and maps. Run with {@code -prof gc} to compare the allocated bytes ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Recipe_4_8_Creating_Immutable_Collections_Benchmark {
+
+    @Param({"3", "1000", "100000"})
+    int size;
+
+    List<String> strings;
+    List<String> lookups;
+    Set<String> unmodifiableSet;
+    Set<String> compactSet;
+    Map<String, Integer> unmodifiableMap;
+    Map<String, Integer> compactMap;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        strings = new ArrayList<>(size);
+        lookups = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            strings.add("key" + i);
+            lookups.add("key" + random.nextInt(2 * size));
+        }
+        unmodifiableSet = unmodifiableSet();
+        compactSet = compactSet();
+        unmodifiableMap = unmodifiableMap();
+        compactMap = compactMap();
+    }
+
+    @Benchmark
+    public List<String> unmodifiableList() {
+        return strings.stream().collect(Collectors.collectingAndThen(Collectors.toList(),
+                Collections::unmodifiableList));
+    }
+
+    @Benchmark
+    public List<String> compactList() {
+        return strings.stream().collect(CompactCollections.toCompactList());
+    }
+
+    @Benchmark
+    public Set<String> unmodifiableSet() {
+        return strings.stream().collect(Collectors.collectingAndThen(Collectors.toSet(),
+                Collections::unmodifiableSet));
+    }
+
+    @Benchmark
+    public Set<String> compactSet() {
+        return strings.stream().collect(CompactCollections.toCompactSet());
+    }
+
+    @Benchmark
+    public Map<String, Integer> unmodifiableMap() {
+        return strings.stream().collect(Collectors.collectingAndThen(Collectors.toMap(s -> s, String::length),
+                Collections::unmodifiableMap));
+    }
+
+    @Benchmark
+    public Map<String, Integer> compactMap() {
+        return strings.stream().collect(CompactCollections.toCompactMap(s -> s, String::length));
+    }
+
+    @Benchmark
+    public int unmodifiableSetContains() {
+        int found = 0;
+        for (String key : lookups) {
+            if (unmodifiableSet.contains(key)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int compactSetContains() {
+        int found = 0;
+        for (String key : lookups) {
+            if (compactSet.contains(key)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int unmodifiableMapGet() {
+        int sum = 0;
+        for (String key : lookups) {
+            Integer value = unmodifiableMap.get(key);
+            if (value != null) {
+                sum += value;
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int compactMapGet() {
+        int sum = 0;
+        for (String key : lookups) {
+            Integer value = compactMap.get(key);
+            if (value != null) {
+                sum += value;
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,113 @@
+package chapter_4_Comparators_and_Collectors;
+
+import chapter_4_Comparators_and_Collectors.Recipe_4_8_Creating_Immutable_Collections.PersistentHashMap;
+import chapter_4_Comparators_and_Collectors.Recipe_4_8_Creating_Immutable_Collections.PersistentVector;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * <h1>Benchmarks for (4.8.) Creating Immutable Collections - persistent collections</h1>
+ * <br>
+ *
+ * Publishes a new version of a list / map of {@code size} elements after changing one element, by copying it
+ * (copy-on-write) and with {@link PersistentVector#with(int, Object)} / {@link PersistentHashMap#plus(Object, Object)};
+ * also builds them with a collector and looks up all the keys, in random order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Recipe_4_8_Persistent_Collections_Benchmark {
+
+    @Param({"1000", "100000"})
+    int size;
+
+    List<String> list;
+    PersistentVector<String> vector;
+    Map<Integer, String> map;
+    PersistentHashMap<Integer, String> persistentMap;
+    Integer[] lookups;
+    int next;
+
+    @Setup
+    public void setUp() {
+        list = Collections.unmodifiableList(IntStream.range(0, size).mapToObj(i -> "Employee " + i)
+                .collect(Collectors.toList()));
+        vector = IntStream.range(0, size).mapToObj(i -> "Employee " + i)
+                .collect(PersistentVector.toPersistentVector());
+        map = Collections.unmodifiableMap(IntStream.range(0, size).boxed()
+                .collect(Collectors.toMap(i -> i, i -> "Book " + i)));
+        persistentMap = IntStream.range(0, size).boxed()
+                .collect(PersistentHashMap.toPersistentMap(i -> i, i -> "Book " + i));
+        List<Integer> keys = IntStream.range(0, size).boxed().collect(Collectors.toList());
+        Collections.shuffle(keys, new Random(42));
+        lookups = keys.toArray(new Integer[0]);
+    }
+
+    @Benchmark
+    public List<String> copyOnWriteListUpdate() {
+        List<String> copy = new ArrayList<>(list);
+        copy.set(next++ % size, "Updated");
+        return Collections.unmodifiableList(copy);
+    }
+
+    @Benchmark
+    public PersistentVector<String> persistentVectorUpdate() {
+        return vector.with(next++ % size, "Updated");
+    }
+
+    @Benchmark
+    public Map<Integer, String> copyOnWriteMapUpdate() {
+        Map<Integer, String> copy = new HashMap<>(map);
+        copy.put(next++ % size, "Updated");
+        return Collections.unmodifiableMap(copy);
+    }
+
+    @Benchmark
+    public PersistentHashMap<Integer, String> persistentMapUpdate() {
+        return persistentMap.plus(next++ % size, "Updated");
+    }
+
+    @Benchmark
+    public Map<Integer, String> hashMapCollect() {
+        return IntStream.range(0, size).boxed().collect(Collectors.toMap(i -> i, i -> "Book"));
+    }
+
+    @Benchmark
+    public PersistentHashMap<Integer, String> persistentMapCollect() {
+        return IntStream.range(0, size).boxed().collect(PersistentHashMap.toPersistentMap(i -> i, i -> "Book"));
+    }
+
+    @Benchmark
+    public int hashMapGet() {
+        int found = 0;
+        for (Integer key : lookups) {
+            if (map.get(key) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int persistentMapGet() {
+        int found = 0;
+        for (Integer key : lookups) {
+            if (persistentMap.get(key) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,102 @@
+package chapter_4_Comparators_and_Collectors;
+
+import chapter_4_Comparators_and_Collectors.Recipe_4_9_Implementing_the_Collector_Interface.CharacteristicCollectors;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * <h1>Benchmarks for (4.9.) Implementing the Collector Interface</h1>
+ * <br>
+ *
+ * Collects {@code size} random numbers (with {@code distinct} different values) on parallel streams, with the
+ * {@link Collectors} and with the {@link CharacteristicCollectors} doing the same thing: the concurrent ones skip the
+ * per-split containers and their merging, the identity-finish ones skip the finisher.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Recipe_4_9_Implementing_the_Collector_Interface_Benchmark {
+
+    @Param({"1000000"})
+    int size;
+
+    @Param({"1000", "100000"})
+    int distinct;
+
+    List<Integer> numbers;
+    List<String> strings;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        numbers = IntStream.range(0, size).map(i -> random.nextInt(distinct)).boxed().collect(Collectors.toList());
+        strings = numbers.stream().limit(size / 10).map(String::valueOf).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Set<Integer> toSet() {
+        return numbers.parallelStream().collect(Collectors.toSet());
+    }
+
+    @Benchmark
+    public Set<Integer> toConcurrentSet() {
+        return numbers.parallelStream().collect(CharacteristicCollectors.toConcurrentSet());
+    }
+
+    @Benchmark
+    public long distinctCount() {
+        return numbers.parallelStream().distinct().count();
+    }
+
+    @Benchmark
+    public int toSetSize() {
+        return numbers.parallelStream().collect(Collectors.collectingAndThen(Collectors.toSet(), Set::size));
+    }
+
+    @Benchmark
+    public long countingDistinct() {
+        return numbers.parallelStream().collect(CharacteristicCollectors.countingDistinct());
+    }
+
+    @Benchmark
+    public BitSet toBitSet() {
+        return numbers.parallelStream().collect(CharacteristicCollectors.toBitSet());
+    }
+
+    @Benchmark
+    public SortedSet<String> unmodifiableSortedSet() {
+        return strings.parallelStream().collect(Collectors.collectingAndThen(
+                Collectors.toCollection(() -> new TreeSet<String>(Comparator.reverseOrder())),
+                Collections::unmodifiableSortedSet));
+    }
+
+    @Benchmark
+    public NavigableSet<String> toConcurrentSortedSet() {
+        return strings.parallelStream().collect(CharacteristicCollectors.toConcurrentSortedSet(Comparator.reverseOrder()));
+    }
+
+    @Benchmark
+    public String joining() {
+        return strings.parallelStream().collect(Collectors.joining());
+    }
+
+    @Benchmark
+    public StringBuilder toStringBuilder() {
+        return strings.parallelStream().collect(CharacteristicCollectors.toStringBuilder());
+    }
+}
@@ -0,0 +1,83 @@
+package chapter_6_The_Optional_Type;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Benchmarks for (6.5.) Mapping Optionals</h1>
+ * <br>
+ *
+ * Looks up {@code ids_size} ids (half of them missing) in an {@link Recipe_6_5_Mapping_Optionals.Employees} holding
+ * {@code size} employees.
+ *
+ * <br>
+ * {@link Recipe_6_5_Mapping_Optionals.Employees#findEmployeeById(int)} scans the whole list, so the cost is
+ * {@code ids_size * size} and the sizes stop at 1e5.
+ *
+ * <br>
+ * The {@code indexed...} benchmarks run the same lookups on a {@link Recipe_6_5_Mapping_Optionals.IndexedEmployees}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Recipe_6_5_Mapping_Optionals_Benchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int size;
+
+    @Param({"1000"})
+    int ids_size;
+
+    Recipe_6_5_Mapping_Optionals.Employees employees;
+    Recipe_6_5_Mapping_Optionals.IndexedEmployees indexedEmployees;
+    List<Integer> ids;
+    int[] idsArray;
+
+    @Setup
+    public void setUp() {
+        Recipe_6_5_Mapping_Optionals recipe = new Recipe_6_5_Mapping_Optionals();
+        SplittableRandom random = new SplittableRandom(42);
+
+        employees = recipe.new Employees();
+        indexedEmployees = recipe.new IndexedEmployees();
+        for (int i = 0; i < size; i++) {
+            Recipe_6_5_Mapping_Optionals.Employee employee = recipe.new Employee(i);
+            employees.addEmployee(employee);
+            indexedEmployees.addEmployee(employee);
+        }
+
+        ids = new ArrayList<>(ids_size);
+        idsArray = new int[ids_size];
+        for (int i = 0; i < ids_size; i++) {
+            idsArray[i] = random.nextInt(2 * size);
+            ids.add(idsArray[i]);
+        }
+    }
+
+    @Benchmark
+    public List<Recipe_6_5_Mapping_Optionals.Employee> findingEmployeesByIds() {
+        return employees.findingEmployeesByIds(ids);
+    }
+
+    @Benchmark
+    public List<Recipe_6_5_Mapping_Optionals.Employee> findingEmployeesByIdsWithFlatMap() {
+        return employees.findingEmployeesByIdsWithFlatMap(ids);
+    }
+
+    @Benchmark
+    public List<Recipe_6_5_Mapping_Optionals.Employee> indexedFindingEmployeesByIds() {
+        return indexedEmployees.findingEmployeesByIds(ids);
+    }
+
+    @Benchmark
+    public List<Recipe_6_5_Mapping_Optionals.Employee> indexedFindAll() {
+        return indexedEmployees.findAll(idsArray);
+    }
+}
@@ -2,7 +2,42 @@ package chapter_1_The_Basics;
 
 import java.io.File;
 import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * <h1>(1.1.) Lambda Expression</h1>
@@ -36,6 +71,10 @@ import java.util.Arrays;
  *                          {@link #assigningLambdaExpressionToAVariableForRunnable}
  *                          - assigning a lambda expression implementation to a variable for {@link Runnable}
  *                      </li>
+ *                      <li>
+ *                          {@link #usingATaskExecutor()}
+ *                          - running many {@link Runnable}s on a {@link TaskExecutor} and reading its metrics
+ *                      </li>
  *                  </ul>
  *             </li>
  *             <li>
@@ -53,6 +92,10 @@ import java.util.Arrays;
  *                          {@link #assigningLambdaExpressionToAVariableForFilenameFilter()}
  *                          - assigning a lambda expression implementation to a variable for {@link FilenameFilter}
  *                      </li>
+ *                      <li>
+ *                          {@link #scanningADirectoryTree()}
+ *                          - scanning a whole directory tree in parallel with {@link DirectoryScanner}
+ *                      </li>
  *                  </ul>
  *             </li>
  *        </ul>
@@ -66,9 +109,18 @@ import java.util.Arrays;
  * <br>
  * A lambda can be an argument to a method, a return type from a method, or assigned to a reference.
  * In each case, the type of the assignment must be a functional interface.
+ *
+ * <br><br>
+ * The book runs every {@link Runnable} example with {@code new Thread(runnable).start()}. Here they are submitted to
+ * {@link #TASKS}, a pool of named threads ({@link TaskExecutor}): creating a thread costs much more than the
+ * {@code println} it runs.
  */
 public class Recipe_1_1_Lambda_Expression {
 
+    /** Executor running the {@link Runnable} examples, instead of a new Thread for each of them. */
+    protected static final TaskExecutor TASKS =
+            new TaskExecutor("recipe-1-1", 2, 1024, TaskExecutor.RejectionPolicy.CALLER_RUNS);
+
     /**
      * &#9674;&#9674;&#9674; <b>Running methods for this specific sub-chapter</b> &#9674;&#9674;&#9674;
      *
@@ -88,6 +140,10 @@ public class Recipe_1_1_Lambda_Expression {
         // *** Assigning a Lambda Expression Implementation to a Variable for Runnable ***
         assigningLambdaExpressionToAVariableForRunnable();
 
+        System.out.println();
+        // *** Using a TaskExecutor ***
+        usingATaskExecutor();
+
 
         System.out.println();
         // *** Anonymous Inner Class Implementation for FilenameFilter ***
@@ -98,28 +154,31 @@ public class Recipe_1_1_Lambda_Expression {
 
         // *** Assigning a Lambda Expression Implementation to a Variable For FilenameFilter ***
         assigningLambdaExpressionToAVariableForFilenameFilter();
+
+        // *** Scanning a Directory Tree ***
+        scanningADirectoryTree();
     }
 
     /**
      * &#9674;&#9674;&#9674; <b>Anonymous Inner Class Implementation for Runnable</b> &#9674;&#9674;&#9674;
      *
      * <pre>
-     new Thread(new Runnable() {
+     TASKS.execute(new Runnable() {     // new Thread(new Runnable() { ... }).start();
         &#64;Override
         public void run() {
             System.out.println("Inside runnable using an anonymous class.");
         }
-     }).start();
+     });
      * </pre>
      */
     protected static void anonymousInnerClassForRunnable() {
-        new Thread(new Runnable() {
+        TASKS.execute(new Runnable() {
             @Override
             public void run() {
                 System.out.println("\n*** Anonymous Inner Class Implementation For Runnable ***");
                 System.out.println("Inside runnable using an anonymous class.");
             }
-        }).start();
+        });
     }
 
     /**
@@ -132,16 +191,16 @@ public class Recipe_1_1_Lambda_Expression {
      * (being compatible with the method signature)
      *
      * <pre>
-     new Thread(() -&#62; {
+     TASKS.execute(() -&#62; {           // new Thread(() -&#62; { ... }).start();
         System.out.println("Inside thread constructor using lambda.");
-     }).start();
+     });
      * </pre>
      */
     protected static void lambdaExpressionForRunnable() {
-        new Thread(() -> {
+        TASKS.execute(() -> {
             System.out.println("\n*** Lambda Expression Implementation For Runnable ***");
             System.out.println("Inside thread constructor using lambda.");
-        }).start();
+        });
     }
 
     /**
@@ -156,7 +215,7 @@ public class Recipe_1_1_Lambda_Expression {
      *
      * <pre>
      Runnable r = () -&#62; System.out.println("Lambda expression implementing the run method.");
-     new Thread(r).start();
+     TASKS.execute(r);                   // new Thread(r).start();
      * </pre>
      */
     protected static void assigningLambdaExpressionToAVariableForRunnable() {
@@ -165,10 +224,45 @@ public class Recipe_1_1_Lambda_Expression {
             System.out.println("Lambda expression implementing the run method.");
         };
 
-        new Thread(r).start();
+        TASKS.execute(r);
     }
 
 
+    /**
+     * &#9674;&#9674;&#9674; <b>Using a TaskExecutor</b> &#9674;&#9674;&#9674;
+     *
+     * <br>
+     * {@link TaskExecutor} is a {@link ThreadPoolExecutor} with a bounded queue, a {@link TaskExecutor.RejectionPolicy}
+     * for the tasks that don't fit in it, named threads, and metrics: queue depth, active threads and the latency of
+     * the tasks (from submission to the end of the task).
+     *
+     * <pre>
+     try (TaskExecutor executor = new TaskExecutor("worker", 4, 10_000, TaskExecutor.RejectionPolicy.CALLER_RUNS)) {
+        for (int i = 0; i &#60; 100_000; i++) {
+            executor.execute(() -&#62; counter.increment());
+        }
+        System.out.println(executor.getQueueDepth() + " tasks waiting, " + executor.getActiveThreads() + " running");
+     }   // close() waits for the submitted tasks
+
+     System.out.println(executor);      // completed tasks, average and max latency
+     * </pre>
+     */
+    protected static void usingATaskExecutor() {
+        System.out.println("\n*** Using a TaskExecutor ***");
+
+        LongAdder counter = new LongAdder();
+        TaskExecutor executor = new TaskExecutor("worker", 4, 10_000, TaskExecutor.RejectionPolicy.CALLER_RUNS);
+        try (TaskExecutor e = executor) {
+            for (int i = 0; i < 100_000; i++) {
+                e.execute(counter::increment);
+            }
+            System.out.println(e.getQueueDepth() + " tasks waiting, " + e.getActiveThreads() + " running");
+        }
+
+        System.out.println(counter.sum() + " tasks run");
+        System.out.println(executor);
+    }
+
     /**
      * &#9674;&#9674;&#9674; <b>Anonymous Inner Class Implementation for FilenameFilter</b> &#9674;&#9674;&#9674;
      *
@@ -250,4 +344,516 @@ public class Recipe_1_1_Lambda_Expression {
         System.out.println("\n*** Assigning a Lambda Expression Implementation to a Variable for FilenameFilter ***");
         Arrays.asList(names).stream().forEach(System.out::println);
     }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Scanning a Directory Tree</b> &#9674;&#9674;&#9674;
+     *
+     * <br>
+     * {@link File#list(FilenameFilter)} builds the whole {@code String[]} of one directory. {@link DirectoryScanner}
+     * walks a whole tree: every directory is read with a {@link DirectoryStream} by its own task on a
+     * {@link ForkJoinPool}, and the matching paths are handed over, while the scan is still running, to a lazy
+     * {@link Stream}.
+     * <br>
+     * Filters are a glob on the file name and / or a {@link BiPredicate} on the path and its attributes (read in one
+     * call per file, like {@link Files#find(Path, int, BiPredicate, java.nio.file.FileVisitOption...)}).
+     * <br>
+     * The scan stays at most a few thousand entries ahead of the stream, so {@code findFirst()} stops it soon even
+     * without closing the stream.
+     *
+     * <pre>
+     DirectoryScanner scanner = new DirectoryScanner();
+
+     try (Stream&#60;Path&#62; paths = scanner.scan(Paths.get("./src/main/java"), "*.java")) {
+        paths.forEach(System.out::println);
+     }
+
+     // Glob and predicate on the attributes
+     try (Stream&#60;Path&#62; paths = scanner.scan(Paths.get("./src/main/java"), "Recipe_*.java",
+                                           (path, attributes) -&#62; attributes.size() &#62; 10_000)) {
+        paths.forEach(System.out::println);
+     }
+     * </pre>
+     *
+     * The stream must be closed when it isn't consumed until the end, to stop the scan.
+     */
+    protected static void scanningADirectoryTree() {
+        System.out.println("\n*** Scanning a Directory Tree ***");
+
+        DirectoryScanner scanner = new DirectoryScanner();
+
+        try (Stream<Path> paths = scanner.scan(Paths.get("./src/main/java"), "*.java")) {
+            System.out.println(paths.count() + " java files");
+        }
+
+        try (Stream<Path> paths = scanner.scan(Paths.get("./src/main/java"), "Recipe_*.java",
+                                               (path, attributes) -> attributes.size() > 10_000)) {
+            System.out.println(paths.map(Path::getFileName).map(Path::toString).sorted()
+                                    .collect(Collectors.joining("\n")));
+        }
+    }
+
+    /**
+     * Scanner for directory trees, built on {@link DirectoryStream}.
+     *
+     * <br>
+     * Every directory is listed by a separate {@link CountedCompleter} task, so sub-directories are read in parallel.
+     * The matching entries go, in batches of up to {@value #BATCH_SIZE}, through a queue to the returned
+     * {@link Stream}: the scan starts with the first element requested and the stream returns the entries as soon as
+     * they are found.
+     *
+     * <br><br>
+     * The tasks never block on the stream (so they can run on the common pool). Once {@value #MAX_QUEUED_BATCHES}
+     * batches wait in the queue, a task parks what is left of its work and returns: a sub-directory it found, or the
+     * rest of its directory after a full batch. The stream resumes the parked tasks when it has taken half of the
+     * batches. A stream that isn't consumed until the end (e.g. {@code findFirst()}) thus leaves its scan parked after
+     * a few thousand entries; closing the stream cancels the scan and closes the directories left open by the parked
+     * tasks.
+     *
+     * <br><br>
+     * The attributes are read with one {@link Files#readAttributes(Path, Class, LinkOption...)} call (one
+     * {@code stat}) per entry, and given both to the filter and to the {@link FileEntry}. The JDK has no bulk read of
+     * the attributes of a directory on Linux or macOS: {@link Files#walkFileTree(Path, java.nio.file.FileVisitor)}
+     * reads them one entry at a time too, and only reuses the attributes that come with a Windows directory listing,
+     * through a JDK-internal interface.
+     *
+     * <br><br>
+     * Symbolic links are not followed. An {@link IOException} stops the scan and is thrown by the stream as an
+     * {@link UncheckedIOException}; an unchecked exception thrown by the filter stops the scan and is thrown by the
+     * stream as it is.
+     */
+    protected static class DirectoryScanner {
+        /** Entries handed over to the stream at once. */
+        private static final int BATCH_SIZE = 256;
+        /** Batches waiting for the stream above which the tasks park. */
+        private static final int MAX_QUEUED_BATCHES = 16;
+        private static final List<FileEntry> END = new ArrayList<>();
+
+        private final ForkJoinPool pool;
+
+        /**
+         * Scanner using the common {@link ForkJoinPool}.
+         */
+        public DirectoryScanner() {
+            this(ForkJoinPool.commonPool());
+        }
+
+        /**
+         * @param pool the pool running the directory tasks
+         */
+        public DirectoryScanner(ForkJoinPool pool) {
+            this.pool = pool;
+        }
+
+        /**
+         * @param root the directory to scan
+         * @param glob glob matched against the file names, e.g. {@code "*.java"}
+         * @return all the paths under {@code root} (files and directories) with a name matching {@code glob}
+         */
+        public Stream<Path> scan(Path root, String glob) {
+            return scan(root, glob, (path, attributes) -> true);
+        }
+
+        /**
+         * @param root the directory to scan
+         * @param glob glob matched against the file names, e.g. {@code "*.java"}
+         * @param filter filter on the path and its attributes
+         * @return all the paths under {@code root} (files and directories) matching both filters
+         */
+        public Stream<Path> scan(Path root, String glob, BiPredicate<Path, BasicFileAttributes> filter) {
+            PathMatcher matcher = root.getFileSystem().getPathMatcher("glob:" + glob);
+            return scanWithAttributes(root, (path, attributes) ->
+                    matcher.matches(path.getFileName()) && filter.test(path, attributes))
+                    .map(FileEntry::getPath);
+        }
+
+        /**
+         * @param root the directory to scan
+         * @param filter filter on the path and its attributes
+         * @return all the entries under {@code root} (files and directories) matching {@code filter}, with their
+         * attributes
+         */
+        public Stream<FileEntry> scanWithAttributes(Path root, BiPredicate<Path, BasicFileAttributes> filter) {
+            Scan scan = new Scan(root, filter);
+            return StreamSupport.stream(scan, false).onClose(scan::cancel);
+        }
+
+        /**
+         * One scan: the spliterator of the stream and the state shared with its tasks.
+         */
+        private final class Scan extends Spliterators.AbstractSpliterator<FileEntry> {
+            private final Path root;
+            private final BiPredicate<Path, BasicFileAttributes> filter;
+            /** Holds about {@code MAX_QUEUED_BATCHES} batches (plus one per running task), then the tasks park. */
+            private final BlockingQueue<List<FileEntry>> queue = new LinkedBlockingQueue<>();
+            /** Tasks waiting for the stream to take batches; guarded by {@code this}. */
+            private final List<DirectoryTask> parked = new ArrayList<>();
+            private Iterator<FileEntry> batch = Collections.emptyIterator();
+            private volatile boolean cancelled;
+            /** The first {@link IOException}, {@link RuntimeException} or {@link Error} of the tasks. */
+            private volatile Throwable error;
+            private boolean started;
+            private boolean finished;
+
+            private Scan(Path root, BiPredicate<Path, BasicFileAttributes> filter) {
+                super(Long.MAX_VALUE, Spliterator.NONNULL | Spliterator.DISTINCT);
+                this.root = root;
+                this.filter = filter;
+            }
+
+            @Override
+            public boolean tryAdvance(Consumer<? super FileEntry> action) {
+                if (finished) return false;
+                if (!started) {
+                    started = true;
+                    pool.execute(new DirectoryTask(null, this, root, null, null));
+                }
+
+                while (!batch.hasNext()) {
+                    List<FileEntry> entries;
+                    try {
+                        entries = queue.take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        cancel();
+                        throw new UncheckedIOException(new InterruptedIOException("Directory scan interrupted"));
+                    }
+
+                    if (entries == END) {
+                        finished = true;
+                        if (error instanceof IOException) throw new UncheckedIOException((IOException) error);
+                        if (error instanceof RuntimeException) throw (RuntimeException) error;
+                        if (error != null) throw (Error) error;
+                        return false;
+                    }
+                    batch = entries.iterator();
+                    resume();
+                }
+
+                action.accept(batch.next());
+                return true;
+            }
+
+            private void cancel() {
+                cancelled = true;
+                finished = true;
+                queue.clear();
+                resume();
+            }
+
+            private void offer(List<FileEntry> entries) {
+                if (!cancelled && !entries.isEmpty()) queue.add(entries);
+            }
+
+            /**
+             * @param task a task not started yet, with its pending count already added to its completer
+             * @return {@code true} if the task is parked until the stream takes batches, {@code false} if it has to
+             * run now
+             */
+            private synchronized boolean park(DirectoryTask task) {
+                if (cancelled || queue.size() < MAX_QUEUED_BATCHES) return false;
+                parked.add(task);
+                return true;
+            }
+
+            /** Runs the parked tasks once the queue is half empty, or the scan is stopped. */
+            private void resume() {
+                List<DirectoryTask> tasks;
+                synchronized (this) {
+                    if (parked.isEmpty() || !cancelled && queue.size() > MAX_QUEUED_BATCHES / 2) return;
+                    tasks = new ArrayList<>(parked);
+                    parked.clear();
+                }
+                tasks.forEach(pool::execute);
+            }
+
+            /** Called once all the tasks are done. */
+            private void end() {
+                if (cancelled) queue.clear();
+                queue.add(END);
+            }
+
+            private void fail(Throwable e) {
+                if (error == null) error = e;
+                cancelled = true;
+                resume();
+            }
+        }
+
+        /**
+         * Lists one directory (or the rest of it), forking a task for each sub-directory. The root task completes when
+         * all the tasks below it have completed, and then ends the stream.
+         */
+        private static final class DirectoryTask extends CountedCompleter<Void> {
+            private static final long serialVersionUID = 1L;
+
+            private final Scan scan;
+            private final Path directory;
+            /** {@code null} until the directory is opened, and once handed over to a parked task. */
+            private DirectoryStream<Path> entries;
+            private Iterator<Path> iterator;
+
+            private DirectoryTask(DirectoryTask parent, Scan scan, Path directory,
+                                  DirectoryStream<Path> entries, Iterator<Path> iterator) {
+                super(parent);
+                this.scan = scan;
+                this.directory = directory;
+                this.entries = entries;
+                this.iterator = iterator;
+            }
+
+            @Override
+            public void compute() {
+                try {
+                    if (!scan.cancelled) {
+                        if (entries == null) {
+                            entries = Files.newDirectoryStream(directory);
+                            iterator = entries.iterator();
+                        }
+                        list();
+                    }
+                } catch (IOException e) {
+                    scan.fail(e);
+                } catch (DirectoryIteratorException e) {
+                    scan.fail(e.getCause());
+                } catch (RuntimeException | Error e) {
+                    // thrown by the filter: handed over to the stream unchanged
+                    scan.fail(e);
+                }
+                close();
+                tryComplete();
+            }
+
+            /** Lists the directory until its end, or until the rest of it is parked. */
+            private void list() throws IOException {
+                List<FileEntry> found = new ArrayList<>();
+                while (!scan.cancelled && iterator.hasNext()) {
+                    Path path = iterator.next();
+                    BasicFileAttributes attributes =
+                            Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isDirectory()) {
+                        addToPendingCount(1);
+                        DirectoryTask task = new DirectoryTask(this, scan, path, null, null);
+                        if (!scan.park(task)) task.fork();
+                    }
+                    if (scan.filter.test(path, attributes)) {
+                        found.add(new FileEntry(path, attributes));
+                        if (found.size() == BATCH_SIZE) {
+                            scan.offer(found);
+                            found = new ArrayList<>();
+                            if (parkRest()) return;
+                        }
+                    }
+                }
+                scan.offer(found);
+            }
+
+            /** @return {@code true} if the rest of the directory was handed over to a parked task */
+            private boolean parkRest() {
+                addToPendingCount(1);
+                if (scan.park(new DirectoryTask(this, scan, directory, entries, iterator))) {
+                    entries = null;
+                    return true;
+                }
+                addToPendingCount(-1);
+                return false;
+            }
+
+            private void close() {
+                if (entries != null) {
+                    try {
+                        entries.close();
+                    } catch (IOException e) {
+                        scan.fail(e);
+                    }
+                    entries = null;
+                }
+            }
+
+            @Override
+            public void onCompletion(CountedCompleter<?> caller) {
+                if (getCompleter() == null) {
+                    // root task: every task of the scan is done
+                    scan.end();
+                }
+            }
+        }
+
+        /**
+         * A path found by the scan and its attributes.
+         */
+        public static final class FileEntry {
+            private final Path path;
+            private final BasicFileAttributes attributes;
+
+            private FileEntry(Path path, BasicFileAttributes attributes) {
+                this.path = path;
+                this.attributes = attributes;
+            }
+
+            public Path getPath() {
+                return path;
+            }
+
+            public BasicFileAttributes getAttributes() {
+                return attributes;
+            }
+
+            @Override
+            public String toString() {
+                return path.toString();
+            }
+        }
+    }
+
+    /**
+     * Pool of named threads with a bounded queue, a rejection policy and metrics, to be used instead of a
+     * {@code new Thread} per {@link Runnable}.
+     *
+     * <br>
+     * The threads ({@code <name>-1}, {@code <name>-2}, ...) are created when needed, up to {@code threads}, and stop
+     * after one second without work, so an idle executor doesn't keep the JVM alive.
+     * <br>
+     * The latency of a task is measured from {@link #execute(Runnable)} to the end of the task, so it includes the time
+     * spent in the queue.
+     */
+    protected static class TaskExecutor implements Executor, AutoCloseable {
+
+        /**
+         * What happens to a task submitted while the queue is full.
+         */
+        public enum RejectionPolicy {
+            /** Throw a {@link java.util.concurrent.RejectedExecutionException}. */
+            ABORT(new ThreadPoolExecutor.AbortPolicy()),
+            /** Run the task in the submitting thread, which slows down the producer. */
+            CALLER_RUNS(new ThreadPoolExecutor.CallerRunsPolicy()),
+            /** Drop the task. */
+            DISCARD(new ThreadPoolExecutor.DiscardPolicy()),
+            /** Drop the oldest waiting task and queue the new one. */
+            DISCARD_OLDEST(new ThreadPoolExecutor.DiscardOldestPolicy());
+
+            private final RejectedExecutionHandler handler;
+
+            RejectionPolicy(RejectedExecutionHandler handler) {
+                this.handler = handler;
+            }
+        }
+
+        private final String name;
+        private final ThreadPoolExecutor executor;
+        private final LongAdder completedTasks = new LongAdder();
+        private final LongAdder totalLatencyNanos = new LongAdder();
+        private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+
+        /**
+         * @param name prefix of the thread names
+         * @param threads maximum number of threads
+         * @param queueCapacity maximum number of tasks waiting for a thread
+         * @param rejectionPolicy what to do with the tasks submitted when the queue is full
+         */
+        public TaskExecutor(String name, int threads, int queueCapacity, RejectionPolicy rejectionPolicy) {
+            this.name = name;
+            this.executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), namedThreadFactory(name), rejectionPolicy.handler);
+            this.executor.allowCoreThreadTimeOut(true);
+        }
+
+        private static ThreadFactory namedThreadFactory(String name) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            return runnable -> new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+        }
+
+        /**
+         * Run {@code task} on one of the threads, or apply the rejection policy if the queue is full.
+         *
+         * @param task the task
+         */
+        @Override
+        public void execute(Runnable task) {
+            long submitted = System.nanoTime();
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    long latency = System.nanoTime() - submitted;
+                    completedTasks.increment();
+                    totalLatencyNanos.add(latency);
+                    maxLatencyNanos.accumulate(latency);
+                }
+            });
+        }
+
+        /**
+         * @return number of tasks waiting for a thread
+         */
+        public int getQueueDepth() {
+            return executor.getQueue().size();
+        }
+
+        /**
+         * @return approximate number of threads running a task
+         */
+        public int getActiveThreads() {
+            return executor.getActiveCount();
+        }
+
+        public long getCompletedTasks() {
+            return completedTasks.sum();
+        }
+
+        /**
+         * @return average time from submission to the end of a task, in nanoseconds
+         */
+        public double getAverageLatencyNanos() {
+            long completed = completedTasks.sum();
+            return completed > 0 ? (double) totalLatencyNanos.sum() / completed : 0.0;
+        }
+
+        /**
+         * @return longest time from submission to the end of a task, in nanoseconds
+         */
+        public long getMaxLatencyNanos() {
+            return maxLatencyNanos.get();
+        }
+
+        /**
+         * Stop accepting tasks; the submitted ones still run.
+         */
+        public void shutdown() {
+            executor.shutdown();
+        }
+
+        /**
+         * @param timeout how long to wait
+         * @param unit unit of {@code timeout}
+         * @return true if all the tasks finished, false if the timeout elapsed first
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return executor.awaitTermination(timeout, unit);
+        }
+
+        /**
+         * {@link #shutdown()} and wait for the submitted tasks to finish.
+         */
+        @Override
+        public void close() {
+            shutdown();
+            try {
+                while (!awaitTermination(1, TimeUnit.MINUTES)) {
+                    // keep waiting, like ExecutorService.close() in later JDKs
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("TaskExecutor{name='%s', queueDepth=%d, activeThreads=%d, completedTasks=%d, " +
+                            "averageLatency=%.1f us, maxLatency=%.1f us}",
+                    name, getQueueDepth(), getActiveThreads(), getCompletedTasks(),
+                    getAverageLatencyNanos() / 1_000, getMaxLatencyNanos() / 1_000.0);
+        }
+    }
 }
@@ -150,6 +150,8 @@ public class Recipe_2_1_Consumers {
      List&#60;String&#62; collected = Stream.of("aa", "bb", "cc")
                 .peek(System.out::println).collect(Collectors.toList());
      * </pre>
+     *
+     * @see chapter_3_Streams.Recipe_3_5_Debugging_Streams_with_peek#usingPipelineMetrics() counting the elements instead of printing them
      */
     protected static void usePeek() {
         List<String> collected = Stream.of("aa", "bb", "cc").peek(System.out::println).collect(Collectors.toList());
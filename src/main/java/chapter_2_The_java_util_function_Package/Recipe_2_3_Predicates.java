@@ -2,11 +2,19 @@ package chapter_2_The_java_util_function_Package;
 
 import org.junit.Assert;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * <h1>(2.3.) Recipe_2_3_Predicates</h1>
@@ -35,6 +43,10 @@ import java.util.stream.Collectors;
  *                 {@link #useCompositePredicate()}
  *                 - use composite Predicate
  *             </li>
+ *             <li>
+ *                 {@link #useAdaptiveCompositePredicate()}
+ *                 - use a composite Predicate that reorders its clauses at runtime ({@link AdaptivePredicate})
+ *             </li>
  *        </ul>
  *     </li>
  * </ol>
@@ -87,6 +99,10 @@ public class Recipe_2_3_Predicates {
         // *** Use Composite Predicate ***
         useCompositePredicate();
 
+        System.out.println();
+        // *** Use Adaptive Composite Predicate ***
+        useAdaptiveCompositePredicate();
+
         System.out.println();
         // *** All Matches in a Stream ***
         allMatchesInAStream();
@@ -171,6 +187,68 @@ public class Recipe_2_3_Predicates {
         Assert.assertEquals(1, count);
     }
 
+    /**
+     * &#9674;&#9674;&#9674; <b>Use Adaptive Composite Predicate</b> &#9674;&#9674;&#9674;
+     *
+     * <br>
+     * Every {@code and} / {@code or} / {@code negate} on a {@link Predicate} wraps the previous one in a new lambda, and
+     * the clauses are always evaluated in the order in which the code was written.
+     * <br>
+     * {@link AdaptivePredicate} builds the same tree, then flattens it into n-ary AND / OR nodes (pushing the negations
+     * down to the clauses) and measures, for every clause, how often it is true and how long it takes (on a sample of
+     * the calls). Every few thousand evaluations the clauses given to {@code allOf} / {@code anyOf} are reordered so
+     * that the cheap clauses that decide the result (false for AND, true for OR) run first.
+     *
+     * <pre>
+     * {@code
+     * AdaptivePredicate<String> lengthFive = AdaptivePredicate.clause("length five", LENGTH_FIVE);
+     * AdaptivePredicate<String> startsWithS = AdaptivePredicate.clause("starts with s", STARTS_WITH_S);
+     *
+     * AdaptivePredicate<String> predicate = AdaptivePredicate.allOf(lengthFive, startsWithS.negate());
+     * long count = strings.stream().filter(predicate).count();
+     *
+     * System.out.println(predicate);                 // current evaluation order
+     * predicate.getStatistics().forEach(System.out::println); // per-clause hit counters
+     * }
+     * </pre>
+     *
+     * As the clauses of {@code allOf} / {@code anyOf} are evaluated in any order, they must not have side effects, and
+     * none may rely on another one having been tested before it. A guard goes before the clauses it protects with
+     * {@code and} / {@code or}, which are never reordered:
+     * {@code nonNull.and(AdaptivePredicate.allOf(longerThanThree, startsWithS))}.
+     */
+    protected static void useAdaptiveCompositePredicate() {
+        System.out.println("\n*** Use Adaptive Composite Predicate ***");
+
+        List<String> strings = IntStream.range(0, 100_000)
+                .mapToObj(i -> Integer.toString(i * 20, 36))
+                .collect(Collectors.toList());
+
+        AdaptivePredicate<String> lengthFive = AdaptivePredicate.clause("length five", LENGTH_FIVE);
+        AdaptivePredicate<String> startsWithS = AdaptivePredicate.clause("starts with s", STARTS_WITH_S);
+        AdaptivePredicate<String> containsZ = AdaptivePredicate.clause("contains z", s -> s.indexOf('z') >= 0);
+
+        AdaptivePredicate<String> predicate = AdaptivePredicate.allOf(
+                AdaptivePredicate.anyOf(lengthFive.negate(), startsWithS), containsZ.negate());
+
+        Predicate<String> expected = LENGTH_FIVE.negate().or(STARTS_WITH_S).and(s -> s.indexOf('z') < 0);
+        long count = strings.parallelStream().filter(predicate).count();
+        Assert.assertEquals(strings.stream().filter(expected).count(), count);
+
+        System.out.println(count + " matches for " + predicate);
+        predicate.getStatistics().forEach(System.out::println);
+
+        // and() is never reordered: the guard always runs first
+        List<String> withNulls = new ArrayList<>(strings);
+        withNulls.replaceAll(s -> s.startsWith("1") ? null : s);
+        AdaptivePredicate<String> guarded = AdaptivePredicate.<String>clause("non null", Objects::nonNull)
+                .and(predicate);
+
+        long guardedCount = withNulls.parallelStream().filter(guarded).count();
+        Assert.assertEquals(withNulls.stream().filter(s -> s != null && expected.test(s)).count(), guardedCount);
+        System.out.println(guardedCount + " matches for " + guarded);
+    }
+
     /**
      * &#9674;&#9674;&#9674; <b>All Matches in a Stream</b> &#9674;&#9674;&#9674;
      *
@@ -232,4 +310,462 @@ public class Recipe_2_3_Predicates {
         }
 
     }
+
+    /**
+     * Composite {@link Predicate} that flattens its tree of clauses into n-ary AND / OR nodes and reorders at runtime
+     * the clauses of the nodes built with {@link #allOf(Predicate[])} and {@link #anyOf(Predicate[])}.
+     *
+     * <br>
+     * For each clause (see {@link #clause(String, Predicate)}) it counts the evaluations and the hits (the clause was
+     * true) and samples the evaluation time on one call in {@value #SAMPLE_RATE}. Every {@value #REORDER_INTERVAL}
+     * evaluations of an {@code allOf} / {@code anyOf} node, its clauses are sorted by
+     * {@code cost / probability to decide}: for AND the probability to be false, for OR the probability to be true.
+     *
+     * <br><br>
+     * {@link #and(Predicate)} and {@link #or(Predicate)} keep the contract of {@link Predicate}: {@code other} is
+     * evaluated after this predicate, and only if this one doesn't decide the result, so a clause can guard the next
+     * one ({@code nonNull.and(longerThan3)}). The clauses given to {@code allOf} / {@code anyOf} are evaluated in any
+     * order: they must not have side effects, nor guard one another.
+     *
+     * <br><br>
+     * Safe to use from several threads (e.g. in a parallel stream): the counters are {@link LongAdder}s and
+     * {@link AtomicInteger}s, and a new order is published by replacing the node's array of clauses.
+     *
+     * @param <T> the type of the input to the predicate
+     */
+    protected static class AdaptivePredicate<T> implements Predicate<T> {
+        /** One evaluation in {@code SAMPLE_RATE} is timed. */
+        public static final int SAMPLE_RATE = 64;
+        /** Evaluations of an {@code allOf} / {@code anyOf} node between two reorderings of its clauses (a power of 2). */
+        public static final int REORDER_INTERVAL = 4096;
+
+        private final Node<T> tree;
+        private volatile Evaluator<T> evaluator;
+
+        private AdaptivePredicate(Node<T> tree) {
+            this.tree = tree;
+        }
+
+        /**
+         * A named clause. Reusing the same clause in several predicates shares its statistics.
+         *
+         * @param name name used in {@link #toString()} and {@link #getStatistics()}
+         * @param predicate the clause
+         * @param <T> the type of the input to the predicate
+         * @return the clause as an {@link AdaptivePredicate}
+         */
+        public static <T> AdaptivePredicate<T> clause(String name, Predicate<? super T> predicate) {
+            return new AdaptivePredicate<>(new Clause<>(name, predicate));
+        }
+
+        /**
+         * @param predicates the clauses, evaluated in the order that decides the result the fastest; a predicate that
+         *                   isn't an {@link AdaptivePredicate} is named after its {@code toString()}, or
+         *                   {@code "clause n"} (its position in declaration order) for a lambda
+         * @param <T> the type of the input to the predicate
+         * @return a predicate true if all of {@code predicates} are true
+         */
+        @SafeVarargs
+        public static <T> AdaptivePredicate<T> allOf(Predicate<? super T>... predicates) {
+            List<Predicate<? super T>> clauses = new ArrayList<>(predicates.length);
+            for (Predicate<? super T> predicate : predicates) {
+                clauses.add(predicate);
+            }
+            return new AdaptivePredicate<>(new Junction<>(true, true, nodesOf(clauses)));
+        }
+
+        /**
+         * @param predicates the clauses, evaluated in the order that decides the result the fastest; a predicate that
+         *                   isn't an {@link AdaptivePredicate} is named after its {@code toString()}, or
+         *                   {@code "clause n"} (its position in declaration order) for a lambda
+         * @param <T> the type of the input to the predicate
+         * @return a predicate true if any of {@code predicates} is true
+         */
+        @SafeVarargs
+        public static <T> AdaptivePredicate<T> anyOf(Predicate<? super T>... predicates) {
+            List<Predicate<? super T>> clauses = new ArrayList<>(predicates.length);
+            for (Predicate<? super T> predicate : predicates) {
+                clauses.add(predicate);
+            }
+            return new AdaptivePredicate<>(new Junction<>(false, true, nodesOf(clauses)));
+        }
+
+        /**
+         * Like {@link Predicate#and(Predicate)}: {@code other} is evaluated after this predicate, and only if this one
+         * is true. The two are never reordered.
+         *
+         * @param other a predicate; if it isn't an {@link AdaptivePredicate}, it is named after its {@code toString()},
+         *              or {@code "clause n"} (its position in declaration order) for a lambda
+         * @return a predicate true if this predicate and {@code other} are true
+         */
+        @Override
+        public AdaptivePredicate<T> and(Predicate<? super T> other) {
+            return new AdaptivePredicate<>(new Junction<>(true, false, nodesOf(Arrays.asList(this, other))));
+        }
+
+        /**
+         * Like {@link Predicate#or(Predicate)}: {@code other} is evaluated after this predicate, and only if this one
+         * is false. The two are never reordered.
+         *
+         * @param other a predicate; if it isn't an {@link AdaptivePredicate}, it is named after its {@code toString()},
+         *              or {@code "clause n"} (its position in declaration order) for a lambda
+         * @return a predicate true if this predicate or {@code other} is true
+         */
+        @Override
+        public AdaptivePredicate<T> or(Predicate<? super T> other) {
+            return new AdaptivePredicate<>(new Junction<>(false, false, nodesOf(Arrays.asList(this, other))));
+        }
+
+        @Override
+        public AdaptivePredicate<T> negate() {
+            return new AdaptivePredicate<>(new Not<>(tree));
+        }
+
+        @Override
+        public boolean test(T t) {
+            Evaluator<T> e = evaluator;
+            if (e == null) {
+                e = evaluator = compile(tree, false, new IdentityHashMap<>());
+            }
+            return e.test(t);
+        }
+
+        /**
+         * @return evaluations, hits and sampled average time of every clause, in declaration order
+         */
+        public List<ClauseStatistics> getStatistics() {
+            List<Clause<T>> clauses = new ArrayList<>();
+            collectClauses(tree, clauses);
+            return clauses.stream()
+                    .distinct()
+                    .map(clause -> new ClauseStatistics(clause.name, clause.stats))
+                    .collect(Collectors.toList());
+        }
+
+        /**
+         * @return the flattened predicate, with the clauses in their current evaluation order
+         */
+        @Override
+        public String toString() {
+            Evaluator<T> e = evaluator;
+            return e != null ? e.toString() : compile(tree, false, new IdentityHashMap<>()).toString();
+        }
+
+        /**
+         * The trees of the {@link AdaptivePredicate}s and a new clause for each other predicate, named after its
+         * position among all the clauses if it has no {@code toString()} of its own.
+         */
+        @SuppressWarnings("unchecked")
+        private static <T> List<Node<T>> nodesOf(List<? extends Predicate<? super T>> predicates) {
+            List<Node<T>> nodes = new ArrayList<>(predicates.size());
+            int position = 1;
+            for (Predicate<? super T> predicate : predicates) {
+                Node<T> node;
+                if (predicate instanceof AdaptivePredicate) {
+                    // Nodes only consume T, so a Node<? super T> can be used as a Node<T>
+                    node = ((AdaptivePredicate<T>) predicate).tree;
+                    List<Clause<T>> clauses = new ArrayList<>();
+                    collectClauses(node, clauses);
+                    position += (int) clauses.stream().distinct().count();
+                } else {
+                    node = new Clause<>(hasOwnToString(predicate) ? predicate.toString() : "clause " + position,
+                            predicate);
+                    position++;
+                }
+                nodes.add(node);
+            }
+            return nodes;
+        }
+
+        /** {@code false} for lambdas and method references, whose {@code toString()} is a synthetic class name. */
+        private static boolean hasOwnToString(Object object) {
+            try {
+                return object.getClass().getMethod("toString").getDeclaringClass() != Object.class;
+            } catch (NoSuchMethodException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        private static <T> void collectClauses(Node<T> node, List<Clause<T>> clauses) {
+            if (node instanceof Clause) {
+                clauses.add((Clause<T>) node);
+            } else if (node instanceof Not) {
+                collectClauses(((Not<T>) node).node, clauses);
+            } else {
+                ((Junction<T>) node).nodes.forEach(child -> collectClauses(child, clauses));
+            }
+        }
+
+        /**
+         * Flatten {@code node}: negations are pushed down to the clauses (De Morgan) and nested nodes of the same kind
+         * are merged into their parent.
+         */
+        private static <T> Evaluator<T> compile(Node<T> node, boolean negated,
+                                                Map<Clause<T>, Evaluator<T>> leaves) {
+            if (node instanceof Clause) {
+                Evaluator<T> leaf = leaves.computeIfAbsent((Clause<T>) node, ClauseEvaluator::new);
+                return negated ? new NegatedEvaluator<>(leaf) : leaf;
+            }
+            if (node instanceof Not) {
+                return compile(((Not<T>) node).node, !negated, leaves);
+            }
+
+            Junction<T> junction = (Junction<T>) node;
+            boolean all = junction.all != negated;
+            List<Evaluator<T>> children = new ArrayList<>();
+            for (Node<T> child : junction.nodes) {
+                Evaluator<T> evaluator = compile(child, negated, leaves);
+                if (evaluator instanceof JunctionEvaluator && ((JunctionEvaluator<T>) evaluator).all == all
+                        && ((JunctionEvaluator<T>) evaluator).adaptive == junction.adaptive) {
+                    // (a && b) && c is a && b && c, but a && b must not be reordered with the clauses of an allOf
+                    children.addAll(Arrays.asList(((JunctionEvaluator<T>) evaluator).order));
+                } else {
+                    children.add(evaluator);
+                }
+            }
+            return children.size() == 1 ? children.get(0)
+                    : new JunctionEvaluator<>(all, junction.adaptive, children);
+        }
+
+        /** The tree as written: clauses, AND / OR and NOT. */
+        private interface Node<T> {
+        }
+
+        private static final class Clause<T> implements Node<T> {
+            private final String name;
+            private final Predicate<? super T> predicate;
+            private final Stats stats = new Stats();
+
+            private Clause(String name, Predicate<? super T> predicate) {
+                this.name = name;
+                this.predicate = predicate;
+            }
+        }
+
+        private static final class Not<T> implements Node<T> {
+            private final Node<T> node;
+
+            private Not(Node<T> node) {
+                this.node = node;
+            }
+        }
+
+        private static final class Junction<T> implements Node<T> {
+            private final boolean all;
+            /** {@code true} for {@code allOf} / {@code anyOf}, {@code false} for {@code and} / {@code or}. */
+            private final boolean adaptive;
+            private final List<Node<T>> nodes;
+
+            private Junction(boolean all, boolean adaptive, List<Node<T>> nodes) {
+                this.all = all;
+                this.adaptive = adaptive;
+                this.nodes = nodes;
+            }
+        }
+
+        /** Hits, evaluations and sampled evaluation time. */
+        private static final class Stats {
+            private final LongAdder evaluations = new LongAdder();
+            private final LongAdder hits = new LongAdder();
+            private final LongAdder samples = new LongAdder();
+            private final LongAdder sampledNanos = new LongAdder();
+
+            private double hitRate() {
+                long n = evaluations.sum();
+                return n == 0 ? 0.5 : (double) hits.sum() / n;
+            }
+
+            private double averageNanos() {
+                long n = samples.sum();
+                return n == 0 ? 0 : (double) sampledNanos.sum() / n;
+            }
+        }
+
+        /** The flattened tree, evaluated by {@link #test(Object)}. */
+        private abstract static class Evaluator<T> {
+            final Stats stats;
+
+            Evaluator(Stats stats) {
+                this.stats = stats;
+            }
+
+            abstract boolean evaluate(T t);
+
+            boolean test(T t) {
+                boolean result;
+                if ((ThreadLocalRandom.current().nextInt() & (SAMPLE_RATE - 1)) == 0) {
+                    long start = System.nanoTime();
+                    result = evaluate(t);
+                    stats.sampledNanos.add(System.nanoTime() - start);
+                    stats.samples.increment();
+                } else {
+                    result = evaluate(t);
+                }
+
+                stats.evaluations.increment();
+                if (result) stats.hits.increment();
+                return result;
+            }
+
+            double passRate() {
+                return stats.hitRate();
+            }
+
+            double cost() {
+                return stats.averageNanos();
+            }
+        }
+
+        private static final class ClauseEvaluator<T> extends Evaluator<T> {
+            private final Clause<T> clause;
+
+            private ClauseEvaluator(Clause<T> clause) {
+                super(clause.stats);
+                this.clause = clause;
+            }
+
+            @Override
+            boolean evaluate(T t) {
+                return clause.predicate.test(t);
+            }
+
+            @Override
+            public String toString() {
+                return clause.name;
+            }
+        }
+
+        private static final class NegatedEvaluator<T> extends Evaluator<T> {
+            private final Evaluator<T> evaluator;
+
+            private NegatedEvaluator(Evaluator<T> evaluator) {
+                super(evaluator.stats);
+                this.evaluator = evaluator;
+            }
+
+            @Override
+            boolean test(T t) {
+                // the statistics are recorded by the negated evaluator
+                return !evaluator.test(t);
+            }
+
+            @Override
+            boolean evaluate(T t) {
+                return !evaluator.evaluate(t);
+            }
+
+            @Override
+            double passRate() {
+                return 1 - evaluator.passRate();
+            }
+
+            @Override
+            public String toString() {
+                return "!" + evaluator;
+            }
+        }
+
+        private static final class JunctionEvaluator<T> extends Evaluator<T> {
+            private final boolean all;
+            private final boolean adaptive;
+            private volatile Evaluator<T>[] order;
+            /** Evaluations, wrapping around: the one that reaches a multiple of {@code REORDER_INTERVAL} reorders. */
+            private final AtomicInteger evaluations = new AtomicInteger();
+
+            private JunctionEvaluator(boolean all, boolean adaptive, List<Evaluator<T>> children) {
+                super(new Stats());
+                this.all = all;
+                this.adaptive = adaptive;
+                this.order = children.toArray(newArray(children.size()));
+            }
+
+            @SuppressWarnings("unchecked")
+            private static <T> Evaluator<T>[] newArray(int length) {
+                return (Evaluator<T>[]) new Evaluator<?>[length];
+            }
+
+            @Override
+            boolean evaluate(T t) {
+                if (adaptive && (evaluations.incrementAndGet() & (REORDER_INTERVAL - 1)) == 0) {
+                    reorder();
+                }
+
+                // AND stops at the first false, OR at the first true
+                for (Evaluator<T> child : order) {
+                    if (child.test(t) != all) return !all;
+                }
+                return all;
+            }
+
+            private void reorder() {
+                Evaluator<T>[] reordered = order.clone();
+                Arrays.sort(reordered, Comparator.comparingDouble(this::rank));
+                order = reordered;
+            }
+
+            /** Expected cost until the child decides the result: lower runs first. */
+            private double rank(Evaluator<T> child) {
+                double decides = all ? 1 - child.passRate() : child.passRate();
+                return child.cost() / Math.max(decides, 1e-3);
+            }
+
+            /** {@code AND} / {@code OR} between reordered clauses, {@code &&} / {@code ||} between the others. */
+            @Override
+            public String toString() {
+                String operator = adaptive ? (all ? " AND " : " OR ") : (all ? " && " : " || ");
+                return Arrays.stream(order)
+                        .map(Object::toString)
+                        .collect(Collectors.joining(operator, "(", ")"));
+            }
+        }
+
+        /**
+         * Statistics of one clause, read when {@link #getStatistics()} is called.
+         */
+        public static final class ClauseStatistics {
+            private final String name;
+            private final long evaluations;
+            private final long hits;
+            private final double averageNanos;
+
+            private ClauseStatistics(String name, Stats stats) {
+                this.name = name;
+                this.evaluations = stats.evaluations.sum();
+                this.hits = stats.hits.sum();
+                this.averageNanos = stats.averageNanos();
+            }
+
+            public String getName() {
+                return name;
+            }
+
+            public long getEvaluations() {
+                return evaluations;
+            }
+
+            /**
+             * @return number of evaluations where the clause (without any negation applied to it) was true
+             */
+            public long getHits() {
+                return hits;
+            }
+
+            /**
+             * @return sampled average evaluation time, in nanoseconds
+             */
+            public double getAverageNanos() {
+                return averageNanos;
+            }
+
+            @Override
+            public String toString() {
+                return "ClauseStatistics{" +
+                        "name='" + name + '\'' +
+                        ", evaluations=" + evaluations +
+                        ", hits=" + hits +
+                        ", averageNanos=" + String.format("%.1f", averageNanos) +
+                        '}';
+            }
+        }
+    }
 }
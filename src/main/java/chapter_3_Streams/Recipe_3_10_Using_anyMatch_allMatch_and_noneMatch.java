@@ -1,4 +1,350 @@
 package chapter_3_Streams;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * <h1>(3.10.) Using anyMatch, allMatch and noneMatch</h1>
+ * <br>
+ *
+ * <ol>
+ *     <li><h2>TO DO</h2>
+ *         - determine if any element in a stream matches a {@link Predicate}, or if all do, or if none do
+ *     </li>
+ *
+ *     <li><h2>HOW</h2>
+ *         - use the {@code anyMatch}, {@code allMatch} and {@code noneMatch} methods on {@link Stream}, each of which
+ *         returns a boolean
+ *     </li>
+ *
+ *     <li><h2>EQ.</h2>
+ *         <ul>
+ *             <li>
+ *                 {@link #checkingForPrimes()}
+ *                 - prime numbers with {@code noneMatch}
+ *             </li>
+ *             <li>
+ *                 {@link #matchingOnEmptyStreams()}
+ *                 - the results on an empty stream
+ *             </li>
+ *             <li>
+ *                 {@link #cancellingParallelMatches()}
+ *                 - parallel matching that stops every chunk once the answer is known ({@link CancellingMatchers})
+ *             </li>
+ *        </ul>
+ *     </li>
+ * </ol>
+ *
+ * <br>
+ * The three methods are short-circuiting: they stop processing as soon as the answer is known. On a parallel stream,
+ * the JDK cancels the chunks that haven't started yet, but the chunks already running go on to their end.
+ *
+ * @see chapter_2_The_java_util_function_Package.Recipe_2_3_Predicates predicates
+ */
 public class Recipe_3_10_Using_anyMatch_allMatch_and_noneMatch {
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Running methods for this specific sub-chapter</b> &#9674;&#9674;&#9674;
+     *
+     * @param args not important
+     */
+    public static void main(String[] args) {
+        System.out.println("Chapter 3 - 3.10. Using anyMatch, allMatch and noneMatch");
+
+
+        System.out.println();
+        // *** Checking for Primes ***
+        checkingForPrimes();
+
+        System.out.println();
+        // *** Matching on Empty Streams ***
+        matchingOnEmptyStreams();
+
+        System.out.println();
+        // *** Cancelling Parallel Matches ***
+        cancellingParallelMatches();
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Checking for Primes</b> &#9674;&#9674;&#9674;
+     *
+     * <pre>
+     * {@code
+     * public static boolean isPrime(int num) {
+     *     int limit = (int) (Math.sqrt(num) + 1);
+     *     return num == 2 || num > 1 && IntStream.range(2, limit)
+     *                                            .noneMatch(divisor -> num % divisor == 0);
+     * }
+     * }
+     * </pre>
+     */
+    protected static void checkingForPrimes() {
+        System.out.println("\n*** Checking for Primes ***");
+
+        int[] primes = IntStream.rangeClosed(1, 50).filter(Recipe_3_10_Using_anyMatch_allMatch_and_noneMatch::isPrime)
+                .toArray();
+        System.out.println("primes up to 50: " + Arrays.toString(primes));
+        System.out.println("isPrime(1_000_000_007): " + isPrime(1_000_000_007));
+        System.out.println("isPrime(1_000_000_011): " + isPrime(1_000_000_011));
+    }
+
+    protected static boolean isPrime(int num) {
+        int limit = (int) (Math.sqrt(num) + 1);
+        return num == 2 || num > 1 && IntStream.range(2, limit)
+                .noneMatch(divisor -> num % divisor == 0);
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Matching on Empty Streams</b> &#9674;&#9674;&#9674;
+     *
+     * <pre>
+     * {@code
+     * Stream.empty().allMatch(s -> false);  // true
+     * Stream.empty().anyMatch(s -> true);   // false
+     * Stream.empty().noneMatch(s -> true);  // true
+     * }
+     * </pre>
+     *
+     * On an empty stream, {@code allMatch} and {@code noneMatch} are vacuously true and {@code anyMatch} is false,
+     * whatever the predicate.
+     */
+    protected static void matchingOnEmptyStreams() {
+        System.out.println("\n*** Matching on Empty Streams ***");
+
+        System.out.println("allMatch(s -> false): " + Stream.empty().allMatch(s -> false));
+        System.out.println("anyMatch(s -> true): " + Stream.empty().anyMatch(s -> true));
+        System.out.println("noneMatch(s -> true): " + Stream.empty().noneMatch(s -> true));
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Cancelling Parallel Matches</b> &#9674;&#9674;&#9674;
+     *
+     * <pre>
+     * {@code
+     * List<Integer> records = ...; // one negative record
+     *
+     * boolean jdk = records.parallelStream().anyMatch(record -> record < 0);
+     * boolean cancelling = CancellingMatchers.anyMatch(records.parallelStream(), record -> record < 0);
+     * }
+     * </pre>
+     *
+     * The predicate counts its calls: once the negative record is found, the other running chunks of the JDK version
+     * still test their remaining records, the cancelling version stops them.
+     */
+    protected static void cancellingParallelMatches() {
+        System.out.println("\n*** Cancelling Parallel Matches ***");
+
+        int size = 4_000_000;
+        List<Integer> records = new ArrayList<>(Collections.nCopies(size, 1));
+        records.set(size / 8, -1);
+
+        LongAdder tested = new LongAdder();
+        AtomicLong testedBeforeMatch = new AtomicLong();
+        Predicate<Integer> negative = record -> {
+            tested.increment();
+            if (record < 0) {
+                testedBeforeMatch.set(tested.sum());
+                return true;
+            }
+            return false;
+        };
+
+        boolean jdk = records.parallelStream().anyMatch(negative);
+        long jdkAfterMatch = tested.sumThenReset() - testedBeforeMatch.get();
+        boolean cancelling = CancellingMatchers.anyMatch(records.parallelStream(), negative);
+        long cancellingAfterMatch = tested.sumThenReset() - testedBeforeMatch.get();
+        assertEquals(jdk, cancelling);
+        System.out.println("anyMatch: " + cancelling + ", records tested after the match: JDK " + jdkAfterMatch
+                + ", cancelling " + cancellingAfterMatch);
+
+        assertEquals(records.parallelStream().allMatch(record -> record > 0),
+                CancellingMatchers.allMatch(records.parallelStream(), record -> record > 0));
+        assertEquals(records.parallelStream().noneMatch(record -> record > 1),
+                CancellingMatchers.noneMatch(records.parallelStream(), record -> record > 1));
+        System.out.println("allMatch(record > 0): " + CancellingMatchers.allMatch(records.parallelStream(),
+                record -> record > 0));
+        System.out.println("noneMatch(record > 1): " + CancellingMatchers.noneMatch(records.parallelStream(),
+                record -> record > 1));
+    }
+
+    /**
+     * {@code anyMatch}, {@code allMatch} and {@code noneMatch} for parallel streams where a decision stops all the
+     * work at once.
+     *
+     * <br>
+     * The three are the same search: an element for which the predicate is {@code true} ({@code anyMatch},
+     * {@code noneMatch}) or {@code false} ({@code allMatch}) decides the answer. The stream's spliterator is split on
+     * the common {@link ForkJoinPool} into about four chunks per worker, like the JDK does, and every chunk polls a
+     * shared volatile {@code decided} flag every {@link #POLL_INTERVAL} elements: once a chunk finds the deciding
+     * element, the others stop within a few elements instead of finishing their chunk, and the chunks not started
+     * yet don't start. Sequential streams are scanned in the calling thread.
+     */
+    protected static final class CancellingMatchers {
+        /** Elements tested between two reads of the shared flag. */
+        private static final int POLL_INTERVAL = 64;
+        /** Smallest chunk worth a separate task. */
+        private static final int MIN_CHUNK = 1 << 10;
+
+        private CancellingMatchers() {
+        }
+
+        /**
+         * @param stream the stream; consumed
+         * @param predicate the predicate, stateless and non-interfering
+         * @param <T> the type of the elements
+         * @return true if an element matches the predicate
+         */
+        public static <T> boolean anyMatch(Stream<T> stream, Predicate<? super T> predicate) {
+            return search(stream, predicate, true);
+        }
+
+        /**
+         * @param stream the stream; consumed
+         * @param predicate the predicate, stateless and non-interfering
+         * @param <T> the type of the elements
+         * @return true if all the elements match the predicate, or the stream is empty
+         */
+        public static <T> boolean allMatch(Stream<T> stream, Predicate<? super T> predicate) {
+            return !search(stream, predicate, false);
+        }
+
+        /**
+         * @param stream the stream; consumed
+         * @param predicate the predicate, stateless and non-interfering
+         * @param <T> the type of the elements
+         * @return true if no element matches the predicate, or the stream is empty
+         */
+        public static <T> boolean noneMatch(Stream<T> stream, Predicate<? super T> predicate) {
+            return !search(stream, predicate, true);
+        }
+
+        /**
+         * @return true if an element gives {@code decidingValue} for the predicate
+         */
+        private static <T> boolean search(Stream<T> stream, Predicate<? super T> predicate, boolean decidingValue) {
+            Objects.requireNonNull(predicate);
+            Search<T> search = new Search<>(predicate, decidingValue);
+            Spliterator<T> spliterator = stream.spliterator();
+            if (stream.isParallel()) {
+                long size = spliterator.estimateSize();
+                long chunk = Math.max(MIN_CHUNK, size / (4 * ForkJoinPool.getCommonPoolParallelism()));
+                ForkJoinPool.commonPool().invoke(new ChunkTask<>(search, spliterator, chunk));
+            } else {
+                search.scan(spliterator);
+            }
+            return search.decided;
+        }
+
+        /**
+         * State shared by all the chunks of one search.
+         */
+        private static final class Search<T> {
+            private final Predicate<? super T> predicate;
+            private final boolean decidingValue;
+            private volatile boolean decided;
+
+            private Search(Predicate<? super T> predicate, boolean decidingValue) {
+                this.predicate = predicate;
+                this.decidingValue = decidingValue;
+            }
+
+            /** Tests the elements of a chunk until one decides or another chunk has decided. */
+            void scan(Spliterator<T> chunk) {
+                Tester<T> tester = new Tester<>(predicate, decidingValue);
+                try {
+                    while (!decided) {
+                        for (int i = 0; i < POLL_INTERVAL; i++) {
+                            if (!chunk.tryAdvance(tester)) {
+                                return;
+                            }
+                            if (tester.found) {
+                                decided = true;
+                                return;
+                            }
+                        }
+                    }
+                } catch (RuntimeException | Error e) {
+                    // the search fails: the other chunks have nothing left to do
+                    decided = true;
+                    throw e;
+                }
+            }
+        }
+
+        /** Per-chunk consumer, so that the predicate's result is read without a shared write. */
+        private static final class Tester<T> implements Consumer<T> {
+            private final Predicate<? super T> predicate;
+            private final boolean decidingValue;
+            private boolean found;
+
+            private Tester(Predicate<? super T> predicate, boolean decidingValue) {
+                this.predicate = predicate;
+                this.decidingValue = decidingValue;
+            }
+
+            @Override
+            public void accept(T element) {
+                found = predicate.test(element) == decidingValue;
+            }
+        }
+
+        /**
+         * Splits down to {@code chunk} elements, forking the prefix and the suffix in turn (like the JDK's tasks, so
+         * that the chunks are scanned in a comparable order), then scans what remains; the forked tasks check the
+         * flag before splitting and scanning.
+         */
+        private static final class ChunkTask<T> extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+
+            private final Search<T> search;
+            private final Spliterator<T> spliterator;
+            private final long chunk;
+
+            private ChunkTask(Search<T> search, Spliterator<T> spliterator, long chunk) {
+                this.search = search;
+                this.spliterator = spliterator;
+                this.chunk = chunk;
+            }
+
+            @Override
+            protected void compute() {
+                Spliterator<T> rest = spliterator;
+                List<ChunkTask<T>> forked = new ArrayList<>();
+
+                boolean forkSuffix = false;
+                Spliterator<T> prefix;
+                while (!search.decided && rest.estimateSize() > chunk && (prefix = rest.trySplit()) != null) {
+                    Spliterator<T> other = prefix;
+                    if (forkSuffix) {
+                        other = rest;
+                        rest = prefix;
+                    }
+                    forkSuffix = !forkSuffix;
+                    ChunkTask<T> task = new ChunkTask<>(search, other, chunk);
+                    task.fork();
+                    forked.add(task);
+                }
+
+                search.scan(rest);
+
+                for (ChunkTask<T> task : forked) {
+                    task.join();
+                }
+            }
+        }
+    }
 }
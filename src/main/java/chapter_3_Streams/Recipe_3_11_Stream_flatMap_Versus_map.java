@@ -1,4 +1,548 @@
 package chapter_3_Streams;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * <h1>(3.11.) Stream flatMap Versus map</h1>
+ * <br>
+ *
+ * <ol>
+ *     <li><h2>TO DO</h2>
+ *         - you have a stream and you need to transform the elements in some way, but you're not sure whether to use
+ *         {@code map} or {@code flatMap}
+ *     </li>
+ *
+ *     <li><h2>HOW</h2>
+ *         - use {@code map} if each element is transformed into a single value; use {@code flatMap} if each element
+ *         will be transformed to multiple values and the resulting stream needs to be "flattened"
+ *     </li>
+ *
+ *     <li><h2>EQ.</h2>
+ *         <ul>
+ *             <li>
+ *                 {@link #flatMapVersusMap()}
+ *                 - customers and their orders with {@code map} and {@code flatMap}
+ *             </li>
+ *             <li>
+ *                 {@link #mappingToManyWithoutStreams()}
+ *                 - the same results without a stream per element ({@link MultiMapping})
+ *             </li>
+ *        </ul>
+ *     </li>
+ * </ol>
+ *
+ * <br>
+ * {@code flatMap} takes a {@code Function<? super T, ? extends Stream<? extends R>>}: each element becomes a whole
+ * stream (a pipeline object, its spliterator, often an array), even when it holds zero or one element, as with
+ * {@code optional.map(Stream::of).orElseGet(Stream::empty)}. Java 16 adds {@code mapMulti}, where the function pushes
+ * its results to a consumer instead; {@link MultiMapping} brings it to Java 8 streams.
+ *
+ * @see chapter_6_The_Optional_Type.Recipe_6_4_Optional_flatMap_Versus_map flatMap method on Optionals
+ * @see chapter_6_The_Optional_Type.Recipe_6_5_Mapping_Optionals flatMap of Optionals in a stream
+ */
 public class Recipe_3_11_Stream_flatMap_Versus_map {
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Running methods for this specific sub-chapter</b> &#9674;&#9674;&#9674;
+     *
+     * @param args not important
+     */
+    public static void main(String[] args) {
+        System.out.println("Chapter 3 - 3.11. Stream flatMap Versus map");
+
+
+        System.out.println();
+        // *** flatMap Versus map ***
+        flatMapVersusMap();
+
+        System.out.println();
+        // *** Mapping to Many without Streams ***
+        mappingToManyWithoutStreams();
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>flatMap Versus map</b> &#9674;&#9674;&#9674;
+     *
+     * <pre>
+     * {@code
+     * customers.stream()
+     *          .map(Customer::getName) // Stream<String>
+     *          .forEach(System.out::println);
+     *
+     * customers.stream()
+     *          .map(Customer::getOrders) // Stream<List<Order>>
+     *          .forEach(System.out::println);
+     *
+     * customers.stream()
+     *          .map(customer -> customer.getOrders().stream()) // Stream<Stream<Order>>
+     *          .forEach(System.out::println);
+     *
+     * customers.stream()
+     *          .flatMap(customer -> customer.getOrders().stream()) // Stream<Order>
+     *          .forEach(System.out::println);
+     * }
+     * </pre>
+     */
+    protected static void flatMapVersusMap() {
+        System.out.println("\n*** flatMap Versus map ***");
+        List<Customer> customers = customers();
+
+        System.out.println("map(Customer::getName):");
+        customers.stream()
+                .map(Customer::getName) // Stream<String>
+                .forEach(name -> System.out.println("\t" + name));
+
+        System.out.println("map(Customer::getOrders):");
+        customers.stream()
+                .map(Customer::getOrders) // Stream<List<Order>>
+                .forEach(orders -> System.out.println("\t" + orders));
+
+        System.out.println("map(customer -> customer.getOrders().stream()):");
+        customers.stream()
+                .map(customer -> customer.getOrders().stream()) // Stream<Stream<Order>>
+                .forEach(orders -> System.out.println("\t" + orders));
+
+        System.out.println("flatMap(customer -> customer.getOrders().stream()):");
+        customers.stream()
+                .flatMap(customer -> customer.getOrders().stream()) // Stream<Order>
+                .forEach(order -> System.out.println("\t" + order));
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Mapping to Many without Streams</b> &#9674;&#9674;&#9674;
+     *
+     * <pre>
+     * {@code
+     * Stream<Order> orders = MultiMapping.mapMulti(customers.stream(),
+     *         (customer, downstream) -> customer.getOrders().forEach(downstream));
+     *
+     * // instead of flatMap(optional -> optional.map(Stream::of).orElseGet(Stream::empty))
+     * Stream<Order> firstOrders = MultiMapping.mapMulti(optionals.stream(), Optional::ifPresent);
+     *
+     * int total = MultiMapping.mapMultiToInt(customers.stream(),
+     *         (customer, downstream) -> customer.getOrders().forEach(order -> downstream.accept(order.getId())))
+     *         .sum();
+     * }
+     * </pre>
+     */
+    protected static void mappingToManyWithoutStreams() {
+        System.out.println("\n*** Mapping to Many without Streams ***");
+        List<Customer> customers = customers();
+
+        Stream<Order> orders = MultiMapping.mapMulti(customers.stream(),
+                (customer, downstream) -> customer.getOrders().forEach(downstream));
+        List<Order> allOrders = orders.collect(Collectors.toList());
+        assertEquals(customers.stream().flatMap(customer -> customer.getOrders().stream())
+                .collect(Collectors.toList()), allOrders);
+        System.out.println("mapMulti(getOrders().forEach(downstream)): " + allOrders);
+
+        List<Optional<Order>> optionals = customers.stream()
+                .map(customer -> customer.getOrders().stream().findFirst())
+                .collect(Collectors.toList());
+        Stream<Order> firstOrders = MultiMapping.mapMulti(optionals.stream(), Optional::ifPresent);
+        System.out.println("mapMulti(Optional::ifPresent): " + firstOrders.collect(Collectors.toList()));
+
+        Stream<String> nameParts = MultiMapping.mapMulti(Stream.of("John Sheridan", "Susan Ivanova", "Garibaldi"),
+                (name, downstream) -> {
+                    int start = 0;
+                    for (int space = name.indexOf(' '); space >= 0; space = name.indexOf(' ', start)) {
+                        downstream.accept(name.substring(start, space));
+                        start = space + 1;
+                    }
+                    downstream.accept(name.substring(start));
+                });
+        System.out.println("mapMulti(name parts): " + nameParts.collect(Collectors.toList()));
+
+        int total = MultiMapping.mapMultiToInt(customers.stream().parallel(),
+                (customer, downstream) -> customer.getOrders().forEach(order -> downstream.accept(order.getId())))
+                .sum();
+        assertEquals(15, total);
+        System.out.println("mapMultiToInt(order ids), parallel sum: " + total);
+    }
+
+    private static List<Customer> customers() {
+        Customer sheridan = new Customer("Sheridan");
+        Customer ivanova = new Customer("Ivanova");
+        Customer garibaldi = new Customer("Garibaldi");
+
+        sheridan.addOrder(new Order(1))
+                .addOrder(new Order(2))
+                .addOrder(new Order(3));
+        ivanova.addOrder(new Order(4))
+                .addOrder(new Order(5));
+
+        return Arrays.asList(sheridan, ivanova, garibaldi);
+    }
+
+    /**
+     * Customer with a name and a list of orders.
+     */
+    protected static final class Customer {
+        private final String name;
+        private final List<Order> orders = new ArrayList<>();
+
+        public Customer(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<Order> getOrders() {
+            return orders;
+        }
+
+        public Customer addOrder(Order order) {
+            orders.add(order);
+            return this;
+        }
+    }
+
+    /**
+     * Order with an id.
+     */
+    protected static final class Order {
+        private final int id;
+
+        public Order(int id) {
+            this.id = id;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        @Override
+        public String toString() {
+            return "Order{" +
+                    "id=" + id +
+                    '}';
+        }
+    }
+
+    /**
+     * One-to-many mapping of a stream, where the mapper pushes zero or more results to a consumer instead of
+     * returning a stream: the Java 16 {@code mapMulti}, {@code mapMultiToInt}, {@code mapMultiToLong} and
+     * {@code mapMultiToDouble} for Java 8 streams.
+     * <ul>
+     *     <li>
+     *         traversal ({@code forEach}, {@code collect}, {@code reduce}, ...): the consumer given to the mapper is
+     *         the next stage of the pipeline itself, nothing is allocated per element
+     *     </li>
+     *     <li>
+     *         short-circuiting operations ({@code findFirst}, {@code anyMatch}, {@code limit}, ...): the results of
+     *         one source element are buffered in an array reused for the whole traversal
+     *     </li>
+     *     <li>
+     *         parallel streams: the source is split as it would be without the mapping
+     *     </li>
+     * </ul>
+     * The resulting stream is parallel if the source is, keeps its encounter order and closing it closes the source.
+     * Like with {@code mapMulti}, the mapper must not keep the consumer after it returns.
+     */
+    protected static final class MultiMapping {
+        private MultiMapping() {
+        }
+
+        /**
+         * @param stream the source stream
+         * @param mapper pushes the results of an element to the consumer
+         * @param <T> the type of the elements of the source
+         * @param <R> the type of the results
+         * @return a stream of the results of all the elements
+         */
+        public static <T, R> Stream<R> mapMulti(Stream<T> stream, BiConsumer<? super T, ? super Consumer<R>> mapper) {
+            Objects.requireNonNull(mapper);
+            return StreamSupport.stream(new ToRef<>(stream.spliterator(), mapper), stream.isParallel())
+                    .onClose(stream::close);
+        }
+
+        /**
+         * @param stream the source stream
+         * @param mapper pushes the results of an element to the consumer
+         * @param <T> the type of the elements of the source
+         * @return a stream of the results of all the elements
+         */
+        public static <T> IntStream mapMultiToInt(Stream<T> stream, BiConsumer<? super T, ? super IntConsumer> mapper) {
+            Objects.requireNonNull(mapper);
+            return StreamSupport.intStream(new ToInt<>(stream.spliterator(), mapper), stream.isParallel())
+                    .onClose(stream::close);
+        }
+
+        /**
+         * @param stream the source stream
+         * @param mapper pushes the results of an element to the consumer
+         * @param <T> the type of the elements of the source
+         * @return a stream of the results of all the elements
+         */
+        public static <T> LongStream mapMultiToLong(Stream<T> stream,
+                                                    BiConsumer<? super T, ? super LongConsumer> mapper) {
+            Objects.requireNonNull(mapper);
+            return StreamSupport.longStream(new ToLong<>(stream.spliterator(), mapper), stream.isParallel())
+                    .onClose(stream::close);
+        }
+
+        /**
+         * @param stream the source stream
+         * @param mapper pushes the results of an element to the consumer
+         * @param <T> the type of the elements of the source
+         * @return a stream of the results of all the elements
+         */
+        public static <T> DoubleStream mapMultiToDouble(Stream<T> stream,
+                                                        BiConsumer<? super T, ? super DoubleConsumer> mapper) {
+            Objects.requireNonNull(mapper);
+            return StreamSupport.doubleStream(new ToDouble<>(stream.spliterator(), mapper), stream.isParallel())
+                    .onClose(stream::close);
+        }
+
+        /**
+         * Source side of the spliterators: as a {@link Consumer} of the source, it maps an element into the buffer
+         * {@code [head, tail)} of the subclass.
+         */
+        private abstract static class MultiSpliterator<T> implements Consumer<T> {
+            final Spliterator<T> source;
+            int head;
+            int tail;
+
+            MultiSpliterator(Spliterator<T> source) {
+                this.source = source;
+            }
+
+            /** Maps source elements until the buffer isn't empty: false when the source is exhausted. */
+            final boolean fill() {
+                while (head == tail) {
+                    head = 0;
+                    tail = 0;
+                    if (!source.tryAdvance(this)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            /** The source can't be split once its elements are being buffered. */
+            final Spliterator<T> trySplitSource() {
+                return head == tail ? source.trySplit() : null;
+            }
+
+            /** The number of results is unknown: the number of source elements drives the parallel splitting. */
+            public long estimateSize() {
+                long size = source.estimateSize() + (tail - head);
+                return size < 0 ? Long.MAX_VALUE : size;
+            }
+
+            public int characteristics() {
+                return source.characteristics() & Spliterator.ORDERED;
+            }
+        }
+
+        private static final class ToRef<T, R> extends MultiSpliterator<T> implements Spliterator<R> {
+            private final BiConsumer<? super T, ? super Consumer<R>> mapper;
+            private final Consumer<R> buffer = this::push;
+            private Object[] results = new Object[8];
+
+            ToRef(Spliterator<T> source, BiConsumer<? super T, ? super Consumer<R>> mapper) {
+                super(source);
+                this.mapper = mapper;
+            }
+
+            @Override
+            public void accept(T element) {
+                mapper.accept(element, buffer);
+            }
+
+            private void push(R result) {
+                if (tail == results.length) {
+                    results = Arrays.copyOf(results, tail * 2);
+                }
+                results[tail++] = result;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public boolean tryAdvance(Consumer<? super R> action) {
+                if (!fill()) {
+                    return false;
+                }
+                R result = (R) results[head];
+                results[head++] = null;
+                action.accept(result);
+                return true;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void forEachRemaining(Consumer<? super R> action) {
+                while (head < tail) {
+                    tryAdvance(action);
+                }
+                // the mapper only passes R values to its consumer
+                Consumer<R> downstream = (Consumer<R>) action;
+                source.forEachRemaining(element -> mapper.accept(element, downstream));
+            }
+
+            @Override
+            public Spliterator<R> trySplit() {
+                Spliterator<T> prefix = trySplitSource();
+                return prefix == null ? null : new ToRef<>(prefix, mapper);
+            }
+        }
+
+        private static final class ToInt<T> extends MultiSpliterator<T> implements Spliterator.OfInt {
+            private final BiConsumer<? super T, ? super IntConsumer> mapper;
+            private final IntConsumer buffer = this::push;
+            private int[] results = new int[8];
+
+            ToInt(Spliterator<T> source, BiConsumer<? super T, ? super IntConsumer> mapper) {
+                super(source);
+                this.mapper = mapper;
+            }
+
+            @Override
+            public void accept(T element) {
+                mapper.accept(element, buffer);
+            }
+
+            private void push(int result) {
+                if (tail == results.length) {
+                    results = Arrays.copyOf(results, tail * 2);
+                }
+                results[tail++] = result;
+            }
+
+            @Override
+            public boolean tryAdvance(IntConsumer action) {
+                if (!fill()) {
+                    return false;
+                }
+                action.accept(results[head++]);
+                return true;
+            }
+
+            @Override
+            public void forEachRemaining(IntConsumer action) {
+                while (head < tail) {
+                    action.accept(results[head++]);
+                }
+                source.forEachRemaining(element -> mapper.accept(element, action));
+            }
+
+            @Override
+            public Spliterator.OfInt trySplit() {
+                Spliterator<T> prefix = trySplitSource();
+                return prefix == null ? null : new ToInt<>(prefix, mapper);
+            }
+        }
+
+        private static final class ToLong<T> extends MultiSpliterator<T> implements Spliterator.OfLong {
+            private final BiConsumer<? super T, ? super LongConsumer> mapper;
+            private final LongConsumer buffer = this::push;
+            private long[] results = new long[8];
+
+            ToLong(Spliterator<T> source, BiConsumer<? super T, ? super LongConsumer> mapper) {
+                super(source);
+                this.mapper = mapper;
+            }
+
+            @Override
+            public void accept(T element) {
+                mapper.accept(element, buffer);
+            }
+
+            private void push(long result) {
+                if (tail == results.length) {
+                    results = Arrays.copyOf(results, tail * 2);
+                }
+                results[tail++] = result;
+            }
+
+            @Override
+            public boolean tryAdvance(LongConsumer action) {
+                if (!fill()) {
+                    return false;
+                }
+                action.accept(results[head++]);
+                return true;
+            }
+
+            @Override
+            public void forEachRemaining(LongConsumer action) {
+                while (head < tail) {
+                    action.accept(results[head++]);
+                }
+                source.forEachRemaining(element -> mapper.accept(element, action));
+            }
+
+            @Override
+            public Spliterator.OfLong trySplit() {
+                Spliterator<T> prefix = trySplitSource();
+                return prefix == null ? null : new ToLong<>(prefix, mapper);
+            }
+        }
+
+        private static final class ToDouble<T> extends MultiSpliterator<T> implements Spliterator.OfDouble {
+            private final BiConsumer<? super T, ? super DoubleConsumer> mapper;
+            private final DoubleConsumer buffer = this::push;
+            private double[] results = new double[8];
+
+            ToDouble(Spliterator<T> source, BiConsumer<? super T, ? super DoubleConsumer> mapper) {
+                super(source);
+                this.mapper = mapper;
+            }
+
+            @Override
+            public void accept(T element) {
+                mapper.accept(element, buffer);
+            }
+
+            private void push(double result) {
+                if (tail == results.length) {
+                    results = Arrays.copyOf(results, tail * 2);
+                }
+                results[tail++] = result;
+            }
+
+            @Override
+            public boolean tryAdvance(DoubleConsumer action) {
+                if (!fill()) {
+                    return false;
+                }
+                action.accept(results[head++]);
+                return true;
+            }
+
+            @Override
+            public void forEachRemaining(DoubleConsumer action) {
+                while (head < tail) {
+                    action.accept(results[head++]);
+                }
+                source.forEachRemaining(element -> mapper.accept(element, action));
+            }
+
+            @Override
+            public Spliterator.OfDouble trySplit() {
+                Spliterator<T> prefix = trySplitSource();
+                return prefix == null ? null : new ToDouble<>(prefix, mapper);
+            }
+        }
+    }
 }
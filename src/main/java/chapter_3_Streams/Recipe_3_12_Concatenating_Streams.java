@@ -1,4 +1,360 @@
 package chapter_3_Streams;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * <h1>(3.12.) Concatenating Streams</h1>
+ * <br>
+ *
+ * <ol>
+ *     <li><h2>TO DO</h2>
+ *         - combine two or more streams into a single one
+ *     </li>
+ *
+ *     <li><h2>HOW</h2>
+ *         - the {@code concat} method on {@link Stream} works for two streams; for more, {@code flatMap} of the streams
+ *         with {@link Function#identity()}
+ *     </li>
+ *
+ *     <li><h2>EQ.</h2>
+ *         <ul>
+ *             <li>
+ *                 {@link #concatenatingStreams()}
+ *                 - {@code Stream.concat}, nested {@code concat} and {@code flatMap}
+ *             </li>
+ *             <li>
+ *                 {@link #concatenatingManyStreams()}
+ *                 - concatenating thousands of streams with a balanced tree of spliterators
+ *                 ({@link ConcatenatedStreams})
+ *             </li>
+ *        </ul>
+ *     </li>
+ * </ol>
+ *
+ * <br>
+ * {@code Stream.concat} builds a lazy stream over the two streams: concatenating many streams one after the other
+ * (with {@code reduce(Stream::concat)}) builds a chain as deep as the number of streams, which overflows the stack
+ * when traversed (the {@code Stream.concat} documentation warns about it). {@code flatMap} doesn't, but it loses the
+ * size of the result, and a parallel {@code flatMap} can't split inside the streams, only between them.
+ */
 public class Recipe_3_12_Concatenating_Streams {
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Running methods for this specific sub-chapter</b> &#9674;&#9674;&#9674;
+     *
+     * @param args not important
+     */
+    public static void main(String[] args) {
+        System.out.println("Chapter 3 - 3.12. Concatenating Streams");
+
+
+        System.out.println();
+        // *** Concatenating Streams ***
+        concatenatingStreams();
+
+        System.out.println();
+        // *** Concatenating Many Streams ***
+        concatenatingManyStreams();
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Concatenating Streams</b> &#9674;&#9674;&#9674;
+     *
+     * <pre>
+     * {@code
+     * Stream<String> first = Stream.of("a", "b", "c").parallel();
+     * Stream<String> second = Stream.of("X", "Y", "Z");
+     * List<String> strings = Stream.concat(first, second).collect(Collectors.toList());
+     *
+     * Stream<String> total = Stream.concat(Stream.concat(first, second), third);
+     * Stream<String> reduced = Stream.of(first, second, third).reduce(Stream.empty(), Stream::concat);
+     * Stream<String> flatMapped = Stream.of(first, second, third).flatMap(Function.identity());
+     * }
+     * </pre>
+     */
+    protected static void concatenatingStreams() {
+        System.out.println("\n*** Concatenating Streams ***");
+
+        Stream<String> first = Stream.of("a", "b", "c").parallel();
+        Stream<String> second = Stream.of("X", "Y", "Z");
+        Stream<String> both = Stream.concat(first, second);
+        System.out.println("concat: " + both.isParallel() + " parallel, " + both.collect(Collectors.toList()));
+
+        Stream<String> nested = Stream.concat(Stream.concat(Stream.of("a", "b"), Stream.of("c", "d")),
+                Stream.of("e", "f"));
+        System.out.println("nested concat: " + nested.collect(Collectors.toList()));
+
+        Stream<String> reduced = Stream.of(Stream.of("a", "b"), Stream.of("c", "d"), Stream.of("e", "f"))
+                .reduce(Stream.empty(), Stream::concat);
+        System.out.println("reduce(Stream::concat): " + reduced.collect(Collectors.toList()));
+
+        Stream<String> flatMapped = Stream.of(Stream.of("a", "b"), Stream.of("c", "d"), Stream.of("e", "f"))
+                .flatMap(Function.identity());
+        System.out.println("flatMap(identity): " + flatMapped.collect(Collectors.toList()));
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Concatenating Many Streams</b> &#9674;&#9674;&#9674;
+     *
+     * <pre>
+     * {@code
+     * List<Stream<Integer>> streams = IntStream.range(0, 10_000)
+     *                                          .mapToObj(i -> IntStream.range(i * 100, (i + 1) * 100).boxed())
+     *                                          .collect(Collectors.toList());
+     * long sum = ConcatenatedStreams.concatAll(streams).parallel().mapToLong(i -> i).sum();
+     *
+     * // 100000 streams: StackOverflowError
+     * Stream<Integer> chain = singletons.stream().reduce(Stream.empty(), Stream::concat);
+     * }
+     * </pre>
+     */
+    protected static void concatenatingManyStreams() {
+        System.out.println("\n*** Concatenating Many Streams ***");
+
+        Stream<Integer> all = ConcatenatedStreams.concatAll(manyStreams());
+        Spliterator<Integer> spliterator = all.spliterator();
+        System.out.println("10000 streams: SIZED " + spliterator.hasCharacteristics(Spliterator.SIZED)
+                + ", " + spliterator.getExactSizeIfKnown() + " elements");
+
+        long sum = ConcatenatedStreams.concatAll(manyStreams()).parallel().mapToLong(i -> i).sum();
+        assertEquals(999_999L * 1_000_000L / 2, sum);
+        System.out.println("parallel sum: " + sum);
+
+        Integer[] array = ConcatenatedStreams.concatAll(manyStreams()).parallel().toArray(Integer[]::new);
+        assertEquals(999_999, (int) array[999_999]);
+        System.out.println("toArray: " + array.length + " elements, in order");
+
+        List<Stream<Integer>> singletons = IntStream.range(0, 100_000).mapToObj(Stream::of).collect(Collectors.toList());
+        try {
+            long count = singletons.stream().reduce(Stream.empty(), Stream::concat).filter(i -> i % 2 == 0).count();
+            System.out.println("100000 streams, reduce(Stream::concat): " + count + " even elements");
+        } catch (StackOverflowError e) {
+            System.out.println("100000 streams, reduce(Stream::concat): StackOverflowError");
+        }
+        singletons = IntStream.range(0, 100_000).mapToObj(Stream::of).collect(Collectors.toList());
+        long count = ConcatenatedStreams.concatAll(singletons).filter(i -> i % 2 == 0).count();
+        assertEquals(50_000L, count);
+        System.out.println("100000 streams, concatAll: " + count + " even elements");
+    }
+
+    private static List<Stream<Integer>> manyStreams() {
+        return IntStream.range(0, 10_000)
+                .mapToObj(i -> IntStream.range(i * 100, (i + 1) * 100).boxed())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Concatenation of any number of streams into one stream, over a balanced tree of their spliterators instead of
+     * the chain of nested {@code Stream.concat}s.
+     * <ul>
+     *     <li>
+     *         traversal: one loop over the parts, no recursion, whatever the number of streams
+     *     </li>
+     *     <li>
+     *         splitting: the parts are split in two halves of (about) the same number of elements, down to a single
+     *         part, which is then split by its own spliterator; a parallel stream gets balanced tasks
+     *     </li>
+     *     <li>
+     *         characteristics: like {@code Stream.concat}, those common to all the parts except {@code DISTINCT},
+     *         {@code SORTED} and {@code CONCURRENT} (which can't be combined with {@code IMMUTABLE} when there is no
+     *         part); {@code SIZED} (and {@code SUBSIZED}) if all the parts are, so that {@code count()} and
+     *         {@code toArray()} know the size in advance
+     *     </li>
+     * </ul>
+     * The result is parallel if any of the streams is, and closing it closes all of them.
+     */
+    protected static final class ConcatenatedStreams {
+        private ConcatenatedStreams() {
+        }
+
+        /**
+         * @param streams the streams to concatenate, in order
+         * @param <T> the type of the elements
+         * @return a stream of the elements of all the streams
+         */
+        @SafeVarargs
+        public static <T> Stream<T> concatAll(Stream<? extends T>... streams) {
+            List<Stream<? extends T>> parts = new ArrayList<>(streams.length);
+            for (Stream<? extends T> stream : streams) {
+                parts.add(stream);
+            }
+            return concatAll(parts);
+        }
+
+        /**
+         * @param streams the streams to concatenate, in iteration order
+         * @param <T> the type of the elements
+         * @return a stream of the elements of all the streams
+         */
+        public static <T> Stream<T> concatAll(Collection<? extends Stream<? extends T>> streams) {
+            List<Stream<? extends T>> parts = new ArrayList<>(streams);
+            boolean parallel = parts.stream().anyMatch(Stream::isParallel);
+            return StreamSupport.stream(new ConcatSpliterator<>(spliteratorsOf(parts)), parallel)
+                    .onClose(() -> closeAll(parts));
+        }
+
+        /**
+         * The spliterators of {@code streams}, typed as spliterators of {@code T}: a spliterator only hands elements
+         * out, so a spliterator of a subtype of {@code T} can be used as a spliterator of {@code T}.
+         */
+        @SuppressWarnings("unchecked")
+        private static <T> Spliterator<T>[] spliteratorsOf(List<Stream<? extends T>> streams) {
+            Spliterator<?>[] spliterators = new Spliterator<?>[streams.size()];
+            for (int i = 0; i < spliterators.length; i++) {
+                spliterators[i] = streams.get(i).spliterator();
+            }
+            return (Spliterator<T>[]) spliterators;
+        }
+
+        private static void closeAll(List<? extends Stream<?>> streams) {
+            RuntimeException failure = null;
+            for (Stream<?> stream : streams) {
+                try {
+                    stream.close();
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        /**
+         * Spliterator over {@code parts[next, end)}. When all the parts are {@code SIZED}, {@code sizes} holds the
+         * prefix sums of their sizes at creation, so that the size of a range of untouched parts and the middle of a
+         * range are found without visiting the parts.
+         */
+        private static final class ConcatSpliterator<T> implements Spliterator<T> {
+            private final Spliterator<T>[] parts;
+            private final long[] sizes;
+            private final int characteristics;
+            private final int end;
+            private int next;
+
+            private ConcatSpliterator(Spliterator<T>[] parts) {
+                this.parts = parts;
+                this.next = 0;
+                this.end = parts.length;
+
+                int common = ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+                long[] prefix = new long[parts.length + 1];
+                for (int i = 0; i < parts.length; i++) {
+                    common &= parts[i].characteristics();
+                    prefix[i + 1] = prefix[i] + parts[i].estimateSize();
+                    if (prefix[i + 1] < 0) {
+                        // more than Long.MAX_VALUE elements
+                        common &= ~(SIZED | SUBSIZED);
+                    }
+                }
+                if ((common & SIZED) == 0) {
+                    common &= ~SUBSIZED;
+                }
+                this.characteristics = common;
+                this.sizes = (common & SIZED) != 0 ? prefix : null;
+            }
+
+            private ConcatSpliterator(ConcatSpliterator<T> parent, int next, int end) {
+                this.parts = parent.parts;
+                this.sizes = parent.sizes;
+                this.characteristics = parent.characteristics;
+                this.next = next;
+                this.end = end;
+            }
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                while (next < end) {
+                    if (parts[next].tryAdvance(action)) {
+                        return true;
+                    }
+                    parts[next++] = null;
+                }
+                return false;
+            }
+
+            @Override
+            public void forEachRemaining(Consumer<? super T> action) {
+                for (; next < end; next++) {
+                    parts[next].forEachRemaining(action);
+                    parts[next] = null;
+                }
+            }
+
+            @Override
+            public Spliterator<T> trySplit() {
+                int count = end - next;
+                if (count == 0) {
+                    return null;
+                }
+                if (count == 1) {
+                    return parts[next].trySplit();
+                }
+
+                int middle = middle();
+                Spliterator<T> prefix = middle - next == 1
+                        ? parts[next]
+                        : new ConcatSpliterator<>(this, next, middle);
+                next = middle;
+                return prefix;
+            }
+
+            /** Index of the first part of the second half: as many elements on both sides, at least one part each. */
+            private int middle() {
+                if (sizes == null) {
+                    return next + (end - next) / 2;
+                }
+                long target = sizes[next + 1] - parts[next].estimateSize() + estimateSize() / 2;
+                int low = next + 1;
+                int high = end - 1;
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (sizes[mid] < target) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                return low;
+            }
+
+            @Override
+            public long estimateSize() {
+                if (next >= end) {
+                    return 0;
+                }
+                if (sizes != null) {
+                    return parts[next].estimateSize() + sizes[end] - sizes[next + 1];
+                }
+                long size = 0;
+                for (int i = next; i < end; i++) {
+                    size += parts[i].estimateSize();
+                    if (size < 0) {
+                        return Long.MAX_VALUE;
+                    }
+                }
+                return size;
+            }
+
+            @Override
+            public int characteristics() {
+                return characteristics;
+            }
+        }
+    }
 }
@@ -1,4 +1,516 @@
 package chapter_3_Streams;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.OptionalInt;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * <h1>(3.13.) Lazy Streams</h1>
+ * <br>
+ *
+ * <ol>
+ *     <li><h2>TO DO</h2>
+ *         - process only the minimum number of stream elements necessary to satisfy a condition
+ *     </li>
+ *
+ *     <li><h2>HOW</h2>
+ *         - streams are already lazy and do not process elements until a terminal condition is reached; then they
+ *         process each element individually, through the whole pipeline, and stop as soon as the result is known
+ *         (short-circuiting operations like {@code findFirst})
+ *     </li>
+ *
+ *     <li><h2>EQ.</h2>
+ *         <ul>
+ *             <li>
+ *                 {@link #processingOnlyAsMuchAsNeeded()}
+ *                 - only the elements up to the first match go through {@code map} and {@code filter}
+ *             </li>
+ *             <li>
+ *                 {@link #memoizingWithALazySeq()}
+ *                 - a lazy sequence that computes each element once, and can be traversed many times
+ *                 ({@link LazySeq})
+ *             </li>
+ *        </ul>
+ *     </li>
+ * </ol>
+ *
+ * <br>
+ * A stream can be traversed only once: {@code Stream.iterate(BigDecimal.ONE, n -> n.add(BigDecimal.ONE))} (recipe 3.1)
+ * computes its elements again for every new stream. A {@link LazySeq} is lazy like a stream, but keeps what it
+ * computed.
+ *
+ * @see Recipe_3_1_Creating_Streams#creatingAStreamUsingTheStreamIterateMethod()
+ */
 public class Recipe_3_13_Lazy_Streams {
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Running methods for this specific sub-chapter</b> &#9674;&#9674;&#9674;
+     *
+     * @param args not important
+     */
+    public static void main(String[] args) {
+        System.out.println("Chapter 3 - 3.13. Lazy Streams");
+
+
+        System.out.println();
+        // *** Processing Only as Much as Needed ***
+        processingOnlyAsMuchAsNeeded();
+
+        System.out.println();
+        // *** Memoizing with a LazySeq ***
+        memoizingWithALazySeq();
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Processing Only as Much as Needed</b> &#9674;&#9674;&#9674;
+     *
+     * <pre>
+     * {@code
+     * OptionalInt firstEvenDoubleDivBy3 = IntStream.range(100, 200)
+     *                                              .map(Recipe_3_13_Lazy_Streams::multByTwo)
+     *                                              .filter(Recipe_3_13_Lazy_Streams::divByThree)
+     *                                              .findFirst();
+     * }
+     * </pre>
+     *
+     * Only 100, 101 and 102 are doubled and tested, not the 100 numbers of the range.
+     */
+    protected static void processingOnlyAsMuchAsNeeded() {
+        System.out.println("\n*** Processing Only as Much as Needed ***");
+
+        OptionalInt firstEvenDoubleDivBy3 = IntStream.range(100, 200)
+                .map(Recipe_3_13_Lazy_Streams::multByTwo)
+                .filter(Recipe_3_13_Lazy_Streams::divByThree)
+                .findFirst();
+        System.out.println(firstEvenDoubleDivBy3);
+    }
+
+    private static int multByTwo(int n) {
+        System.out.printf("Inside multByTwo with arg %d%n", n);
+        return n * 2;
+    }
+
+    private static boolean divByThree(int n) {
+        System.out.printf("Inside divByThree with arg %d%n", n);
+        return n % 3 == 0;
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Memoizing with a LazySeq</b> &#9674;&#9674;&#9674;
+     *
+     * <pre>
+     * {@code
+     * LazySeq<BigDecimal> naturals = LazySeq.iterate(BigDecimal.ONE, n -> n.add(BigDecimal.ONE));
+     * LazySeq<BigDecimal> firstTen = naturals.take(10);
+     *
+     * List<BigDecimal> list = firstTen.stream().collect(Collectors.toList());       // computes the elements
+     * BigDecimal sum = firstTen.stream().reduce(BigDecimal.ZERO, BigDecimal::add); // computes nothing
+     *
+     * LazySeq<BigDecimal> evenSquares = naturals.map(n -> n.multiply(n))
+     *                                           .filter(n -> n.remainder(two).signum() == 0);
+     * BigDecimal third = evenSquares.drop(2).head();
+     * }
+     * </pre>
+     */
+    protected static void memoizingWithALazySeq() {
+        System.out.println("\n*** Memoizing with a LazySeq ***");
+
+        AtomicInteger computed = new AtomicInteger();
+        LazySeq<BigDecimal> naturals = LazySeq.iterate(BigDecimal.ONE, n -> {
+            computed.incrementAndGet();
+            return n.add(BigDecimal.ONE);
+        });
+        LazySeq<BigDecimal> firstTen = naturals.take(10);
+        System.out.println("created: " + naturals + ", " + computed.get() + " computed");
+
+        List<BigDecimal> list = firstTen.stream().collect(Collectors.toList());
+        BigDecimal sum = firstTen.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        System.out.println(list + ", sum " + sum + ", " + computed.get() + " computed");
+        assertEquals(9, computed.get());
+
+        BigDecimal two = BigDecimal.valueOf(2);
+        LazySeq<BigDecimal> evenSquares = naturals.map(n -> n.multiply(n))
+                .filter(n -> n.remainder(two).signum() == 0);
+        System.out.println("map and filter: " + evenSquares + ", " + computed.get() + " computed");
+        System.out.println("third even square: " + evenSquares.drop(2).head() + ", head: " + naturals.head()
+                + ", tail: " + naturals.tail().take(3).toList());
+
+        // several threads traverse the same sequence: every element is still computed once
+        List<CompletableFuture<BigDecimal>> sums = IntStream.range(0, 4)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() ->
+                        naturals.take(10_000).stream().reduce(BigDecimal.ZERO, BigDecimal::add)))
+                .collect(Collectors.toList());
+        sums.forEach(future -> assertEquals(BigDecimal.valueOf(50_005_000), future.join()));
+        System.out.println("4 threads, sum of 10000 naturals: " + sums.get(0).join() + ", " + computed.get()
+                + " computed");
+        assertEquals(9_999, computed.get());
+    }
+
+    /**
+     * Lazy, memoizing sequence: an element is computed the first time it is needed, then kept, so the sequence can be
+     * traversed many times (with {@link #iterator()} or {@link #stream()}), by several threads at the same time.
+     * <br>
+     * {@link #tail()}, {@link #take(int)} and {@link #drop(int)} are views on the same memoized elements, and
+     * {@link #map(Function)} and {@link #filter(Predicate)} return new sequences that compute their elements lazily
+     * (and once) from this one, none of them forcing any element.
+     * <br>
+     * The computed elements are kept in chunks of 64 slots (a little more than 4 bytes per element) rather than in a
+     * linked list of cells (16 to 24 bytes per element): after a traversal, the next ones read arrays. Computing is
+     * done under a lock, one element at a time (nothing is computed ahead), reading what is already computed is not.
+     * <br>
+     * Sequences hold at most {@link Integer#MAX_VALUE} elements.
+     *
+     * @param <T> the type of the elements ({@code null} is allowed)
+     */
+    protected static final class LazySeq<T> implements Iterable<T> {
+        private final Memo<T> memo;
+        private final int from;
+        private final int to;
+
+        private LazySeq(Memo<T> memo, int from, int to) {
+            this.memo = memo;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * @param source the elements, not traversed before they are needed, and then only once
+         * @param <T> the type of the elements
+         * @return a lazy sequence of the elements of {@code source}
+         */
+        public static <T> LazySeq<T> from(Iterator<? extends T> source) {
+            return new LazySeq<>(new Memo<>(source), 0, Integer.MAX_VALUE);
+        }
+
+        /**
+         * @param stream the elements, not traversed before they are needed
+         * @param <T> the type of the elements
+         * @return a lazy sequence of the elements of {@code stream}
+         */
+        public static <T> LazySeq<T> from(Stream<? extends T> stream) {
+            return from(stream.iterator());
+        }
+
+        /**
+         * @param elements the elements, copied: changing the array afterwards doesn't change the sequence
+         * @param <T> the type of the elements
+         * @return a sequence of the elements
+         */
+        @SafeVarargs
+        public static <T> LazySeq<T> of(T... elements) {
+            List<T> copy = new ArrayList<>(elements.length);
+            for (T element : elements) {
+                copy.add(element);
+            }
+            return from(copy.iterator());
+        }
+
+        /**
+         * Like {@link Stream#iterate(Object, UnaryOperator)}.
+         *
+         * @param seed the first element
+         * @param next the next element from the previous one
+         * @param <T> the type of the elements
+         * @return an infinite lazy sequence
+         */
+        public static <T> LazySeq<T> iterate(T seed, UnaryOperator<T> next) {
+            Objects.requireNonNull(next);
+            return from(new Iterator<T>() {
+                private T current;
+                private boolean started;
+
+                @Override
+                public boolean hasNext() {
+                    return true;
+                }
+
+                @Override
+                public T next() {
+                    current = started ? next.apply(current) : seed;
+                    started = true;
+                    return current;
+                }
+            });
+        }
+
+        /**
+         * Like {@link Stream#generate(Supplier)}.
+         *
+         * @param supplier the elements, one call per element
+         * @param <T> the type of the elements
+         * @return an infinite lazy sequence
+         */
+        public static <T> LazySeq<T> generate(Supplier<? extends T> supplier) {
+            Objects.requireNonNull(supplier);
+            return from(new Iterator<T>() {
+                @Override
+                public boolean hasNext() {
+                    return true;
+                }
+
+                @Override
+                public T next() {
+                    return supplier.get();
+                }
+            });
+        }
+
+        /**
+         * @return {@code true} if there is no element (computing the first one if needed)
+         */
+        public boolean isEmpty() {
+            return from >= to || !memo.has(from);
+        }
+
+        /**
+         * @return the first element (computing it if needed)
+         * @throws NoSuchElementException if the sequence is empty
+         */
+        public T head() {
+            if (isEmpty()) {
+                throw new NoSuchElementException("empty sequence");
+            }
+            return memo.get(from);
+        }
+
+        /**
+         * Like {@code drop(1)}: the tail of an empty sequence is empty.
+         *
+         * @return the sequence without its first element, without computing it
+         */
+        public LazySeq<T> tail() {
+            return drop(1);
+        }
+
+        /**
+         * @param index the index of the element
+         * @return the element at {@code index} (computing it, and the ones before, if needed)
+         * @throws IndexOutOfBoundsException if the sequence is shorter
+         */
+        public T get(int index) {
+            long position = (long) from + index;
+            if (index < 0 || position >= to || !memo.has((int) position)) {
+                throw new IndexOutOfBoundsException("Index: " + index);
+            }
+            return memo.get((int) position);
+        }
+
+        /**
+         * @param n the maximum number of elements
+         * @return the first {@code n} elements of this sequence, without computing them
+         */
+        public LazySeq<T> take(int n) {
+            if (n < 0) {
+                throw new IllegalArgumentException("negative count: " + n);
+            }
+            return new LazySeq<>(memo, from, (int) Math.min(to, (long) from + n));
+        }
+
+        /**
+         * @param n the number of elements to skip
+         * @return this sequence without its first {@code n} elements, without computing them
+         */
+        public LazySeq<T> drop(int n) {
+            if (n < 0) {
+                throw new IllegalArgumentException("negative count: " + n);
+            }
+            return new LazySeq<>(memo, (int) Math.min(to, (long) from + n), to);
+        }
+
+        /**
+         * @param mapper applied once to each element, when the mapped element is needed (if it throws, the element
+         *               isn't consumed: it is mapped again the next time it is needed)
+         * @param <R> the type of the mapped elements
+         * @return a lazy sequence of the mapped elements
+         */
+        public <R> LazySeq<R> map(Function<? super T, ? extends R> mapper) {
+            Objects.requireNonNull(mapper);
+            return from(new Iterator<R>() {
+                private int position = from;
+
+                @Override
+                public boolean hasNext() {
+                    return position < to && memo.has(position);
+                }
+
+                @Override
+                public R next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    R mapped = mapper.apply(memo.get(position));
+                    position++;
+                    return mapped;
+                }
+            });
+        }
+
+        /**
+         * @param predicate tested once on each element, when the next matching element is needed (if it throws, the
+         *                  element isn't consumed: it is tested again the next time it is needed)
+         * @return a lazy sequence of the elements matching {@code predicate}
+         */
+        public LazySeq<T> filter(Predicate<? super T> predicate) {
+            Objects.requireNonNull(predicate);
+            return from(new Iterator<T>() {
+                private int position = from;
+                private boolean found;
+
+                @Override
+                public boolean hasNext() {
+                    while (!found && position < to && memo.has(position)) {
+                        found = predicate.test(memo.get(position));
+                        if (!found) {
+                            position++;
+                        }
+                    }
+                    return found;
+                }
+
+                @Override
+                public T next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    found = false;
+                    return memo.get(position++);
+                }
+            });
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new Iterator<T>() {
+                private int next = from;
+
+                @Override
+                public boolean hasNext() {
+                    return next < to && memo.has(next);
+                }
+
+                @Override
+                public T next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return memo.get(next++);
+                }
+            };
+        }
+
+        /**
+         * @return a new sequential stream of the elements, computing them only if they aren't yet
+         */
+        public Stream<T> stream() {
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(),
+                    Spliterator.ORDERED | Spliterator.IMMUTABLE), false);
+        }
+
+        /**
+         * @return all the elements (never returns for an infinite sequence)
+         */
+        public List<T> toList() {
+            List<T> list = new ArrayList<>();
+            forEach(list::add);
+            return list;
+        }
+
+        /**
+         * @return the elements computed so far, without computing any
+         */
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("LazySeq[");
+            int end = Math.min(to, memo.computed());
+            for (int i = from; i < end; i++) {
+                builder.append(i > from ? ", " : "").append(memo.get(i));
+            }
+            boolean all = from >= to || end >= to || memo.isComplete() && end == memo.computed();
+            return builder.append(all ? "]" : end > from ? ", ...]" : "...]").toString();
+        }
+
+        /**
+         * The elements computed so far, in chunks of {@code CHUNK_SIZE}, and the source of the next ones.
+         * <br>
+         * The chunks are written under the lock of the memo, before the {@code volatile} {@code computed} count is
+         * incremented: a thread that reads the count sees all the elements before it, and doesn't lock.
+         */
+        private static final class Memo<T> {
+            private static final int CHUNK_BITS = 6;
+            private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+            private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+            /** Guarded by {@code this}, {@code null} once exhausted. */
+            private Iterator<? extends T> source;
+            private volatile Object[][] chunks = new Object[4][];
+            private volatile int computed;
+            private volatile boolean complete;
+
+            private Memo(Iterator<? extends T> source) {
+                this.source = Objects.requireNonNull(source);
+            }
+
+            private int computed() {
+                return computed;
+            }
+
+            private boolean isComplete() {
+                return complete;
+            }
+
+            /** @return {@code true} if the element at {@code index} exists, computing it and the previous ones if needed */
+            private boolean has(int index) {
+                return index < computed || compute(index);
+            }
+
+            private synchronized boolean compute(int index) {
+                while (computed <= index) {
+                    if (source == null || !source.hasNext()) {
+                        source = null;
+                        complete = true;
+                        return false;
+                    }
+                    T element = source.next();
+                    int n = computed;
+                    Object[][] directory = chunks;
+                    int chunk = n >>> CHUNK_BITS;
+                    if (chunk == directory.length) {
+                        directory = Arrays.copyOf(directory, directory.length * 2);
+                        chunks = directory;
+                    }
+                    if (directory[chunk] == null) {
+                        directory[chunk] = new Object[CHUNK_SIZE];
+                    }
+                    directory[chunk][n & CHUNK_MASK] = element;
+                    computed = n + 1;
+                }
+                return true;
+            }
+
+            /** The element at {@code index}, which {@link #has(int)} returned {@code true} for. */
+            @SuppressWarnings("unchecked")
+            private T get(int index) {
+                return (T) chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+            }
+        }
+    }
 }
@@ -1,6 +1,10 @@
 package chapter_3_Streams;
 
+import org.junit.Assert;
+
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -40,6 +44,10 @@ import java.util.stream.Stream;
  *                 {@link #accumulatingBooksIntoAMap()}
  *                 - accumulating books into a map
  *             </li>
+ *             <li>
+ *                 {@link #accumulatingBooksIntoABookIndex()}
+ *                 - accumulating books into a {@link BookIndex}, also on parallel streams
+ *             </li>
  *        </ul>
  *     </li>
  * </ol>
@@ -114,6 +122,10 @@ public class Recipe_3_3_Reduction_Operations_Using_Reduce {
         System.out.println();
         // *** Accumulating Books into a Map ***
         new Recipe_3_3_Reduction_Operations_Using_Reduce().accumulatingBooksIntoAMap();
+
+        System.out.println();
+        // *** Accumulating Books into a BookIndex ***
+        new Recipe_3_3_Reduction_Operations_Using_Reduce().accumulatingBooksIntoABookIndex();
     }
 
     /**
@@ -312,6 +324,220 @@ public class Recipe_3_3_Reduction_Operations_Using_Reduce {
         mapOfBooks.forEach((k, v) -> System.out.println(k + " : " + v));
     }
 
+    /**
+     * &#9674;&#9674;&#9674; <b>Accumulating Books into a BookIndex</b> &#9674;&#9674;&#9674;
+     *
+     * <br>
+     * {@link #accumulatingBooksIntoAMap()} uses one {@link HashMap} as the identity of {@code reduce}, so on a parallel
+     * stream all the threads write into the same (not thread safe) map. The identity of {@code reduce} must be
+     * immutable; mutable containers belong to {@code collect}, which creates one container per split and merges them.
+     *
+     * <br>
+     * {@link BookIndex#toBookIndex()} is such a {@link Collector}. The index is an open-addressing map from the primitive
+     * {@code int} id to the book: no {@link Integer} key and no {@code HashMap.Node} per entry.
+     *
+     * <pre>
+     * {@code
+     * BookIndex index = books.parallelStream().collect(BookIndex.toBookIndex());
+     *
+     * Book book = index.get(2);
+     * }
+     * </pre>
+     *
+     * Memory per entry for the 100 000 books of this demo, measured with {@code jmap -histo:live} (64-bit JVM with
+     * compressed references, books not included):
+     * <ul>
+     *     <li>
+     *         {@code HashMap<Integer, Book>}
+     *         - 32 bytes for the {@code Node} and 10.5 for the table slots (262 144 slots of 4 bytes): 42.5 bytes,
+     *         58.5 when the {@link Integer} key (16 bytes) isn't the one held by the book
+     *     </li>
+     *     <li>
+     *         {@link BookIndex}
+     *         - 4 bytes for the {@code int} key and 4 for the reference, in arrays of 262 144 slots: 21 bytes
+     *         (see {@link BookIndex#estimatedBytesPerEntry()}, between 16 and 32 bytes as the arrays are kept between
+     *         25% and 50% full)
+     *     </li>
+     * </ul>
+     */
+    protected void accumulatingBooksIntoABookIndex() {
+        System.out.println("\n*** Accumulating Books into a BookIndex ***");
+
+        List<Book> books = new ArrayList<>();
+        for (int i = 1; i <= 100_000; i++) {
+            books.add(new Book(i, "Title " + i));
+        }
+
+        BookIndex index = books.parallelStream().collect(BookIndex.toBookIndex());
+
+        System.out.println("size:  " + index.size());
+        System.out.println("42:    " + index.get(42));
+        System.out.println("bytes per entry: " + index.estimatedBytesPerEntry());
+        Assert.assertEquals(books.size(), index.size());
+        books.forEach(book -> Assert.assertSame(book, index.get(book.getId())));
+    }
+
+    /**
+     * Index of {@link Book} by id, stored in an open-addressing hash table with linear probing: the keys in an
+     * {@code int[]} and the books in a parallel {@code Book[]} (an empty slot has a {@code null} book).
+     *
+     * <br>
+     * Like {@link HashMap}, this class is not thread safe. Use {@link #toBookIndex()} to build it from a parallel stream:
+     * every split gets its own index and the indexes are merged at the end.
+     */
+    protected static class BookIndex {
+        private static final int MIN_CAPACITY = 16;
+        /** The largest power of 2 that is a valid array length: at most 2<sup>29</sup> books. */
+        private static final int MAX_CAPACITY = 1 << 30;
+
+        private int[] keys;
+        private Book[] values;
+        private int size;
+
+        public BookIndex() {
+            this(MIN_CAPACITY / 2);
+        }
+
+        /**
+         * @param expectedSize number of books that can be added without resizing
+         * @throws IllegalArgumentException if it is more than 2<sup>29</sup>
+         */
+        public BookIndex(int expectedSize) {
+            if (expectedSize > MAX_CAPACITY / 2) {
+                throw new IllegalArgumentException("too many books: " + expectedSize);
+            }
+            int capacity = MIN_CAPACITY;
+            while (capacity < 2 * expectedSize) {
+                capacity <<= 1;
+            }
+            keys = new int[capacity];
+            values = new Book[capacity];
+        }
+
+        /**
+         * {@link Collector} building a {@link BookIndex}, with one index per split on parallel streams. For duplicate
+         * ids the later book (in encounter order) wins, like with {@link Map#put(Object, Object)}.
+         *
+         * @return the {@link Collector}
+         */
+        public static Collector<Book, ?, BookIndex> toBookIndex() {
+            return Collector.of(BookIndex::new,
+                    BookIndex::add,
+                    BookIndex::merge,
+                    Collector.Characteristics.IDENTITY_FINISH);
+        }
+
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        private int slot(int key) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (values[i] != null && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        /**
+         * Add a book, replacing the book with the same id.
+         *
+         * @param book the book; its id must not be {@code null}
+         */
+        public void add(Book book) {
+            put(book.getId(), book);
+        }
+
+        /**
+         * @param id book's id
+         * @param book the book
+         * @return the previous book with this id, or {@code null}
+         */
+        public Book put(int id, Book book) {
+            Objects.requireNonNull(book, "book");
+
+            int i = slot(id);
+            Book previous = values[i];
+            keys[i] = id;
+            values[i] = book;
+            if (previous == null && ++size > keys.length / 2) {
+                if (keys.length == MAX_CAPACITY) {
+                    throw new IllegalStateException("too many books: the index has reached " + MAX_CAPACITY + " slots");
+                }
+                resize(keys.length << 1);
+            }
+            return previous;
+        }
+
+        /**
+         * @param id book's id
+         * @return the book with this id, or {@code null}
+         */
+        public Book get(int id) {
+            return values[slot(id)];
+        }
+
+        public boolean containsId(int id) {
+            return get(id) != null;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Call {@code action} for every (id, book) pair, in no particular order.
+         *
+         * @param action the action
+         */
+        public void forEach(BiConsumer<Integer, ? super Book> action) {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    action.accept(keys[i], values[i]);
+                }
+            }
+        }
+
+        /**
+         * Add all the books of {@code other} into this index; {@code other}'s books win for duplicate ids.
+         *
+         * @param other another index
+         * @return this index
+         */
+        public BookIndex merge(BookIndex other) {
+            for (int i = 0; i < other.values.length; i++) {
+                if (other.values[i] != null) {
+                    put(other.keys[i], other.values[i]);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * @return bytes used by the two arrays of the table divided by the number of books (compressed references)
+         */
+        public double estimatedBytesPerEntry() {
+            long bytes = 2L * (16 + 4L * keys.length);
+            return size > 0 ? (double) bytes / size : bytes;
+        }
+
+        private void resize(int capacity) {
+            int[] oldKeys = keys;
+            Book[] oldValues = values;
+            keys = new int[capacity];
+            values = new Book[capacity];
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != null) {
+                    int j = slot(oldKeys[i]);
+                    keys[j] = oldKeys[i];
+                    values[j] = oldValues[i];
+                }
+            }
+        }
+    }
+
     /**
      * Class used to show how to map the objects of type Book to objects with key = id of a book and value = the book itself
      *
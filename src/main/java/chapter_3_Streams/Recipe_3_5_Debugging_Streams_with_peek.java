@@ -1,6 +1,14 @@
 package chapter_3_Streams;
 
+import org.junit.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
 import java.util.stream.IntStream;
 
 /**
@@ -19,10 +27,12 @@ import java.util.stream.IntStream;
  *     <li><h2>EQ.</h2>
  *         <ul>
  *             <li>
- *
+ *                 {@link #usingThePeekMethod()}
+ *                 - print every element with peek()
  *             </li>
  *             <li>
- *
+ *                 {@link #usingPipelineMetrics()}
+ *                 - count the elements of every stage with {@link PipelineMetrics} instead of printing them
  *             </li>
  *        </ul>
  *     </li>
@@ -50,8 +60,25 @@ public class Recipe_3_5_Debugging_Streams_with_peek {
         System.out.println();
         // *** Using the peek() Method ***
         usingThePeekMethod();
+
+        System.out.println();
+        // *** Using PipelineMetrics ***
+        usingPipelineMetrics();
     }
 
+    /**
+     * &#9674;&#9674;&#9674; <b>Using the peek() Method</b> &#9674;&#9674;&#9674;
+     *
+     * <pre>
+     int sum = IntStream.rangeClosed(1, 6)
+            .peek(n -&#62; System.out.printf("  original: %d%n", n))
+            .map(n -&#62; n * 2)
+            .peek(n -&#62; System.out.printf("   doubled: %d%n", n))
+            .filter(n -&#62; n % 3 == 0)
+            .peek(n -&#62; System.out.printf("&#60;filtered&#62;: %d%n", n))
+            .sum();
+     * </pre>
+     */
     protected static void usingThePeekMethod() {
         int sum = IntStream.rangeClosed(1, 6)
                 .peek(n -> System.out.printf("  original: %d%n", n))
@@ -62,4 +89,228 @@ public class Recipe_3_5_Debugging_Streams_with_peek {
                 .sum();
 
     }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Using PipelineMetrics</b> &#9674;&#9674;&#9674;
+     *
+     * <br>
+     * Printing every element is fine for six numbers but not for production volumes: every {@code printf} takes the
+     * {@link java.io.PrintStream} lock, so a parallel pipeline ends up running one element at a time.
+     * <br>
+     * The stages of {@link PipelineMetrics} go in the same places as the {@code peek} calls, but they only count the
+     * elements (and time a sample of them) in counters owned by the current thread. The counters are added up when
+     * {@link PipelineMetrics#getStatistics()} is called, after the terminal operation.
+     *
+     * <pre>
+     PipelineMetrics metrics = new PipelineMetrics();
+
+     int sum = IntStream.rangeClosed(1, 1_000_000).parallel()
+            .peek(metrics.stage("original"))
+            .map(n -&#62; n * 2)
+            .peek(metrics.stage("doubled"))
+            .filter(n -&#62; n % 3 == 0)
+            .peek(metrics.stage("filtered"))
+            .sum();
+
+     metrics.getStatistics().forEach(System.out::println);
+     * </pre>
+     */
+    protected static void usingPipelineMetrics() {
+        System.out.println("\n*** Using PipelineMetrics ***");
+
+        PipelineMetrics metrics = new PipelineMetrics();
+
+        long sum = IntStream.rangeClosed(1, 1_000_000).parallel()
+                .peek(metrics.stage("original"))
+                .map(n -> n * 2)
+                .peek(metrics.stage("doubled"))
+                .filter(n -> n % 3 == 0)
+                .peek(metrics.stage("filtered"))
+                .asLongStream()
+                .sum();
+
+        System.out.println("sum: " + sum);
+        metrics.getStatistics().forEach(System.out::println);
+        Assert.assertEquals(333_333, metrics.getStatistics().get(2).getCount());
+    }
+
+    /**
+     * Per-stage counters for a stream pipeline, to be used with {@code peek}.
+     *
+     * <br>
+     * Every {@link Stage} counts the elements going through it in a counter owned by the current thread, so the
+     * pipeline threads never write to shared memory. One element in {@value #SAMPLE_RATE} (per thread) is timed from
+     * the first stage to every following stage it reaches.
+     *
+     * <br><br>
+     * The stages must be created in pipeline order. {@link #getStatistics()} adds up the counters of all the threads;
+     * the values are exact once the terminal operation has returned.
+     */
+    protected static class PipelineMetrics {
+        /** One element in {@code SAMPLE_RATE} is timed. */
+        public static final int SAMPLE_RATE = 1024;
+
+        private final List<Stage> stages = new ArrayList<>();
+        private final ThreadLocal<Sample> samples = ThreadLocal.withInitial(Sample::new);
+
+        /**
+         * Create the next stage of the pipeline.
+         *
+         * @param name name of the stage
+         * @return the stage, to be passed to {@code peek}
+         */
+        public synchronized Stage stage(String name) {
+            Stage stage = new Stage(name, stages.size());
+            stages.add(stage);
+            return stage;
+        }
+
+        /**
+         * @return count, selectivity and sampled latency of every stage, in pipeline order
+         */
+        public synchronized List<StageStatistics> getStatistics() {
+            List<StageStatistics> statistics = new ArrayList<>(stages.size());
+            long previousCount = -1;
+            for (Stage stage : stages) {
+                long count = 0;
+                long sampledNanos = 0;
+                long sampled = 0;
+                for (Counter counter : stage.counters) {
+                    count += counter.count;
+                    sampledNanos += counter.sampledNanos;
+                    sampled += counter.sampled;
+                }
+
+                double selectivity = previousCount > 0 ? (double) count / previousCount : 1.0;
+                double latency = sampled > 0 ? (double) sampledNanos / sampled : 0.0;
+                statistics.add(new StageStatistics(stage.name, count, selectivity, latency));
+                previousCount = count;
+            }
+            return statistics;
+        }
+
+        /** Timing of the sampled element on one thread. */
+        private static final class Sample {
+            private boolean active;
+            private int stage;
+            private long startNanos;
+        }
+
+        /** Counters of one stage on one thread. */
+        private static final class Counter {
+            private final Sample sample;
+            private long count;
+            private long sampledNanos;
+            private long sampled;
+
+            private Counter(Sample sample) {
+                this.sample = sample;
+            }
+        }
+
+        /**
+         * A stage of the pipeline: a {@link Consumer} for {@link java.util.stream.Stream#peek(Consumer)} as well as an
+         * {@link IntConsumer}, {@link LongConsumer} and {@link DoubleConsumer} for the primitive streams.
+         */
+        public final class Stage implements Consumer<Object>, IntConsumer, LongConsumer, DoubleConsumer {
+            private final String name;
+            private final int index;
+            private final List<Counter> counters = new CopyOnWriteArrayList<>();
+            private final ThreadLocal<Counter> counter;
+
+            private Stage(String name, int index) {
+                this.name = name;
+                this.index = index;
+                this.counter = ThreadLocal.withInitial(() -> {
+                    Counter c = new Counter(samples.get());
+                    counters.add(c);
+                    return c;
+                });
+            }
+
+            private void record() {
+                Counter c = counter.get();
+                Sample sample = c.sample;
+                long count = ++c.count;
+
+                if (index == 0) {
+                    // the first stage decides which elements are timed
+                    sample.active = (count & (SAMPLE_RATE - 1)) == 0;
+                    if (sample.active) {
+                        sample.stage = 0;
+                        sample.startNanos = System.nanoTime();
+                    }
+                } else if (sample.active && sample.stage == index - 1) {
+                    c.sampledNanos += System.nanoTime() - sample.startNanos;
+                    c.sampled++;
+                    sample.stage = index;
+                }
+            }
+
+            @Override
+            public void accept(Object o) {
+                record();
+            }
+
+            @Override
+            public void accept(int value) {
+                record();
+            }
+
+            @Override
+            public void accept(long value) {
+                record();
+            }
+
+            @Override
+            public void accept(double value) {
+                record();
+            }
+        }
+
+        /**
+         * Statistics of one stage.
+         */
+        public static final class StageStatistics {
+            private final String name;
+            private final long count;
+            private final double selectivity;
+            private final double averageLatencyNanos;
+
+            private StageStatistics(String name, long count, double selectivity, double averageLatencyNanos) {
+                this.name = name;
+                this.count = count;
+                this.selectivity = selectivity;
+                this.averageLatencyNanos = averageLatencyNanos;
+            }
+
+            public String getName() {
+                return name;
+            }
+
+            public long getCount() {
+                return count;
+            }
+
+            /**
+             * @return elements of this stage divided by the elements of the previous stage (1 for the first stage)
+             */
+            public double getSelectivity() {
+                return selectivity;
+            }
+
+            /**
+             * @return sampled average time from the first stage to this stage, in nanoseconds
+             */
+            public double getAverageLatencyNanos() {
+                return averageLatencyNanos;
+            }
+
+            @Override
+            public String toString() {
+                return String.format("%-12s count: %,d  selectivity: %.3f  latency: %.1f ns",
+                        name, count, selectivity, averageLatencyNanos);
+            }
+        }
+    }
 }
@@ -1,5 +1,19 @@
 package chapter_3_Streams;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.BiConsumer;
 import java.util.function.ObjIntConsumer;
 import java.util.function.Supplier;
@@ -37,7 +51,13 @@ import java.util.stream.Collector;
  *                 {@link #isPalindromeAfterJava8(String)}
  *                 - the implementationm using Streams
  *             </li>
+ *             <li>
+ *                 {@link #isPalindrome(String)}
+ *                 - two-pointer implementation, without allocations
+ *             </li>
  *        </ul>
+ *         {@link #findPalindromesInAFile()}
+ *          - find the palindromes among the lines of a file, in parallel ({@link #palindromesInFile(Path)})
  *     </li>
  * </ol>
  *
@@ -56,6 +76,10 @@ import java.util.stream.Collector;
  */
 public class Recipe_3_6_Converting_Strings_to_Streams_and_Back {
 
+    /** Lines checked by one task in {@link #palindromesInFile(Path)}. */
+    private static final int LINES_PER_CHUNK = 8192;
+
+
     /**
      * &#9674;&#9674;&#9674; <b>Running methods for this specific sub-chapter</b> &#9674;&#9674;&#9674;
      *
@@ -68,6 +92,10 @@ public class Recipe_3_6_Converting_Strings_to_Streams_and_Back {
         System.out.println();
         // *** Check Palindromes ***
         checkPalindromes();
+
+        System.out.println();
+        // *** Find Palindromes in a File ***
+        findPalindromesInAFile();
     }
 
     /**
@@ -86,6 +114,7 @@ public class Recipe_3_6_Converting_Strings_to_Streams_and_Back {
      *     </li>
      * </ul>
      *
+     * and {@link #isPalindrome(String)}, the implementation without allocations.
      */
     protected static void checkPalindromes() {
         System.out.println("\n*** Check Palindromes *** ");
@@ -101,6 +130,12 @@ public class Recipe_3_6_Converting_Strings_to_Streams_and_Back {
         System.out.println("abcba : " + isPalindromeAfterJava8("abcba"));
         System.out.println("abcde : " + isPalindromeAfterJava8("abcde"));
         System.out.println("a@c!a : " + isPalindromeAfterJava8("a@c!a"));
+
+        // Two pointers
+        System.out.println(" Two pointers:");
+        System.out.println("abcba : " + isPalindrome("abcba"));
+        System.out.println("abcde : " + isPalindrome("abcde"));
+        System.out.println("a@c!a : " + isPalindrome("a@c!a"));
     }
 
     /**
@@ -169,4 +204,152 @@ public class Recipe_3_6_Converting_Strings_to_Streams_and_Back {
 
         return forward.equals(backward);
     }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Check Palindromes without Allocations</b> &#9674;&#9674;&#9674;
+     *
+     * <br>
+     * {@link #isPalindromeBeforeJava8(String)} and {@link #isPalindromeAfterJava8(String)} build three or four new
+     * Strings / StringBuilders for every check. Comparing the code points from both ends towards the middle, skipping
+     * the ones that are not letters or digits, gives the same answer without allocating anything.
+     *
+     * <pre>
+     int left = 0;
+     int right = string.length();
+
+     while (true) {
+         // skip what is not a letter or digit, from the left
+         ...
+         // skip what is not a letter or digit, from the right
+         ...
+         if (left &#62;= right) return true;
+
+         int first = string.codePointAt(left);
+         int last = string.codePointBefore(right);
+         if (Character.toLowerCase(first) != Character.toLowerCase(last)) return false;
+
+         left += Character.charCount(first);
+         right -= Character.charCount(last);
+     }
+     * </pre>
+     *
+     * The code points are lower-cased one by one ({@link Character#toLowerCase(int)}), not with the locale-dependent
+     * {@link String#toLowerCase()}.
+     *
+     * @param string the String to be checked
+     * @return the String is a palindrome or not
+     */
+    protected static boolean isPalindrome(String string) {
+        int left = 0;
+        int right = string.length();
+
+        while (true) {
+            int first = 0;
+            while (left < right) {
+                first = string.codePointAt(left);
+                if (Character.isLetterOrDigit(first)) break;
+                left += Character.charCount(first);
+            }
+
+            int last = 0;
+            while (left < right) {
+                last = string.codePointBefore(right);
+                if (Character.isLetterOrDigit(last)) break;
+                right -= Character.charCount(last);
+            }
+
+            if (left >= right) return true;
+            if (Character.toLowerCase(first) != Character.toLowerCase(last)) return false;
+
+            left += Character.charCount(first);
+            right -= Character.charCount(last);
+        }
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Find Palindromes in a File</b> &#9674;&#9674;&#9674;
+     *
+     * <pre>
+     Path file = Files.createTempFile("palindromes", ".txt");
+     Files.write(file, Arrays.asList("abcba", "abcde", "a@c!a", "Madam, I'm Adam", "not one"));
+
+     List&#60;String&#62; palindromes = palindromesInFile(file);
+     * </pre>
+     *
+     * @see #palindromesInFile(Path)
+     */
+    protected static void findPalindromesInAFile() {
+        System.out.println("\n*** Find Palindromes in a File *** ");
+
+        try {
+            Path file = Files.createTempFile("palindromes", ".txt");
+            try {
+                Files.write(file, Arrays.asList("abcba", "abcde", "a@c!a", "Madam, I'm Adam", "not one"));
+                System.out.println(palindromesInFile(file));
+            } finally {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Find the palindromes among the lines of a (UTF-8) file.
+     *
+     * <br>
+     * The file is read sequentially in chunks of {@value #LINES_PER_CHUNK} lines and every chunk is checked with
+     * {@link #isPalindrome(String)} on the common {@link ForkJoinPool}. At most two chunks per worker are in flight, so
+     * the memory used doesn't depend on the size of the file (apart from the result).
+     *
+     * <br>
+     * {@link Files#lines(Path)} could be used with {@code parallel()} as well, but on Java 8 its spliterator splits
+     * poorly, as it doesn't know the size of the file in lines.
+     *
+     * @param file the file
+     * @return the palindromes, in file order
+     * @throws IOException if the file can't be read
+     */
+    protected static List<String> palindromesInFile(Path file) throws IOException {
+        int maxInFlight = 2 * ForkJoinPool.getCommonPoolParallelism();
+        Deque<ForkJoinTask<List<String>>> inFlight = new ArrayDeque<>();
+        List<String> palindromes = new ArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String[] chunk = new String[LINES_PER_CHUNK];
+            int lines = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                chunk[lines++] = line;
+                if (lines == LINES_PER_CHUNK) {
+                    if (inFlight.size() == maxInFlight) {
+                        palindromes.addAll(inFlight.removeFirst().join());
+                    }
+                    inFlight.addLast(ForkJoinPool.commonPool().submit(palindromesTask(chunk, lines)));
+                    chunk = new String[LINES_PER_CHUNK];
+                    lines = 0;
+                }
+            }
+            if (lines > 0) {
+                inFlight.addLast(ForkJoinPool.commonPool().submit(palindromesTask(chunk, lines)));
+            }
+        }
+
+        while (!inFlight.isEmpty()) {
+            palindromes.addAll(inFlight.removeFirst().join());
+        }
+        return palindromes;
+    }
+
+    private static Callable<List<String>> palindromesTask(String[] chunk, int lines) {
+        return () -> {
+            List<String> palindromes = new ArrayList<>();
+            for (int i = 0; i < lines; i++) {
+                if (isPalindrome(chunk[i])) {
+                    palindromes.add(chunk[i]);
+                }
+            }
+            return palindromes;
+        };
+    }
 }
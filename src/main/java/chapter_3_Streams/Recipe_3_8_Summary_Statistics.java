@@ -2,11 +2,20 @@ package chapter_3_Streams;
 
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.DoubleSummaryStatistics;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoublePredicate;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
 
 /**
  * <h1>(3.8.) Summary Statistics </h1>
@@ -32,6 +41,14 @@ import java.util.stream.DoubleStream;
  *                 {@link #useTheCollectMethod()}
  *                 - use the collect() method
  *             </li>
+ *             <li>
+ *                 {@link #useQuantileStatistics()}
+ *                 - use {@link QuantileStatistics} for percentiles (p50, p95, p99, p99.9) and histograms
+ *             </li>
+ *             <li>
+ *                 {@link #useATeamTable()}
+ *                 - aggregate salaries stored column by column in a {@link TeamTable}
+ *             </li>
  *        </ul>
  *     </li>
  * </ol>
@@ -59,6 +76,14 @@ public class Recipe_3_8_Summary_Statistics {
         System.out.println();
         // *** Use the collect() Method ***
         new Recipe_3_8_Summary_Statistics().useTheCollectMethod();
+
+        System.out.println();
+        // *** Use Quantile Statistics ***
+        new Recipe_3_8_Summary_Statistics().useQuantileStatistics();
+
+        System.out.println();
+        // *** Use a TeamTable ***
+        new Recipe_3_8_Summary_Statistics().useATeamTable();
     }
 
     /**
@@ -141,6 +166,533 @@ public class Recipe_3_8_Summary_Statistics {
         System.out.println(summarizingDouble);
     }
 
+    /**
+     * &#9674;&#9674;&#9674; <b>Use Quantile Statistics</b> &#9674;&#9674;&#9674;
+     *
+     * <br>
+     * {@link DoubleSummaryStatistics} doesn't give percentiles. {@link QuantileStatistics} keeps the same
+     * count / min / max / sum / average and adds quantiles and histograms, using a fixed amount of memory (the values
+     * are not buffered).
+     * <br>
+     * It follows the same {@code accept} / {@code combine} contract as {@link DoubleSummaryStatistics}, so it works with
+     * the three-argument {@code collect} on parallel streams as well.
+     *
+     * <pre>
+     * {@code
+     * QuantileStatistics stats = DoubleStream.generate(Math::random).limit(1_000_000)
+     *                                        .parallel()
+     *                                        .collect(QuantileStatistics::new,
+     *                                                 QuantileStatistics::accept,
+     *                                                 QuantileStatistics::combine);
+     *
+     * System.out.println("p50:   " + stats.getQuantile(0.5));
+     * System.out.println("p95:   " + stats.getQuantile(0.95));
+     * System.out.println("p99:   " + stats.getQuantile(0.99));
+     * System.out.println("p99.9: " + stats.getQuantile(0.999));
+     *
+     * // As a Collector
+     * QuantileStatistics salaries = teams.stream().collect(QuantileStatistics.summarizingQuantiles(Team::getSalary));
+     * }
+     * </pre>
+     *
+     * @see #useTheCollectMethod()
+     */
+    protected void useQuantileStatistics() {
+        System.out.println("\n*** Use Quantile Statistics ***");
+
+        QuantileStatistics stats = DoubleStream.generate(Math::random).limit(1_000_000)
+                .parallel()
+                .collect(QuantileStatistics::new,
+                         QuantileStatistics::accept,
+                         QuantileStatistics::combine);
+
+        System.out.println(stats);
+        System.out.println("p50:   " + stats.getQuantile(0.5));
+        System.out.println("p95:   " + stats.getQuantile(0.95));
+        System.out.println("p99:   " + stats.getQuantile(0.99));
+        System.out.println("p99.9: " + stats.getQuantile(0.999));
+        assertEquals(1_000_000, stats.getCount());
+        assertEquals(0.5, stats.getQuantile(0.5), 0.02);
+
+        // Histogram: [0, 0.25), [0.25, 0.5), [0.5, 0.75), [0.75, +inf)
+        long[] histogram = stats.getHistogram(0.25, 0.5, 0.75);
+        System.out.println("histogram: " + Arrays.toString(histogram));
+
+        List<Team> teams = new ArrayList<>();
+        teams.add(new Team(1, "Team 1", 12345));
+        teams.add(new Team(2, "Team 2", 23456));
+        teams.add(new Team(3, "Team 3", 13579));
+        teams.add(new Team(4, "Team 4", 24680));
+        teams.add(new Team(5, "Team 5", 11111));
+
+        // As a Collector
+        QuantileStatistics salaries = teams.stream().collect(QuantileStatistics.summarizingQuantiles(Team::getSalary));
+        System.out.println(salaries);
+        System.out.println("median salary: " + salaries.getQuantile(0.5));
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Use a TeamTable</b> &#9674;&#9674;&#9674;
+     *
+     * <br>
+     * Every {@link Team} is a separate object (with a reference to the outer class and its own {@link NumberFormat}),
+     * so {@code teams.stream().mapToDouble(Team::getSalary)} follows a pointer for every salary.
+     * <br>
+     * {@link TeamTable} keeps the same data column by column (ids in an {@code int[]}, salaries in a {@code double[]},
+     * names dictionary-encoded) and aggregates with plain loops over the arrays.
+     *
+     * <pre>
+     * {@code
+     * TeamTable table = TeamTable.of(teams);
+     *
+     * double sum = table.sum();
+     * DoubleSummaryStatistics all = table.summaryStatistics();
+     *
+     * // Filtered aggregates
+     * DoubleSummaryStatistics highSalaries = table.summaryStatistics(salary -> salary > 20_000);
+     * DoubleSummaryStatistics team1 = table.summaryStatisticsForName("Team 1");
+     *
+     * // Chunks scanned in parallel and combined
+     * DoubleSummaryStatistics parallel = table.parallelSummaryStatistics();
+     * }
+     * </pre>
+     */
+    protected void useATeamTable() {
+        System.out.println("\n*** Use a TeamTable ***");
+
+        List<Team> teams = new ArrayList<>();
+        teams.add(new Team(1, "Team 1", 12345));
+        teams.add(new Team(2, "Team 2", 23456));
+        teams.add(new Team(3, "Team 3", 13579));
+        teams.add(new Team(4, "Team 4", 24680));
+        teams.add(new Team(5, "Team 5", 11111));
+
+        TeamTable table = TeamTable.of(teams);
+
+        System.out.println("sum:     " + table.sum());
+        System.out.println("min:     " + table.min());
+        System.out.println("max:     " + table.max());
+        System.out.println("average: " + table.average());
+        assertEquals(teams.stream().mapToDouble(Team::getSalary).sum(), table.sum(), 0.0);
+
+        DoubleSummaryStatistics highSalaries = table.summaryStatistics(salary -> salary > 20_000);
+        System.out.println("salaries > 20 000: " + highSalaries);
+        assertEquals(2, highSalaries.getCount());
+
+        System.out.println("Team 1: " + table.summaryStatisticsForName("Team 1"));
+        System.out.println("parallel: " + table.parallelSummaryStatistics());
+    }
+
+    /**
+     * Teams stored as a struct of arrays: one column (array) per field instead of one object per team.
+     *
+     * <br>
+     * The names are dictionary-encoded: every distinct name is kept once and the column holds its code, so filtering
+     * by name compares ints.
+     * <br>
+     * Rows can only be added; like {@link ArrayList}, this class is not thread safe while it is being filled. Reading
+     * from several threads (e.g. {@link #parallelSummaryStatistics()}) is safe once filling is done.
+     */
+    protected static class TeamTable {
+        /** Rows scanned by one task in {@link #parallelSummaryStatistics()}. */
+        private static final int CHUNK_SIZE = 1 << 16;
+
+        private int[] ids;
+        private double[] salaries;
+        private int[] nameCodes;
+        private int size;
+
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        public TeamTable() {
+            this(16);
+        }
+
+        public TeamTable(int initialCapacity) {
+            ids = new int[initialCapacity];
+            salaries = new double[initialCapacity];
+            nameCodes = new int[initialCapacity];
+        }
+
+        /**
+         * Copy a list of {@link Team} into a new table.
+         *
+         * @param teams the teams
+         * @return the table
+         */
+        public static TeamTable of(List<Team> teams) {
+            TeamTable table = new TeamTable(teams.size());
+            for (Team team : teams) {
+                table.add(team.getId(), team.getName(), team.getSalary());
+            }
+            return table;
+        }
+
+        /**
+         * Add a row.
+         *
+         * @param id team's id
+         * @param name team's name
+         * @param salary team's salary
+         */
+        public void add(int id, String name, double salary) {
+            if (size == ids.length) {
+                int capacity = Math.max(16, size + (size >> 1));
+                ids = Arrays.copyOf(ids, capacity);
+                salaries = Arrays.copyOf(salaries, capacity);
+                nameCodes = Arrays.copyOf(nameCodes, capacity);
+            }
+
+            ids[size] = id;
+            salaries[size] = salary;
+            nameCodes[size] = codes.computeIfAbsent(name, n -> {
+                names.add(n);
+                return names.size() - 1;
+            });
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int getId(int row) {
+            checkRow(row);
+            return ids[row];
+        }
+
+        public String getName(int row) {
+            checkRow(row);
+            return names.get(nameCodes[row]);
+        }
+
+        public double getSalary(int row) {
+            checkRow(row);
+            return salaries[row];
+        }
+
+        private void checkRow(int row) {
+            if (row < 0 || row >= size) {
+                throw new IndexOutOfBoundsException("row: " + row + ", size: " + size);
+            }
+        }
+
+        public double sum() {
+            double sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += salaries[i];
+            }
+            return sum;
+        }
+
+        /**
+         * @return the minimum salary, {@link Double#POSITIVE_INFINITY} if the table is empty
+         */
+        public double min() {
+            double min = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < size; i++) {
+                min = Math.min(min, salaries[i]);
+            }
+            return min;
+        }
+
+        /**
+         * @return the maximum salary, {@link Double#NEGATIVE_INFINITY} if the table is empty
+         */
+        public double max() {
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < size; i++) {
+                max = Math.max(max, salaries[i]);
+            }
+            return max;
+        }
+
+        /**
+         * @return the average salary, 0 if the table is empty
+         */
+        public double average() {
+            return size > 0 ? sum() / size : 0.0d;
+        }
+
+        /**
+         * @return count, sum, min, max and average of all the salaries, in one pass
+         */
+        public DoubleSummaryStatistics summaryStatistics() {
+            return scan(0, size);
+        }
+
+        /**
+         * @param salaryFilter the salaries to be included
+         * @return count, sum, min, max and average of the salaries matching {@code salaryFilter}
+         */
+        public DoubleSummaryStatistics summaryStatistics(DoublePredicate salaryFilter) {
+            DoubleSummaryStatistics stats = new DoubleSummaryStatistics();
+            for (int i = 0; i < size; i++) {
+                double salary = salaries[i];
+                if (salaryFilter.test(salary)) {
+                    stats.accept(salary);
+                }
+            }
+            return stats;
+        }
+
+        /**
+         * @param name team name
+         * @return count, sum, min, max and average of the salaries of the teams with this name
+         */
+        public DoubleSummaryStatistics summaryStatisticsForName(String name) {
+            DoubleSummaryStatistics stats = new DoubleSummaryStatistics();
+            Integer code = codes.get(name);
+            if (code == null) return stats;
+
+            int c = code;
+            for (int i = 0; i < size; i++) {
+                if (nameCodes[i] == c) {
+                    stats.accept(salaries[i]);
+                }
+            }
+            return stats;
+        }
+
+        /**
+         * Same result as {@link #summaryStatistics()}, with the table split into chunks of {@value #CHUNK_SIZE} rows
+         * scanned in parallel (on the common {@link java.util.concurrent.ForkJoinPool}) and then combined.
+         *
+         * @return count, sum, min, max and average of all the salaries
+         */
+        public DoubleSummaryStatistics parallelSummaryStatistics() {
+            int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            return IntStream.range(0, chunks).parallel()
+                    .mapToObj(chunk -> scan(chunk * CHUNK_SIZE, Math.min(size, (chunk + 1) * CHUNK_SIZE)))
+                    .collect(DoubleSummaryStatistics::new,
+                             DoubleSummaryStatistics::combine,
+                             DoubleSummaryStatistics::combine);
+        }
+
+        private DoubleSummaryStatistics scan(int from, int to) {
+            DoubleSummaryStatistics stats = new DoubleSummaryStatistics();
+            for (int i = from; i < to; i++) {
+                stats.accept(salaries[i]);
+            }
+            return stats;
+        }
+    }
+
+    /**
+     * Mergeable, fixed-memory quantile sketch to be used next to {@link DoubleSummaryStatistics}.
+     *
+     * <br>
+     * The values are counted in logarithmic buckets (the approach of HDR histograms and DDSketch): bucket {@code i}
+     * holds the values in {@code (gamma^(i-1), gamma^i]}, with {@code gamma = (1 + accuracy) / (1 - accuracy)}, so
+     * every quantile is returned with a relative error of at most {@code accuracy}.
+     * <br>
+     * The buckets cover {@code [lowestTrackableValue, highestTrackableValue]}; values outside the range (including
+     * zero and negative values) are counted in the first / last bucket. Count, sum, min and max are always exact.
+     *
+     * <br><br>
+     * Two instances can be combined only if they were created with the same arguments. Like
+     * {@link DoubleSummaryStatistics}, this class is not thread safe.
+     */
+    protected static class QuantileStatistics implements DoubleConsumer {
+        /** Default relative accuracy of the quantiles (1%). */
+        public static final double DEFAULT_ACCURACY = 0.01;
+        /** Default lowest value with its own bucket. */
+        public static final double DEFAULT_LOWEST_TRACKABLE_VALUE = 1e-9;
+        /** Default highest value with its own bucket. */
+        public static final double DEFAULT_HIGHEST_TRACKABLE_VALUE = 1e12;
+
+        private final double accuracy;
+        private final double lowestTrackableValue;
+        private final double highestTrackableValue;
+        private final double logGamma;
+        private final int offset;
+        private final long[] counts;
+
+        private long count;
+        private double sum;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        /**
+         * Quantile statistics with 1% relative accuracy for values between 1e-9 and 1e12 (about 2 400 buckets).
+         */
+        public QuantileStatistics() {
+            this(DEFAULT_ACCURACY, DEFAULT_LOWEST_TRACKABLE_VALUE, DEFAULT_HIGHEST_TRACKABLE_VALUE);
+        }
+
+        /**
+         * @param accuracy relative accuracy of the quantiles, in {@code (0, 1)}
+         * @param lowestTrackableValue lowest value with its own bucket, greater than 0
+         * @param highestTrackableValue highest value with its own bucket, greater than {@code lowestTrackableValue}
+         */
+        public QuantileStatistics(double accuracy, double lowestTrackableValue, double highestTrackableValue) {
+            if (!(accuracy > 0 && accuracy < 1)) {
+                throw new IllegalArgumentException("accuracy must be in (0, 1): " + accuracy);
+            }
+            if (!(lowestTrackableValue > 0 && highestTrackableValue > lowestTrackableValue)) {
+                throw new IllegalArgumentException("invalid range: [" + lowestTrackableValue + ", " + highestTrackableValue + "]");
+            }
+
+            this.accuracy = accuracy;
+            this.lowestTrackableValue = lowestTrackableValue;
+            this.highestTrackableValue = highestTrackableValue;
+            this.logGamma = Math.log((1 + accuracy) / (1 - accuracy));
+            this.offset = -rawIndex(lowestTrackableValue);
+            this.counts = new long[rawIndex(highestTrackableValue) + offset + 1];
+        }
+
+        /**
+         * Collector equivalent to {@link Collectors#summarizingDouble(ToDoubleFunction)}.
+         *
+         * @param mapper function extracting the value from an element
+         * @param <T> type of the elements
+         * @return {@link Collector} producing {@link QuantileStatistics}
+         */
+        public static <T> Collector<T, ?, QuantileStatistics> summarizingQuantiles(ToDoubleFunction<? super T> mapper) {
+            return Collector.of(QuantileStatistics::new,
+                    (stats, t) -> stats.accept(mapper.applyAsDouble(t)),
+                    (left, right) -> {
+                        left.combine(right);
+                        return left;
+                    },
+                    Collector.Characteristics.IDENTITY_FINISH);
+        }
+
+        private int rawIndex(double value) {
+            return (int) Math.ceil(Math.log(value) / logGamma);
+        }
+
+        private int bucket(double value) {
+            if (!(value > lowestTrackableValue)) return 0;
+            if (value >= highestTrackableValue) return counts.length - 1;
+            return Math.min(counts.length - 1, Math.max(0, rawIndex(value) + offset));
+        }
+
+        /** Value representing bucket {@code bucket}, at most {@code accuracy} away from all values in it. */
+        private double bucketValue(int bucket) {
+            double gamma = Math.exp(logGamma);
+            return 2 * Math.exp((bucket - offset) * logGamma) / (gamma + 1);
+        }
+
+        /**
+         * Record a new value.
+         *
+         * @param value the value
+         */
+        @Override
+        public void accept(double value) {
+            counts[bucket(value)]++;
+            count++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        /**
+         * Combine the state of another {@link QuantileStatistics} into this one.
+         *
+         * @param other another {@link QuantileStatistics}, created with the same arguments
+         * @throws IllegalArgumentException if the two instances have different accuracy or range
+         */
+        public void combine(QuantileStatistics other) {
+            if (accuracy != other.accuracy
+                    || lowestTrackableValue != other.lowestTrackableValue
+                    || highestTrackableValue != other.highestTrackableValue) {
+                throw new IllegalArgumentException("Can't combine QuantileStatistics with different accuracy or range");
+            }
+
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            count += other.count;
+            sum += other.sum;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+
+        /**
+         * Value at the given quantile, e.g. {@code 0.99} for p99.
+         *
+         * @param quantile the quantile, in {@code [0, 1]}
+         * @return the value, within the relative accuracy; {@link Double#NaN} if no values were recorded
+         */
+        public double getQuantile(double quantile) {
+            if (!(quantile >= 0 && quantile <= 1)) {
+                throw new IllegalArgumentException("quantile must be in [0, 1]: " + quantile);
+            }
+            if (count == 0) return Double.NaN;
+            if (quantile == 0) return min;
+            if (quantile == 1) return max;
+
+            long rank = (long) (quantile * (count - 1));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen > rank) {
+                    return Math.max(min, Math.min(max, bucketValue(i)));
+                }
+            }
+            return max;
+        }
+
+        /**
+         * Number of values in each interval delimited by {@code upperBounds}: {@code (-inf, b0)}, {@code [b0, b1)}, ...,
+         * {@code [bn, +inf)}. The counts are exact only if the bounds fall on bucket boundaries.
+         *
+         * @param upperBounds increasing upper bounds
+         * @return {@code upperBounds.length + 1} counts
+         */
+        public long[] getHistogram(double... upperBounds) {
+            long[] histogram = new long[upperBounds.length + 1];
+            int interval = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) continue;
+
+                double value = bucketValue(i);
+                while (interval < upperBounds.length && value >= upperBounds[interval]) {
+                    interval++;
+                }
+                histogram[interval] += counts[i];
+            }
+            return histogram;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getSum() {
+            return sum;
+        }
+
+        public double getMin() {
+            return min;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        public double getAverage() {
+            return count > 0 ? sum / count : 0.0d;
+        }
+
+        @Override
+        public String toString() {
+            return "QuantileStatistics{" +
+                    "count=" + count +
+                    ", min=" + min +
+                    ", max=" + max +
+                    ", average=" + getAverage() +
+                    ", p50=" + getQuantile(0.5) +
+                    ", p95=" + getQuantile(0.95) +
+                    ", p99=" + getQuantile(0.99) +
+                    ", p99.9=" + getQuantile(0.999) +
+                    '}';
+        }
+    }
+
     /**
      * Class used to get summary statistics based on salaries
      *
@@ -1,4 +1,376 @@
 package chapter_3_Streams;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * <h1>(3.9.) Finding the First Element in a Stream</h1>
+ * <br>
+ *
+ * <ol>
+ *     <li><h2>TO DO</h2>
+ *         - find the first element in a stream that satisfies a particular condition
+ *     </li>
+ *
+ *     <li><h2>HOW</h2>
+ *         - use the {@code findFirst} or {@code findAny} method after applying a filter
+ *     </li>
+ *
+ *     <li><h2>EQ.</h2>
+ *         <ul>
+ *             <li>
+ *                 {@link #findingTheFirstEvenInteger()}
+ *                 - {@code findFirst} on sequential and parallel streams, and {@code findAny}
+ *             </li>
+ *             <li>
+ *                 {@link #findingTheFirstElementInOrder()}
+ *                 - parallel search in encounter order that stops the chunks after the first hit, with its index
+ *                 ({@link OrderedSearch})
+ *             </li>
+ *        </ul>
+ *     </li>
+ * </ol>
+ *
+ * <br>
+ * {@code findFirst} and {@code findAny} return an {@link Optional}, empty when no element is left after the filter.
+ * {@code findFirst} respects the encounter order even on a parallel stream: the chunks before the one with the first
+ * hit must all be searched, while the chunks after it are wasted work. {@code findAny} returns whichever element is
+ * found first.
+ *
+ * @see chapter_2_The_java_util_function_Package.Recipe_2_2_Suppliers findFirst with a Supplier for the default value
+ * @see chapter_6_The_Optional_Type.Recipe_6_2_Retrieving_Values_from_an_Optional retrieving the value of the Optional
+ * @see Recipe_3_10_Using_anyMatch_allMatch_and_noneMatch short-circuiting matches
+ */
 public class Recipe_3_9_Finding_the_First_Element_in_a_Stream {
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Running methods for this specific sub-chapter</b> &#9674;&#9674;&#9674;
+     *
+     * @param args not important
+     */
+    public static void main(String[] args) {
+        System.out.println("Chapter 3 - 3.9. Finding the First Element in a Stream");
+
+
+        System.out.println();
+        // *** Finding the First Even Integer ***
+        findingTheFirstEvenInteger();
+
+        System.out.println();
+        // *** Finding the First Element in Order ***
+        findingTheFirstElementInOrder();
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Finding the First Even Integer</b> &#9674;&#9674;&#9674;
+     *
+     * <pre>
+     * {@code
+     * Optional<Integer> firstEven = Stream.of(3, 1, 4, 1, 5, 9, 2, 6, 5)
+     *                                     .filter(n -> n % 2 == 0)
+     *                                     .findFirst();
+     *
+     * Optional<Integer> firstEvenGT10 = Stream.of(3, 1, 4, 1, 5, 9, 2, 6, 5)
+     *                                         .parallel()
+     *                                         .map(n -> n * 2)
+     *                                         .filter(n -> n > 10)
+     *                                         .findFirst();
+     *
+     * Optional<Integer> any = Stream.of(3, 1, 4, 1, 5, 9, 2, 6, 5)
+     *                               .unordered()
+     *                               .parallel()
+     *                               .filter(n -> n % 2 == 0)
+     *                               .findAny();
+     * }
+     * </pre>
+     */
+    protected static void findingTheFirstEvenInteger() {
+        System.out.println("\n*** Finding the First Even Integer ***");
+
+        Optional<Integer> firstEven = Stream.of(3, 1, 4, 1, 5, 9, 2, 6, 5)
+                .filter(n -> n % 2 == 0)
+                .findFirst();
+        System.out.println("first even: " + firstEven);
+
+        Optional<Integer> firstEvenGT10 = Stream.of(3, 1, 4, 1, 5, 9, 2, 6, 5)
+                .parallel()
+                .map(n -> n * 2)
+                .filter(n -> n > 10)
+                .findFirst();
+        System.out.println("first even > 10, parallel: " + firstEvenGT10);
+
+        Optional<Integer> any = Stream.of(3, 1, 4, 1, 5, 9, 2, 6, 5)
+                .unordered()
+                .parallel()
+                .filter(n -> n % 2 == 0)
+                .findAny();
+        System.out.println("any even, parallel: " + any);
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Finding the First Element in Order</b> &#9674;&#9674;&#9674;
+     *
+     * <pre>
+     * {@code
+     * List<String> names = Arrays.asList("Baaa", "Bbb", "Ccccc", "Cddd", "Eeee");
+     * Optional<String> first = OrderedSearch.findFirst(names.parallelStream(), name -> name.startsWith("C"));
+     * Optional<IndexedElement<String>> indexed =
+     *         OrderedSearch.findFirstIndexed(names.parallelStream(), name -> name.startsWith("C"));
+     * }
+     * </pre>
+     *
+     * The predicate counts its calls: on a parallel stream, {@code filter(...).findFirst()} also tests many records
+     * after the first hit, {@link OrderedSearch} only a few chunks ahead of the hit, and stops them once it's found.
+     */
+    protected static void findingTheFirstElementInOrder() {
+        System.out.println("\n*** Finding the First Element in Order ***");
+
+        List<String> names = Arrays.asList("Baaa", "Bbb", "Ccccc", "Cddd", "Eeee");
+        Optional<String> first = OrderedSearch.findFirst(names.parallelStream(), name -> name.startsWith("C"));
+        System.out.println("first name starting with C: " + first);
+        System.out.println("with its index: "
+                + OrderedSearch.findFirstIndexed(names.parallelStream(), name -> name.startsWith("C")));
+        System.out.println("first name starting with A: "
+                + OrderedSearch.findFirstIndexed(names.parallelStream(), name -> name.startsWith("A")));
+
+        int size = 4_000_000;
+        List<Integer> records = new ArrayList<>(Collections.nCopies(size, 1));
+        records.set(size / 8, -1);
+        records.set(size / 2, -2);
+
+        LongAdder tested = new LongAdder();
+        Predicate<Integer> negative = record -> {
+            tested.increment();
+            return record < 0;
+        };
+
+        Optional<Integer> jdk = records.parallelStream().filter(negative).findFirst();
+        long jdkTested = tested.sumThenReset();
+        Optional<IndexedElement<Integer>> ordered = OrderedSearch.findFirstIndexed(records.parallelStream(), negative);
+        long orderedTested = tested.sumThenReset();
+        assertEquals(jdk.get(), ordered.get().getElement());
+        assertEquals(size / 8, ordered.get().getIndex());
+        System.out.println(ordered.get() + ", records tested: JDK " + jdkTested + ", ordered search "
+                + orderedTested + " (" + (size / 8 + 1) + " up to the hit)");
+    }
+
+    /**
+     * An element of a stream with its position in the encounter order.
+     */
+    protected static final class IndexedElement<T> {
+        private final long index;
+        private final T element;
+
+        public IndexedElement(long index, T element) {
+            this.index = index;
+            this.element = element;
+        }
+
+        public long getIndex() {
+            return index;
+        }
+
+        public T getElement() {
+            return element;
+        }
+
+        @Override
+        public String toString() {
+            return "IndexedElement{" +
+                    "index=" + index +
+                    ", element=" + element +
+                    '}';
+        }
+    }
+
+    /**
+     * {@code filter(predicate).findFirst()} for parallel streams, searching the chunks in encounter order.
+     *
+     * <br>
+     * The stream's spliterator is cut, from its start and as the search goes, into chunks of about {@value #CHUNK}
+     * elements, which are searched on the common {@link ForkJoinPool}. At most two chunks per worker are in flight:
+     * the lookahead past the chunk being waited for is bounded, instead of the whole stream being searched at once.
+     * The chunk of the first hit found so far is shared: the chunks after it stop (they poll it every
+     * {@value #POLL_INTERVAL} elements) and no chunk after it is started. The answer is the first hit of the first chunk
+     * that has one, once all the chunks before it have been searched; the chunks after it aren't waited for.
+     *
+     * <br>
+     * The index of the element is its position in the stream: the number of elements of the chunks before it, which
+     * have all been traversed, plus its position in its chunk, so it doesn't need a {@code SIZED} stream. Sequential
+     * streams are searched in the calling thread.
+     */
+    protected static final class OrderedSearch {
+        /** Elements per chunk. */
+        private static final int CHUNK = 1 << 13;
+        /** Elements tested between two reads of the shared first hit. */
+        private static final int POLL_INTERVAL = 64;
+
+        private OrderedSearch() {
+        }
+
+        /**
+         * @param stream the stream; consumed
+         * @param predicate the predicate, stateless and non-interfering
+         * @param <T> the type of the elements
+         * @return the first element that matches the predicate, or an empty Optional
+         * @throws NullPointerException if the element found is null
+         */
+        public static <T> Optional<T> findFirst(Stream<T> stream, Predicate<? super T> predicate) {
+            return findFirstIndexed(stream, predicate).map(IndexedElement::getElement);
+        }
+
+        /**
+         * @param stream the stream; consumed
+         * @param predicate the predicate, stateless and non-interfering
+         * @param <T> the type of the elements
+         * @return the first element that matches the predicate with its index, or an empty Optional
+         */
+        public static <T> Optional<IndexedElement<T>> findFirstIndexed(Stream<T> stream,
+                                                                        Predicate<? super T> predicate) {
+            Objects.requireNonNull(predicate);
+            Spliterator<T> spliterator = stream.spliterator();
+            if (!stream.isParallel()) {
+                Tester<T> tester = new Tester<>(predicate);
+                while (spliterator.tryAdvance(tester)) {
+                    if (tester.found) {
+                        return Optional.of(new IndexedElement<>(tester.count - 1, tester.element));
+                    }
+                }
+                return Optional.empty();
+            }
+
+            int maxInFlight = 2 * ForkJoinPool.getCommonPoolParallelism();
+            Deque<ChunkTask<T>> inFlight = new ArrayDeque<>();
+            Chunks<T> chunks = new Chunks<>(spliterator);
+            AtomicInteger firstHit = new AtomicInteger(Integer.MAX_VALUE);
+            int chunkIndex = 0;
+            long offset = 0;
+
+            while (true) {
+                Spliterator<T> chunk;
+                while (inFlight.size() < maxInFlight && chunkIndex < firstHit.get()
+                        && (chunk = chunks.next()) != null) {
+                    ChunkTask<T> task = new ChunkTask<>(chunk, chunkIndex++, predicate, firstHit);
+                    ForkJoinPool.commonPool().submit(task);
+                    inFlight.addLast(task);
+                }
+
+                ChunkTask<T> oldest = inFlight.pollFirst();
+                if (oldest == null) {
+                    return Optional.empty();
+                }
+                oldest.join();
+                Tester<T> tester = oldest.tester;
+                if (tester.found) {
+                    return Optional.of(new IndexedElement<>(offset + tester.count - 1, tester.element));
+                }
+                offset += tester.count;
+            }
+        }
+
+        /**
+         * Cuts a spliterator into chunks in encounter order, lazily: the suffixes left by the splits wait on a stack,
+         * the top one being the next part of the stream.
+         */
+        private static final class Chunks<T> {
+            private final Deque<Spliterator<T>> suffixes = new ArrayDeque<>();
+
+            private Chunks(Spliterator<T> spliterator) {
+                suffixes.push(spliterator);
+            }
+
+            /** @return the next chunk, or null at the end of the stream */
+            Spliterator<T> next() {
+                Spliterator<T> chunk = suffixes.poll();
+                if (chunk == null) {
+                    return null;
+                }
+                Spliterator<T> prefix;
+                while (chunk.estimateSize() > CHUNK && (prefix = chunk.trySplit()) != null) {
+                    suffixes.push(chunk);
+                    chunk = prefix;
+                }
+                return chunk;
+            }
+        }
+
+        /** Counts the elements it tests and keeps the first that matches. */
+        private static final class Tester<T> implements Consumer<T> {
+            private final Predicate<? super T> predicate;
+            private long count;
+            private boolean found;
+            private T element;
+
+            private Tester(Predicate<? super T> predicate) {
+                this.predicate = predicate;
+            }
+
+            @Override
+            public void accept(T t) {
+                count++;
+                if (predicate.test(t)) {
+                    found = true;
+                    element = t;
+                }
+            }
+        }
+
+        /**
+         * Searches one chunk until its first hit, or until a chunk before it has a hit. The chunk of a hit (or of a
+         * failure) lowers {@code firstHit}.
+         */
+        private static final class ChunkTask<T> extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+
+            private final Spliterator<T> chunk;
+            private final int index;
+            private final AtomicInteger firstHit;
+            private final Tester<T> tester;
+
+            private ChunkTask(Spliterator<T> chunk, int index, Predicate<? super T> predicate,
+                              AtomicInteger firstHit) {
+                this.chunk = chunk;
+                this.index = index;
+                this.firstHit = firstHit;
+                this.tester = new Tester<>(predicate);
+            }
+
+            @Override
+            protected void compute() {
+                try {
+                    while (index < firstHit.get()) {
+                        for (int i = 0; i < POLL_INTERVAL; i++) {
+                            if (!chunk.tryAdvance(tester)) {
+                                return;
+                            }
+                            if (tester.found) {
+                                firstHit.accumulateAndGet(index, Math::min);
+                                return;
+                            }
+                        }
+                    }
+                } catch (RuntimeException | Error e) {
+                    // like a hit: the chunks after this one can't change the outcome
+                    firstHit.accumulateAndGet(index, Math::min);
+                    throw e;
+                }
+            }
+        }
+    }
 }
@@ -1,4 +1,563 @@
 package chapter_4_Comparators_and_Collectors;
 
+import org.junit.Assert;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * <h1>(4.1.) Sorting Using a Comparator</h1>
+ * <br>
+ *
+ * <ol>
+ *     <li><h2>TO DO</h2>
+ *         - sort objects
+ *     </li>
+ *
+ *     <li><h2>HOW</h2>
+ *         - use the {@link Stream#sorted(Comparator)} method with a {@link Comparator}, implemented with a lambda
+ *         expression or generated by one of the static {@code comparing} methods of the {@link Comparator} interface
+ *     </li>
+ *
+ *     <li><h2>EQ.</h2>
+ *         <ul>
+ *             <li>
+ *                 {@link #sortingStringsWithAComparator()}
+ *                 - sorting Strings with a {@link Comparator}
+ *             </li>
+ *             <li>
+ *                 {@link #sortingMoreRecordsThanFitInMemory()}
+ *                 - sorting more records than fit in memory with an {@link ExternalSorter}
+ *             </li>
+ *        </ul>
+ *     </li>
+ * </ol>
+ *
+ * <br>
+ * {@link Stream#sorted()} uses the natural order of the elements (they must implement {@link Comparable}), while
+ * {@link Stream#sorted(Comparator)} takes a {@link Comparator}. Both keep all the elements in memory.
+ *
+ * <br>
+ * The {@link Comparator} interface has static methods to build comparators ({@code comparing}, {@code comparingInt},
+ * {@code naturalOrder}, {@code reverseOrder}, ...) and default methods to combine them ({@code thenComparing},
+ * {@code reversed}).
+ *
+ * @see chapter_1_The_Basics.Recipe_1_6_Static_Methods_in_Interfaces static methods in the Comparator interface
+ * @see chapter_3_Streams.Recipe_3_4_Check_Sorting_using_Reduce checking that a sort is correct
+ */
 public class Recipe_4_1_Sorting_Using_a_Comparator {
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Running methods for this specific sub-chapter</b> &#9674;&#9674;&#9674;
+     *
+     * @param args not important
+     */
+    public static void main(String[] args) {
+        System.out.println("Chapter 4 - 4.1. Sorting Using a Comparator");
+
+
+        System.out.println();
+        // *** Sorting Strings with a Comparator ***
+        sortingStringsWithAComparator();
+
+        System.out.println();
+        // *** Sorting More Records than Fit in Memory ***
+        sortingMoreRecordsThanFitInMemory();
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Sorting Strings with a Comparator</b> &#9674;&#9674;&#9674;
+     *
+     * <pre>
+     * {@code
+     * List<String> sampleStrings = Arrays.asList("this", "is", "a", "list", "of", "strings");
+     *
+     * // Natural order
+     * List<String> sorted = sampleStrings.stream().sorted().collect(Collectors.toList());
+     *
+     * // By length, then alphabetically
+     * sorted = sampleStrings.stream()
+     *                       .sorted(Comparator.comparing(String::length).thenComparing(Comparator.naturalOrder()))
+     *                       .collect(Collectors.toList());
+     * }
+     * </pre>
+     */
+    protected static void sortingStringsWithAComparator() {
+        System.out.println("\n*** Sorting Strings with a Comparator ***");
+
+        List<String> sampleStrings = Arrays.asList("this", "is", "a", "list", "of", "strings");
+
+        // Natural order
+        List<String> sorted = sampleStrings.stream().sorted().collect(Collectors.toList());
+        System.out.println(sorted);
+
+        // By length, then alphabetically
+        sorted = sampleStrings.stream()
+                .sorted(Comparator.comparing(String::length).thenComparing(Comparator.naturalOrder()))
+                .collect(Collectors.toList());
+        System.out.println(sorted);
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Sorting More Records than Fit in Memory</b> &#9674;&#9674;&#9674;
+     *
+     * <br>
+     * {@link ExternalSorter} reads the records in chunks of {@code maxRecordsInMemory}, sorts every chunk (several
+     * chunks in parallel) and writes it to a temporary file (a <i>run</i>). The runs are then merged (k-way merge) into
+     * a lazy {@link Stream}. Only the chunks being sorted and one buffered record per run are in memory.
+     *
+     * <pre>
+     * {@code
+     * ExternalSorter<String> sorter = new ExternalSorter<>(Comparator.comparing(String::length)
+     *                                                                .thenComparing(Comparator.naturalOrder()),
+     *                                                      ExternalSorter.RecordCodec.STRING,
+     *                                                      100_000);
+     *
+     * try (Stream<String> sorted = sorter.sort(records)) {
+     *     sorted.forEach(...);
+     * }
+     * }
+     * </pre>
+     *
+     * The returned stream must be closed to delete the temporary files when it isn't consumed until the end.
+     */
+    protected static void sortingMoreRecordsThanFitInMemory() {
+        System.out.println("\n*** Sorting More Records than Fit in Memory ***");
+
+        Comparator<String> byLengthThenAlphabetically =
+                Comparator.comparing(String::length).thenComparing(Comparator.naturalOrder());
+        ExternalSorter<String> sorter =
+                new ExternalSorter<>(byLengthThenAlphabetically, ExternalSorter.RecordCodec.STRING, 100_000);
+
+        SplittableRandom random = new SplittableRandom(42);
+        Stream<String> records = IntStream.range(0, 1_000_000)
+                .mapToObj(i -> Long.toString(random.nextLong() >>> random.nextInt(64), 36));
+
+        try (Stream<String> sorted = sorter.sort(records)) {
+            long[] count = {0};
+            sorted.reduce((previous, current) -> {
+                Assert.assertTrue(byLengthThenAlphabetically.compare(previous, current) <= 0);
+                count[0]++;
+                return current;
+            }).ifPresent(last -> System.out.println("last: " + last));
+
+            Assert.assertEquals(1_000_000 - 1, count[0]);
+            System.out.println((count[0] + 1) + " records sorted");
+        }
+
+        // stability: equal keys spread over several runs (and a last, partial chunk) keep the source order
+        ExternalSorter<String> byKey = new ExternalSorter<>(Comparator.comparing((String record) -> record.charAt(0)),
+                ExternalSorter.RecordCodec.STRING, 10, 4, null);
+        List<String> equalKeys = IntStream.range(0, 35).mapToObj(i -> "k:" + i).collect(Collectors.toList());
+        try (Stream<String> sorted = byKey.sort(equalKeys.stream())) {
+            Assert.assertEquals(equalKeys, sorted.collect(Collectors.toList()));
+        }
+        System.out.println("35 equal keys over 4 runs: source order kept");
+    }
+
+    /**
+     * Sorts streams with more records than fit in memory, using temporary files.
+     *
+     * <br>
+     * The records are read in chunks of {@code maxRecordsInMemory}; each chunk is sorted and written to a temporary
+     * file by a task on the common {@link java.util.concurrent.ForkJoinPool}, with at most {@code parallelRuns} chunks
+     * in memory at once. The files are then merged with a priority queue holding the next record of each file; with
+     * more than {@value #MAX_MERGE_WIDTH} files, groups of files are first merged into bigger ones.
+     *
+     * <br><br>
+     * The sort is stable: equal records keep the order of the source. A source which fits in one chunk is sorted in
+     * memory without any file.
+     *
+     * @param <T> the type of the records
+     */
+    protected static class ExternalSorter<T> {
+        /** Maximum number of files merged at once. */
+        public static final int MAX_MERGE_WIDTH = 128;
+
+        private static final int BUFFER_SIZE = 1 << 16;
+
+        private final Comparator<? super T> comparator;
+        private final RecordCodec<T> codec;
+        private final int maxRecordsInMemory;
+        private final int parallelRuns;
+        private final Path directory;
+
+        /**
+         * Sorter using the default temporary directory and one chunk per available processor.
+         *
+         * @param comparator the order of the records
+         * @param codec writes and reads the records to and from the temporary files
+         * @param maxRecordsInMemory number of records in a chunk
+         */
+        public ExternalSorter(Comparator<? super T> comparator, RecordCodec<T> codec, int maxRecordsInMemory) {
+            this(comparator, codec, maxRecordsInMemory, Runtime.getRuntime().availableProcessors(), null);
+        }
+
+        /**
+         * @param comparator the order of the records
+         * @param codec writes and reads the records to and from the temporary files
+         * @param maxRecordsInMemory number of records in a chunk
+         * @param parallelRuns number of chunks sorted at the same time
+         * @param directory directory of the temporary files, {@code null} for the default temporary directory
+         */
+        public ExternalSorter(Comparator<? super T> comparator, RecordCodec<T> codec,
+                              int maxRecordsInMemory, int parallelRuns, Path directory) {
+            if (maxRecordsInMemory < 1 || parallelRuns < 1) {
+                throw new IllegalArgumentException("maxRecordsInMemory and parallelRuns must be positive");
+            }
+            this.comparator = comparator;
+            this.codec = codec;
+            this.maxRecordsInMemory = maxRecordsInMemory;
+            this.parallelRuns = parallelRuns;
+            this.directory = directory;
+        }
+
+        /**
+         * Sort {@code records}. The source is read completely before this method returns; the merge is lazy.
+         *
+         * @param records the records to sort
+         * @return the sorted records; close it to delete the temporary files
+         * @throws UncheckedIOException if a temporary file can't be written or read
+         */
+        public Stream<T> sort(Stream<T> records) {
+            List<Run> runs = new ArrayList<>();
+            Deque<CompletableFuture<Run>> pending = new ArrayDeque<>();
+            Run last = null;
+
+            try {
+                Iterator<T> iterator = records.iterator();
+                List<T> chunk = new ArrayList<>();
+                while (iterator.hasNext()) {
+                    chunk.add(iterator.next());
+                    if (chunk.size() == maxRecordsInMemory && iterator.hasNext()) {
+                        if (pending.size() == parallelRuns) {
+                            runs.add(pending.removeFirst().join());
+                        }
+                        List<T> full = chunk;
+                        pending.addLast(CompletableFuture.supplyAsync(() -> writeRun(sorted(full))));
+                        chunk = new ArrayList<>();
+                    }
+                }
+
+                if (runs.isEmpty() && pending.isEmpty()) {
+                    // everything fits in memory
+                    return sorted(chunk).stream();
+                }
+                if (!chunk.isEmpty()) {
+                    // written while the pending runs are still being sorted, but added after them: the merge breaks
+                    // ties by run index, so the runs must stay in source order
+                    last = writeRun(sorted(chunk));
+                }
+                while (!pending.isEmpty()) {
+                    runs.add(pending.removeFirst().join());
+                }
+                if (last != null) {
+                    runs.add(last);
+                }
+            } catch (RuntimeException e) {
+                pending.forEach(future -> {
+                    try {
+                        runs.add(future.join());
+                    } catch (RuntimeException ignored) {
+                        // already failing
+                    }
+                });
+                if (last != null && !runs.contains(last)) {
+                    runs.add(last);
+                }
+                runs.forEach(Run::delete);
+                throw unwrap(e);
+            }
+
+            List<Run> merged = runs;
+            while (merged.size() > MAX_MERGE_WIDTH) {
+                merged = mergePass(merged);
+            }
+
+            Merge merge = new Merge(merged);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merge, Spliterator.ORDERED), false)
+                    .onClose(merge::close);
+        }
+
+        private List<T> sorted(List<T> chunk) {
+            // List.sort is a stable merge sort (TimSort)
+            chunk.sort(comparator);
+            return chunk;
+        }
+
+        private Run writeRun(List<T> sortedRecords) {
+            return writeRun(sortedRecords.iterator(), sortedRecords.size());
+        }
+
+        private Run writeRun(Iterator<T> sortedRecords, long count) {
+            try {
+                Path file = directory == null
+                        ? Files.createTempFile("sort-run", ".bin")
+                        : Files.createTempFile(directory, "sort-run", ".bin");
+                try (DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+                    for (long i = 0; i < count; i++) {
+                        codec.write(out, sortedRecords.next());
+                    }
+                } catch (IOException | RuntimeException e) {
+                    Files.deleteIfExists(file);
+                    throw e;
+                }
+                return new Run(file, count);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Merge groups of {@value #MAX_MERGE_WIDTH} runs into one run each. The runs of a group are deleted once
+         * merged; if the pass fails, all its input and output runs are deleted.
+         */
+        private List<Run> mergePass(List<Run> runs) {
+            List<Run> merged = new ArrayList<>();
+            try {
+                for (int from = 0; from < runs.size(); from += MAX_MERGE_WIDTH) {
+                    List<Run> group = runs.subList(from, Math.min(runs.size(), from + MAX_MERGE_WIDTH));
+                    long count = group.stream().mapToLong(run -> run.count).sum();
+                    try (Merge merge = new Merge(new ArrayList<>(group))) {
+                        merged.add(writeRun(merge, count));
+                    }
+                }
+            } catch (RuntimeException e) {
+                for (Run run : runs) {
+                    deleteQuietly(run, e);
+                }
+                for (Run run : merged) {
+                    deleteQuietly(run, e);
+                }
+                throw e;
+            }
+            return merged;
+        }
+
+        private static void deleteQuietly(Run run, RuntimeException failure) {
+            try {
+                run.delete();
+            } catch (UncheckedIOException e) {
+                failure.addSuppressed(e);
+            }
+        }
+
+        private static RuntimeException unwrap(RuntimeException e) {
+            return e instanceof CompletionException && e.getCause() instanceof RuntimeException
+                    ? (RuntimeException) e.getCause() : e;
+        }
+
+        /** A sorted temporary file. */
+        private static final class Run {
+            private final Path file;
+            private final long count;
+
+            private Run(Path file, long count) {
+                this.file = file;
+                this.count = count;
+            }
+
+            private void delete() {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        /** Reads one run, one record ahead. */
+        private final class RunReader {
+            private final int index;
+            private final Run run;
+            private final DataInputStream in;
+            private long remaining;
+            private T current;
+
+            private RunReader(int index, Run run) throws IOException {
+                this.index = index;
+                this.run = run;
+                this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run.file), BUFFER_SIZE));
+                this.remaining = run.count;
+            }
+
+            private boolean advance() throws IOException {
+                if (remaining == 0) return false;
+                remaining--;
+                current = codec.read(in);
+                return true;
+            }
+
+            private void close() throws IOException {
+                in.close();
+                run.delete();
+            }
+        }
+
+        /**
+         * k-way merge of runs: the smallest next record wins, ties go to the earlier run (stable sort).
+         */
+        private final class Merge implements Iterator<T>, AutoCloseable {
+            private final PriorityQueue<RunReader> queue;
+            private final List<RunReader> readers = new ArrayList<>();
+
+            private Merge(List<Run> runs) {
+                Comparator<RunReader> order = (a, b) -> comparator.compare(a.current, b.current);
+                queue = new PriorityQueue<>(Math.max(1, runs.size()),
+                        order.thenComparingInt(reader -> reader.index));
+                try {
+                    for (int i = 0; i < runs.size(); i++) {
+                        RunReader reader = new RunReader(i, runs.get(i));
+                        readers.add(reader);
+                        if (reader.advance()) {
+                            queue.add(reader);
+                        }
+                    }
+                } catch (IOException e) {
+                    close();
+                    runs.forEach(Run::delete);
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                if (queue.isEmpty()) {
+                    close();
+                    return false;
+                }
+                return true;
+            }
+
+            @Override
+            public T next() {
+                RunReader reader = queue.poll();
+                if (reader == null) throw new NoSuchElementException();
+
+                T next = reader.current;
+                try {
+                    if (reader.advance()) {
+                        queue.add(reader);
+                    }
+                } catch (IOException e) {
+                    close();
+                    throw new UncheckedIOException(e);
+                }
+                return next;
+            }
+
+            @Override
+            public void close() {
+                queue.clear();
+                for (RunReader reader : readers) {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                readers.clear();
+            }
+        }
+
+        /**
+         * Compact binary encoding of the records in the temporary files.
+         *
+         * @param <T> the type of the records
+         */
+        public interface RecordCodec<T> {
+            /** UTF-8 bytes preceded by their length as a variable-length int. */
+            RecordCodec<String> STRING = new RecordCodec<String>() {
+                @Override
+                public void write(DataOutput out, String record) throws IOException {
+                    byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+                    writeVarLong(out, bytes.length);
+                    out.write(bytes);
+                }
+
+                @Override
+                public String read(DataInput in) throws IOException {
+                    byte[] bytes = new byte[(int) readVarLong(in)];
+                    in.readFully(bytes);
+                    return new String(bytes, StandardCharsets.UTF_8);
+                }
+            };
+
+            /** Zig-zag variable-length encoding: 1 byte for -64..63, at most 10 bytes. */
+            RecordCodec<Long> LONG = new RecordCodec<Long>() {
+                @Override
+                public void write(DataOutput out, Long record) throws IOException {
+                    writeVarLong(out, (record << 1) ^ (record >> 63));
+                }
+
+                @Override
+                public Long read(DataInput in) throws IOException {
+                    long zigZag = readVarLong(in);
+                    return (zigZag >>> 1) ^ -(zigZag & 1);
+                }
+            };
+
+            void write(DataOutput out, T record) throws IOException;
+
+            T read(DataInput in) throws IOException;
+
+            /**
+             * Write an unsigned value 7 bits at a time, the high bit of each byte telling if another byte follows.
+             *
+             * @param out the output
+             * @param value the value, read as unsigned
+             * @throws IOException if the value can't be written
+             */
+            static void writeVarLong(DataOutput out, long value) throws IOException {
+                while ((value & ~0x7FL) != 0) {
+                    out.writeByte((int) ((value & 0x7F) | 0x80));
+                    value >>>= 7;
+                }
+                out.writeByte((int) value);
+            }
+
+            /**
+             * @param in the input
+             * @return a value written by {@link #writeVarLong(DataOutput, long)}
+             * @throws IOException if the value can't be read
+             */
+            static long readVarLong(DataInput in) throws IOException {
+                long value = 0;
+                for (int shift = 0; shift < 64; shift += 7) {
+                    byte b = in.readByte();
+                    value |= (long) (b & 0x7F) << shift;
+                    if ((b & 0x80) == 0) return value;
+                }
+                throw new IOException("Malformed variable-length value");
+            }
+        }
+    }
 }
@@ -1,4 +1,306 @@
 package chapter_4_Comparators_and_Collectors;
 
+import org.junit.Assert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * <h1>(4.2.) Converting a Stream into a Collection</h1>
+ * <br>
+ *
+ * <ol>
+ *     <li><h2>TO DO</h2>
+ *         - after stream processing, convert the result into a {@link List}, {@link Set} or another collection
+ *     </li>
+ *
+ *     <li><h2>HOW</h2>
+ *         - use the {@code toList}, {@code toSet} or {@code toCollection} methods in the {@link Collectors} utility
+ *         class, or {@link Stream#toArray(IntFunction)} for arrays
+ *     </li>
+ *
+ *     <li><h2>EQ.</h2>
+ *         <ul>
+ *             <li>
+ *                 {@link #creatingCollections()}
+ *                 - creating a List, a Set, a specific Collection and an array
+ *             </li>
+ *             <li>
+ *                 {@link #usingPreSizedCollections()}
+ *                 - allocating the result once when the size of the stream is known ({@link SizedCollectors})
+ *             </li>
+ *        </ul>
+ *     </li>
+ * </ol>
+ *
+ * <br>
+ * {@link Collectors#toList()} and {@link Collectors#toSet()} don't guarantee the type of the result
+ * ({@link ArrayList} and {@link HashSet} in practice). Use {@link Collectors#toCollection(java.util.function.Supplier)}
+ * for a specific one.
+ *
+ * @see chapter_3_Streams.Recipe_3_3_Reduction_Operations_Using_Reduce reduction operations
+ * @see Recipe_4_9_Implementing_the_Collector_Interface implementing a Collector
+ */
 public class Recipe_4_2_Converting_a_Stream_into_a_Collection {
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Running methods for this specific sub-chapter</b> &#9674;&#9674;&#9674;
+     *
+     * @param args not important
+     */
+    public static void main(String[] args) {
+        System.out.println("Chapter 4 - 4.2. Converting a Stream into a Collection");
+
+
+        System.out.println();
+        // *** Creating Collections ***
+        creatingCollections();
+
+        System.out.println();
+        // *** Using Pre-Sized Collections ***
+        usingPreSizedCollections();
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Creating Collections</b> &#9674;&#9674;&#9674;
+     *
+     * <pre>
+     * {@code
+     * List<String> superHeroes = Stream.of("Mr. Furious", "The Blue Raja", "The Shoveler", "The Bowler")
+     *                                  .collect(Collectors.toList());
+     *
+     * Set<String> villains = Stream.of("Casanova Frankenstein", "The Disco Boys", "The Not-So-Goodie Mob",
+     *                                  "The Not-So-Goodie Mob")
+     *                              .collect(Collectors.toSet()); // duplicates are removed
+     *
+     * List<String> actors = Stream.of("Hank Azaria", "Janeane Garofalo", "William H. Macy")
+     *                             .collect(Collectors.toCollection(LinkedList::new));
+     *
+     * String[] wannabes = Stream.of("The Waffler", "Reverse Psychologist", "PMS Avenger")
+     *                           .toArray(String[]::new);
+     * }
+     * </pre>
+     */
+    protected static void creatingCollections() {
+        System.out.println("\n*** Creating Collections ***");
+
+        List<String> superHeroes = Stream.of("Mr. Furious", "The Blue Raja", "The Shoveler", "The Bowler")
+                .collect(Collectors.toList());
+        System.out.println(superHeroes);
+
+        Set<String> villains = Stream.of("Casanova Frankenstein", "The Disco Boys", "The Not-So-Goodie Mob",
+                                         "The Not-So-Goodie Mob")
+                .collect(Collectors.toSet());
+        System.out.println(villains);
+
+        List<String> actors = Stream.of("Hank Azaria", "Janeane Garofalo", "William H. Macy")
+                .collect(Collectors.toCollection(LinkedList::new));
+        System.out.println(actors);
+
+        String[] wannabes = Stream.of("The Waffler", "Reverse Psychologist", "PMS Avenger")
+                .toArray(String[]::new);
+        System.out.println(Arrays.toString(wannabes));
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Using Pre-Sized Collections</b> &#9674;&#9674;&#9674;
+     *
+     * <br>
+     * {@link Collectors#toList()} starts with an empty {@link ArrayList} and copies it every time it grows, and on a
+     * parallel stream every split builds its own list before they are appended to each other. When the source is
+     * {@link Spliterator#SIZED} (an array, a list, a range, followed by {@code map}, {@code peek}, ...), the size of the
+     * result is known before the first element is read.
+     * <br>
+     * A {@link java.util.stream.Collector} never sees the source, so {@link SizedCollectors} takes the stream itself:
+     * it allocates the result once and, on a {@link Spliterator#SUBSIZED} parallel stream, every split writes its own
+     * slice of the same array.
+     *
+     * <pre>
+     * {@code
+     * List<String> strings = SizedCollectors.toList(IntStream.range(0, 1_000_000).parallel().mapToObj(Integer::toString));
+     * Set<String> set = SizedCollectors.toSet(strings.stream());
+     * String[] array = SizedCollectors.toArray(strings.stream(), String[]::new);
+     * }
+     * </pre>
+     */
+    protected static void usingPreSizedCollections() {
+        System.out.println("\n*** Using Pre-Sized Collections ***");
+
+        List<String> strings =
+                SizedCollectors.toList(IntStream.range(0, 1_000_000).parallel().mapToObj(Integer::toString));
+        Assert.assertEquals(IntStream.range(0, 1_000_000).mapToObj(Integer::toString).collect(Collectors.toList()),
+                            strings);
+
+        Set<String> set = SizedCollectors.toSet(strings.stream());
+        String[] array = SizedCollectors.toArray(strings.stream(), String[]::new);
+
+        // filter() removes SIZED: same result as Collectors.toList()
+        List<String> filtered = SizedCollectors.toList(strings.stream().filter(s -> s.endsWith("99999")));
+
+        System.out.println(strings.size() + " strings, " + set.size() + " in the set, " + array.length + " in the array");
+        System.out.println(filtered);
+    }
+
+    /**
+     * {@code toList}, {@code toSet} and {@code toArray} allocating the result once when the size of the stream is
+     * known.
+     *
+     * <br>
+     * When the stream's {@link Spliterator} reports {@link Spliterator#SIZED}, the result is created with the exact
+     * size. If the stream is parallel and the spliterator is also {@link Spliterator#SUBSIZED}, the spliterator is split
+     * on the common {@link ForkJoinPool} and every part writes directly at its own offset in the same array (no partial
+     * lists to merge). Otherwise the elements are collected into a growing {@link ArrayList} or {@link HashSet}, like
+     * {@link Collectors#toList()} and {@link Collectors#toSet()}.
+     * <br>
+     * {@code toList} returns an unmodifiable list whether the size was known or not, so that the caller gets the same
+     * kind of list in both cases without copying the array.
+     */
+    protected static final class SizedCollectors {
+        /** Smallest part worth a separate task. */
+        private static final int MIN_SLICE = 1 << 12;
+
+        private SizedCollectors() {
+        }
+
+        /**
+         * @param stream the stream; consumed
+         * @param <T> the type of the elements
+         * @return the elements in encounter order, in an unmodifiable list
+         */
+        @SuppressWarnings("unchecked")
+        public static <T> List<T> toList(Stream<T> stream) {
+            Spliterator<T> spliterator = stream.spliterator();
+            long size = spliterator.getExactSizeIfKnown();
+            if (size < 0 || size > Integer.MAX_VALUE) {
+                return Collections.unmodifiableList(remainingToList(spliterator));
+            }
+            return Collections.unmodifiableList(
+                    (List<T>) Arrays.asList(fill(spliterator, (int) size, Object[]::new, stream.isParallel())));
+        }
+
+        /**
+         * @param stream the stream; consumed
+         * @param <T> the type of the elements
+         * @return the distinct elements, in a {@link HashSet} created with the capacity for all the elements
+         */
+        @SuppressWarnings("unchecked")
+        public static <T> Set<T> toSet(Stream<T> stream) {
+            Spliterator<T> spliterator = stream.spliterator();
+            long size = spliterator.getExactSizeIfKnown();
+            if (size < 0 || size > Integer.MAX_VALUE) {
+                Set<T> set = new HashSet<>();
+                spliterator.forEachRemaining(set::add);
+                return set;
+            }
+
+            Set<T> set = new HashSet<>(Math.max(16, (int) (size / 0.75f) + 1));
+            if (stream.isParallel()) {
+                set.addAll((List<T>) Arrays.asList(fill(spliterator, (int) size, Object[]::new, true)));
+            } else {
+                spliterator.forEachRemaining(set::add);
+            }
+            return set;
+        }
+
+        /**
+         * @param stream the stream; consumed
+         * @param generator creates the array, e.g. {@code String[]::new}
+         * @param <T> the type of the elements
+         * @param <A> the type of the array
+         * @return the elements in encounter order
+         */
+        public static <T, A> A[] toArray(Stream<T> stream, IntFunction<A[]> generator) {
+            Spliterator<T> spliterator = stream.spliterator();
+            long size = spliterator.getExactSizeIfKnown();
+            if (size < 0 || size > Integer.MAX_VALUE) {
+                return remainingToList(spliterator).toArray(generator.apply(0));
+            }
+            return fill(spliterator, (int) size, generator, stream.isParallel());
+        }
+
+        /**
+         * The fallback when the size isn't known: the stream has already been turned into a spliterator, so it can't
+         * use {@link Collectors#toList()} any more.
+         */
+        private static <T> List<T> remainingToList(Spliterator<T> spliterator) {
+            List<T> list = new ArrayList<>();
+            spliterator.forEachRemaining(list::add);
+            return list;
+        }
+
+        private static <T, A> A[] fill(Spliterator<T> spliterator, int size, IntFunction<A[]> generator,
+                                       boolean parallel) {
+            A[] array = generator.apply(size);
+            if (parallel && spliterator.hasCharacteristics(Spliterator.SUBSIZED) && size > MIN_SLICE) {
+                int slice = Math.max(MIN_SLICE, size / (4 * ForkJoinPool.getCommonPoolParallelism()));
+                ForkJoinPool.commonPool().invoke(new SliceTask<>(spliterator, array, 0, slice));
+            } else {
+                int[] index = {0};
+                spliterator.forEachRemaining(t -> array[index[0]++] = castTo(array, t));
+            }
+            return array;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <A> A castTo(A[] array, Object element) {
+            // the array store check of the JVM still applies, like in Stream.toArray
+            return (A) element;
+        }
+
+        /**
+         * Writes the elements of one spliterator from {@code offset}; large spliterators are split and the prefix goes
+         * to a new task, which knows its offset because the spliterator is SUBSIZED.
+         */
+        private static final class SliceTask<T, A> extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+
+            private final Spliterator<T> spliterator;
+            private final A[] array;
+            private final int offset;
+            private final int slice;
+
+            private SliceTask(Spliterator<T> spliterator, A[] array, int offset, int slice) {
+                this.spliterator = spliterator;
+                this.array = array;
+                this.offset = offset;
+                this.slice = slice;
+            }
+
+            @Override
+            protected void compute() {
+                Spliterator<T> rest = spliterator;
+                int restOffset = offset;
+                List<SliceTask<T, A>> forked = new ArrayList<>();
+
+                Spliterator<T> prefix;
+                while (rest.estimateSize() > slice && (prefix = rest.trySplit()) != null) {
+                    // read the size before forking, the task consumes the prefix
+                    int prefixSize = (int) prefix.getExactSizeIfKnown();
+                    SliceTask<T, A> task = new SliceTask<>(prefix, array, restOffset, slice);
+                    task.fork();
+                    forked.add(task);
+                    restOffset += prefixSize;
+                }
+
+                int[] index = {restOffset};
+                rest.forEachRemaining(t -> array[index[0]++] = castTo(array, t));
+
+                for (SliceTask<T, A> task : forked) {
+                    task.join();
+                }
+            }
+        }
+    }
 }
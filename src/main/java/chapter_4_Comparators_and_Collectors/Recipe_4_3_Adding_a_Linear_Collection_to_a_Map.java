@@ -1,4 +1,1028 @@
 package chapter_4_Comparators_and_Collectors;
 
+import org.junit.Assert;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * <h1>(4.3.) Adding a Linear Collection to a Map</h1>
+ * <br>
+ *
+ * <ol>
+ *     <li><h2>TO DO</h2>
+ *         - add a collection of objects to a {@link Map}, where the key is one of the object's properties and the value
+ *         is the object itself
+ *     </li>
+ *
+ *     <li><h2>HOW</h2>
+ *         - use the {@link Collectors#toMap(Function, Function)} method together with {@link Function#identity()}
+ *     </li>
+ *
+ *     <li><h2>EQ.</h2>
+ *         <ul>
+ *             <li>
+ *                 {@link #addingBooksToAMap()}
+ *                 - {@code toMap} with a lambda and with {@link Function#identity()}
+ *             </li>
+ *             <li>
+ *                 {@link #usingOpenAddressingMaps()}
+ *                 - compact maps for large lookup tables ({@link IntKeyMap}, {@link LongKeyMap}, {@link ObjectKeyMap})
+ *             </li>
+ *        </ul>
+ *     </li>
+ * </ol>
+ *
+ * @see chapter_3_Streams.Recipe_3_3_Reduction_Operations_Using_Reduce the same map built with reduce
+ */
 public class Recipe_4_3_Adding_a_Linear_Collection_to_a_Map {
+    /** Maximum load of the tables while they are built. */
+    private static final float MAX_LOAD = 0.5f;
+    /** Maximum load of the tables after {@code freeze()}: no more inserts, so they can be fuller. */
+    private static final float FROZEN_MAX_LOAD = 0.75f;
+    /** Largest number of slots of a table: the largest power of 2 that is a valid array length. */
+    private static final int MAX_CAPACITY = 1 << 30;
+    /** Largest number of slots of an {@link ObjectKeyMap}, whose array holds two references per slot. */
+    private static final int MAX_OBJECT_CAPACITY = MAX_CAPACITY >> 1;
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Running methods for this specific sub-chapter</b> &#9674;&#9674;&#9674;
+     *
+     * @param args not important
+     */
+    public static void main(String[] args) {
+        System.out.println("Chapter 4 - 4.3. Adding a Linear Collection to a Map");
+
+
+        System.out.println();
+        // *** Adding Books to a Map ***
+        new Recipe_4_3_Adding_a_Linear_Collection_to_a_Map().addingBooksToAMap();
+
+        System.out.println();
+        // *** Using Open-Addressing Maps ***
+        new Recipe_4_3_Adding_a_Linear_Collection_to_a_Map().usingOpenAddressingMaps();
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Adding Books to a Map</b> &#9674;&#9674;&#9674;
+     *
+     * <pre>
+     * {@code
+     * List<Book> books = Arrays.asList(
+     *         new Book(1, "Modern Java Recipes", 49.99),
+     *         new Book(2, "Java 8 in Action", 49.99),
+     *         new Book(3, "Java SE8 for the Really Impatient", 39.99));
+     *
+     * Map<Integer, Book> bookMap = books.stream()
+     *                                   .collect(Collectors.toMap(Book::getId, b -> b));
+     *
+     * bookMap = books.stream()
+     *                .collect(Collectors.toMap(Book::getId, Function.identity()));
+     * }
+     * </pre>
+     */
+    protected void addingBooksToAMap() {
+        System.out.println("\n*** Adding Books to a Map ***");
+
+        List<Book> books = books();
+
+        Map<Integer, Book> bookMap = books.stream()
+                .collect(Collectors.toMap(Book::getId, b -> b));
+        bookMap.forEach((k, v) -> System.out.println(k + ": " + v));
+
+        bookMap = books.stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        bookMap.forEach((k, v) -> System.out.println(k + ": " + v));
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Using Open-Addressing Maps</b> &#9674;&#9674;&#9674;
+     *
+     * <br>
+     * The {@link HashMap} built by {@link Collectors#toMap(Function, Function)} has one {@code Node} per entry and, for
+     * {@code int} or {@code long} ids, one boxed key per entry; every lookup follows the table slot to the node, to the
+     * key and only then to the value. The maps below keep the keys and the values in arrays (open addressing with
+     * linear probing), so a lookup reads one or two neighbouring slots.
+     *
+     * <pre>
+     * {@code
+     * IntKeyMap<Book> byId = books.stream()
+     *                             .collect(IntKeyMap.toIntKeyMap(Book::getId, Function.identity()));
+     *
+     * LongKeyMap<Book> byIsbn = books.stream()
+     *                                .collect(LongKeyMap.toLongKeyMap(Book::getIsbn, Function.identity(),
+     *                                         BinaryOperator.minBy(Comparator.comparingDouble(Book::getPrice))));
+     *
+     * ObjectKeyMap<String, Double> prices = books.stream()
+     *                                            .collect(ObjectKeyMap.toObjectKeyMap(Book::getName, Book::getPrice,
+     *                                                     Double::sum));
+     * }
+     * </pre>
+     *
+     * Approximate memory per entry (64-bit JVM with compressed references, values not included):
+     * <ul>
+     *     <li>
+     *         {@code HashMap<Integer, Book>} - 32 bytes for the {@code Node}, 16 for the {@link Integer} and 5.3 to
+     *         10.7 for the table slots (load 37.5% to 75%): about 53 - 59 bytes ({@code HashMap<Long, Book>}, with a
+     *         24-byte {@link Long}: 61 - 67 bytes)
+     *     </li>
+     *     <li>
+     *         {@link IntKeyMap} - 8 bytes per slot, 1.33 to 2.67 slots per entry once frozen: about 11 - 22 bytes
+     *     </li>
+     *     <li>
+     *         {@link LongKeyMap} - 12 bytes per slot: about 16 - 32 bytes
+     *     </li>
+     *     <li>
+     *         {@link ObjectKeyMap} - 12 bytes per slot (16 - 32 bytes) plus the key object, instead of 37 - 43 bytes
+     *         plus the key
+     *     </li>
+     * </ul>
+     *
+     * The tables have at most 2<sup>30</sup> slots (2<sup>29</sup> for {@link ObjectKeyMap}): a larger expected size
+     * throws an {@link IllegalArgumentException}, and a map that would have to grow further an
+     * {@link IllegalStateException}.
+     */
+    protected void usingOpenAddressingMaps() {
+        System.out.println("\n*** Using Open-Addressing Maps ***");
+
+        List<Book> books = new ArrayList<>(books());
+        for (int i = 4; i <= 100_000; i++) {
+            books.add(new Book(i, "Title " + (i % 1000), 10 + i % 50));
+        }
+
+        IntKeyMap<Book> byId = books.parallelStream()
+                .collect(IntKeyMap.toIntKeyMap(Book::getId, Function.identity()));
+        System.out.println("byId:    " + byId.size() + " books, 1 -> " + byId.get(1));
+        books.forEach(book -> Assert.assertSame(book, byId.get(book.getId())));
+
+        // several books share an ISBN: keep the cheapest one
+        LongKeyMap<Book> byIsbn = books.parallelStream()
+                .collect(LongKeyMap.toLongKeyMap(Book::getIsbn, Function.identity(),
+                        (b1, b2) -> b2.getPrice() < b1.getPrice() ? b2 : b1));
+        System.out.println("byIsbn:  " + byIsbn.size() + " ISBNs, " + books.get(0).getIsbn() + " -> "
+                + byIsbn.get(books.get(0).getIsbn()));
+
+        ObjectKeyMap<String, Double> prices = books.parallelStream()
+                .collect(ObjectKeyMap.toObjectKeyMap(Book::getName, Book::getPrice, Double::sum));
+        Assert.assertEquals(books.stream().collect(Collectors.toMap(Book::getName, Book::getPrice, Double::sum)),
+                            prices);
+        System.out.println("prices:  " + prices.size() + " titles, Title 42 -> " + prices.get("Title 42"));
+
+        try {
+            byId.put(0, new Book(0, "Not added", 0));
+        } catch (UnsupportedOperationException e) {
+            System.out.println("frozen:  " + e.getMessage());
+        }
+
+        try {
+            books.stream().collect(IntKeyMap.toIntKeyMap(book -> book.getId() % 10, Function.identity()));
+        } catch (IllegalStateException e) {
+            System.out.println("without a merge function: " + e.getMessage());
+        }
+    }
+
+    private List<Book> books() {
+        List<Book> books = new ArrayList<>();
+        books.add(new Book(1, "Modern Java Recipes", 49.99));
+        books.add(new Book(2, "Java 8 in Action", 49.99));
+        books.add(new Book(3, "Java SE8 for the Really Impatient", 39.99));
+        return books;
+    }
+
+    /**
+     * @return the smallest power of 2 (at least 16) holding {@code expectedSize} entries at {@code maxLoad}
+     * @throws IllegalArgumentException if it is larger than {@code maxCapacity}
+     */
+    private static int tableSize(int expectedSize, float maxLoad, int maxCapacity) {
+        if (expectedSize > (double) maxCapacity * maxLoad) {
+            throw new IllegalArgumentException("too many entries: " + expectedSize + ", at most "
+                                               + (long) ((double) maxCapacity * maxLoad));
+        }
+        int capacity = 16;
+        while ((double) capacity * maxLoad < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * @return twice {@code capacity}
+     * @throws IllegalStateException if {@code capacity} is already {@code maxCapacity}
+     */
+    private static int grow(int capacity, int maxCapacity) {
+        if (capacity >= maxCapacity) {
+            throw new IllegalStateException("too many entries: the table has reached " + maxCapacity + " slots");
+        }
+        return capacity << 1;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int mix(long key) {
+        return mix((int) (key ^ (key >>> 32)));
+    }
+
+    private static UnsupportedOperationException frozen() {
+        return new UnsupportedOperationException("the map is frozen");
+    }
+
+    private static <V> V merge(Object key, V oldValue, V value, BinaryOperator<V> mergeFunction) {
+        if (mergeFunction == null) {
+            throw new IllegalStateException(String.format("Duplicate key %s (attempted merging values %s and %s)",
+                                                          key, oldValue, value));
+        }
+        return Objects.requireNonNull(mergeFunction.apply(oldValue, value), "merged value");
+    }
+
+    /**
+     * Action for {@link IntKeyMap#forEach(IntKeyConsumer)}, without boxing the key.
+     *
+     * @param <V> the type of the values
+     */
+    @FunctionalInterface
+    protected interface IntKeyConsumer<V> {
+        void accept(int key, V value);
+    }
+
+    /**
+     * Action for {@link LongKeyMap#forEach(LongKeyConsumer)}, without boxing the key.
+     *
+     * @param <V> the type of the values
+     */
+    @FunctionalInterface
+    protected interface LongKeyConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    /**
+     * Map from {@code int} keys to non-{@code null} values, in an open-addressing hash table with linear probing: the
+     * keys in an {@code int[]} and the values in a parallel {@code Object[]} (an empty slot has a {@code null} value).
+     *
+     * <br>
+     * The map is built with {@link #put(int, Object)} / {@link #merge(int, Object, BinaryOperator)} and then
+     * {@link #freeze() frozen}: the table is shrunk to a load of at most 75% and any further change throws
+     * {@link UnsupportedOperationException}. Entries can't be removed. Like {@link HashMap}, the map isn't thread safe
+     * while it is built; a frozen map can be shared once it is safely published.
+     *
+     * <br><br>
+     * The table is the one of {@code BookIndex} in {@code Recipe_3_3_Reduction_Operations_Using_Reduce}, for any
+     * value type and with {@code freeze()}. The code is repeated rather than shared because every recipe stays
+     * self-contained: no recipe depends on another one.
+     *
+     * @param <V> the type of the values
+     */
+    protected static final class IntKeyMap<V> {
+        private int[] keys;
+        private Object[] values;
+        private int size;
+        private boolean frozen;
+
+        public IntKeyMap() {
+            this(0);
+        }
+
+        /**
+         * @param expectedSize number of entries that can be added without resizing
+         * @throws IllegalArgumentException if the table can't hold that many entries
+         */
+        public IntKeyMap(int expectedSize) {
+            int capacity = tableSize(expectedSize, MAX_LOAD, MAX_CAPACITY);
+            keys = new int[capacity];
+            values = new Object[capacity];
+        }
+
+        /**
+         * Like {@link Collectors#toMap(Function, Function)}: duplicate keys throw an {@link IllegalStateException}.
+         *
+         * @param keyMapper the key of an element
+         * @param valueMapper the value of an element, not {@code null}
+         * @param <T> the type of the elements
+         * @param <V> the type of the values
+         * @return a {@link Collector} returning a frozen {@link IntKeyMap}
+         */
+        public static <T, V> Collector<T, ?, IntKeyMap<V>> toIntKeyMap(ToIntFunction<? super T> keyMapper,
+                                                                        Function<? super T, ? extends V> valueMapper) {
+            return toIntKeyMap(keyMapper, valueMapper, null);
+        }
+
+        /**
+         * Like {@link Collectors#toMap(Function, Function, BinaryOperator)}.
+         *
+         * @param keyMapper the key of an element
+         * @param valueMapper the value of an element, not {@code null}
+         * @param mergeFunction merges the values of the same key, in encounter order
+         * @param <T> the type of the elements
+         * @param <V> the type of the values
+         * @return a {@link Collector} returning a frozen {@link IntKeyMap}
+         */
+        public static <T, V> Collector<T, ?, IntKeyMap<V>> toIntKeyMap(ToIntFunction<? super T> keyMapper,
+                                                                        Function<? super T, ? extends V> valueMapper,
+                                                                        BinaryOperator<V> mergeFunction) {
+            return Collector.<T, IntKeyMap<V>, IntKeyMap<V>>of(IntKeyMap::new,
+                    (map, t) -> map.merge(keyMapper.applyAsInt(t), valueMapper.apply(t), mergeFunction),
+                    (left, right) -> left.combine(right, mergeFunction),
+                    IntKeyMap::freeze);
+        }
+
+        private int slot(int key) {
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (values[i] != null && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        /**
+         * @param key the key
+         * @return the value of the key, or {@code null}
+         */
+        @SuppressWarnings("unchecked")
+        public V get(int key) {
+            return (V) values[slot(key)];
+        }
+
+        public V getOrDefault(int key, V defaultValue) {
+            V value = get(key);
+            return value != null ? value : defaultValue;
+        }
+
+        public boolean containsKey(int key) {
+            return values[slot(key)] != null;
+        }
+
+        /**
+         * @param key the key
+         * @param value the value, not {@code null}
+         * @return the previous value of the key, or {@code null}
+         */
+        @SuppressWarnings("unchecked")
+        public V put(int key, V value) {
+            if (frozen) {
+                throw frozen();
+            }
+            Objects.requireNonNull(value, "value");
+
+            int i = slot(key);
+            V previous = (V) values[i];
+            keys[i] = key;
+            values[i] = value;
+            if (previous == null && ++size > keys.length * MAX_LOAD) {
+                rehash(grow(keys.length, MAX_CAPACITY));
+            }
+            return previous;
+        }
+
+        /**
+         * Like {@link Map#merge(Object, Object, java.util.function.BiFunction)}, except that a {@code null}
+         * {@code mergeFunction} throws an {@link IllegalStateException} for a duplicate key.
+         *
+         * @param key the key
+         * @param value the value, not {@code null}
+         * @param mergeFunction merges the current value and {@code value}
+         * @return the new value of the key
+         */
+        @SuppressWarnings("unchecked")
+        public V merge(int key, V value, BinaryOperator<V> mergeFunction) {
+            int i = slot(key);
+            V oldValue = (V) values[i];
+            if (oldValue == null) {
+                if (frozen) {
+                    throw frozen();
+                }
+                keys[i] = key;
+                values[i] = Objects.requireNonNull(value, "value");
+                if (++size > keys.length * MAX_LOAD) {
+                    rehash(grow(keys.length, MAX_CAPACITY));
+                }
+                return value;
+            }
+            if (frozen) {
+                throw frozen();
+            }
+            V newValue = Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.merge(key, oldValue, value, mergeFunction);
+            values[i] = newValue;
+            return newValue;
+        }
+
+        /**
+         * Adds the entries of {@code other} into the larger of the two maps; {@code this} map holds the earlier
+         * values for {@code mergeFunction}.
+         */
+        private IntKeyMap<V> combine(IntKeyMap<V> other, BinaryOperator<V> mergeFunction) {
+            if (size >= other.size) {
+                other.forEach((key, value) -> merge(key, value, mergeFunction));
+                return this;
+            }
+            BinaryOperator<V> reversed = mergeFunction == null ? null : (v1, v2) -> mergeFunction.apply(v2, v1);
+            forEach((key, value) -> other.merge(key, value, reversed));
+            return other;
+        }
+
+        /**
+         * Shrinks the table and makes the map read-only. Calling it again does nothing.
+         *
+         * @return this map
+         */
+        public IntKeyMap<V> freeze() {
+            if (!frozen) {
+                int capacity = tableSize(size, FROZEN_MAX_LOAD, MAX_CAPACITY);
+                if (capacity < keys.length) {
+                    rehash(capacity);
+                }
+                frozen = true;
+            }
+            return this;
+        }
+
+        public boolean isFrozen() {
+            return frozen;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Call {@code action} for every (key, value) pair, in no particular order.
+         *
+         * @param action the action
+         */
+        @SuppressWarnings("unchecked")
+        public void forEach(IntKeyConsumer<? super V> action) {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    action.accept(keys[i], (V) values[i]);
+                }
+            }
+        }
+
+        private void rehash(int capacity) {
+            int[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new int[capacity];
+            values = new Object[capacity];
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != null) {
+                    int j = slot(oldKeys[i]);
+                    keys[j] = oldKeys[i];
+                    values[j] = oldValues[i];
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("{");
+            forEach((key, value) -> sb.append(sb.length() > 1 ? ", " : "").append(key).append('=').append(value));
+            return sb.append('}').toString();
+        }
+    }
+
+    /**
+     * {@link IntKeyMap} for {@code long} keys: the keys in a {@code long[]} and the values in a parallel
+     * {@code Object[]}.
+     *
+     * @param <V> the type of the values
+     */
+    protected static final class LongKeyMap<V> {
+        private long[] keys;
+        private Object[] values;
+        private int size;
+        private boolean frozen;
+
+        public LongKeyMap() {
+            this(0);
+        }
+
+        /**
+         * @param expectedSize number of entries that can be added without resizing
+         * @throws IllegalArgumentException if the table can't hold that many entries
+         */
+        public LongKeyMap(int expectedSize) {
+            int capacity = tableSize(expectedSize, MAX_LOAD, MAX_CAPACITY);
+            keys = new long[capacity];
+            values = new Object[capacity];
+        }
+
+        /**
+         * Like {@link Collectors#toMap(Function, Function)}: duplicate keys throw an {@link IllegalStateException}.
+         *
+         * @param keyMapper the key of an element
+         * @param valueMapper the value of an element, not {@code null}
+         * @param <T> the type of the elements
+         * @param <V> the type of the values
+         * @return a {@link Collector} returning a frozen {@link LongKeyMap}
+         */
+        public static <T, V> Collector<T, ?, LongKeyMap<V>> toLongKeyMap(ToLongFunction<? super T> keyMapper,
+                                                                          Function<? super T, ? extends V> valueMapper) {
+            return toLongKeyMap(keyMapper, valueMapper, null);
+        }
+
+        /**
+         * Like {@link Collectors#toMap(Function, Function, BinaryOperator)}.
+         *
+         * @param keyMapper the key of an element
+         * @param valueMapper the value of an element, not {@code null}
+         * @param mergeFunction merges the values of the same key, in encounter order
+         * @param <T> the type of the elements
+         * @param <V> the type of the values
+         * @return a {@link Collector} returning a frozen {@link LongKeyMap}
+         */
+        public static <T, V> Collector<T, ?, LongKeyMap<V>> toLongKeyMap(ToLongFunction<? super T> keyMapper,
+                                                                          Function<? super T, ? extends V> valueMapper,
+                                                                          BinaryOperator<V> mergeFunction) {
+            return Collector.<T, LongKeyMap<V>, LongKeyMap<V>>of(LongKeyMap::new,
+                    (map, t) -> map.merge(keyMapper.applyAsLong(t), valueMapper.apply(t), mergeFunction),
+                    (left, right) -> left.combine(right, mergeFunction),
+                    LongKeyMap::freeze);
+        }
+
+        private int slot(long key) {
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (values[i] != null && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        /**
+         * @param key the key
+         * @return the value of the key, or {@code null}
+         */
+        @SuppressWarnings("unchecked")
+        public V get(long key) {
+            return (V) values[slot(key)];
+        }
+
+        public V getOrDefault(long key, V defaultValue) {
+            V value = get(key);
+            return value != null ? value : defaultValue;
+        }
+
+        public boolean containsKey(long key) {
+            return values[slot(key)] != null;
+        }
+
+        /**
+         * @param key the key
+         * @param value the value, not {@code null}
+         * @return the previous value of the key, or {@code null}
+         */
+        @SuppressWarnings("unchecked")
+        public V put(long key, V value) {
+            if (frozen) {
+                throw frozen();
+            }
+            Objects.requireNonNull(value, "value");
+
+            int i = slot(key);
+            V previous = (V) values[i];
+            keys[i] = key;
+            values[i] = value;
+            if (previous == null && ++size > keys.length * MAX_LOAD) {
+                rehash(grow(keys.length, MAX_CAPACITY));
+            }
+            return previous;
+        }
+
+        /**
+         * @param key the key
+         * @param value the value, not {@code null}
+         * @param mergeFunction merges the current value and {@code value}; {@code null} to reject duplicate keys
+         * @return the new value of the key
+         * @see IntKeyMap#merge(int, Object, BinaryOperator)
+         */
+        @SuppressWarnings("unchecked")
+        public V merge(long key, V value, BinaryOperator<V> mergeFunction) {
+            int i = slot(key);
+            V oldValue = (V) values[i];
+            if (oldValue == null) {
+                if (frozen) {
+                    throw frozen();
+                }
+                keys[i] = key;
+                values[i] = Objects.requireNonNull(value, "value");
+                if (++size > keys.length * MAX_LOAD) {
+                    rehash(grow(keys.length, MAX_CAPACITY));
+                }
+                return value;
+            }
+            if (frozen) {
+                throw frozen();
+            }
+            V newValue = Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.merge(key, oldValue, value, mergeFunction);
+            values[i] = newValue;
+            return newValue;
+        }
+
+        private LongKeyMap<V> combine(LongKeyMap<V> other, BinaryOperator<V> mergeFunction) {
+            if (size >= other.size) {
+                other.forEach((key, value) -> merge(key, value, mergeFunction));
+                return this;
+            }
+            BinaryOperator<V> reversed = mergeFunction == null ? null : (v1, v2) -> mergeFunction.apply(v2, v1);
+            forEach((key, value) -> other.merge(key, value, reversed));
+            return other;
+        }
+
+        /**
+         * Shrinks the table and makes the map read-only. Calling it again does nothing.
+         *
+         * @return this map
+         */
+        public LongKeyMap<V> freeze() {
+            if (!frozen) {
+                int capacity = tableSize(size, FROZEN_MAX_LOAD, MAX_CAPACITY);
+                if (capacity < keys.length) {
+                    rehash(capacity);
+                }
+                frozen = true;
+            }
+            return this;
+        }
+
+        public boolean isFrozen() {
+            return frozen;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Call {@code action} for every (key, value) pair, in no particular order.
+         *
+         * @param action the action
+         */
+        @SuppressWarnings("unchecked")
+        public void forEach(LongKeyConsumer<? super V> action) {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    action.accept(keys[i], (V) values[i]);
+                }
+            }
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new long[capacity];
+            values = new Object[capacity];
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != null) {
+                    int j = slot(oldKeys[i]);
+                    keys[j] = oldKeys[i];
+                    values[j] = oldValues[i];
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("{");
+            forEach((key, value) -> sb.append(sb.length() > 1 ? ", " : "").append(key).append('=').append(value));
+            return sb.append('}').toString();
+        }
+    }
+
+    /**
+     * {@link Map} in an open-addressing hash table with linear probing: every key is followed by its value in a single
+     * {@code Object[]}, and the hash codes of the keys are kept in a parallel {@code int[]}, so probing reads
+     * neighbouring hash codes and {@code equals} is only called on a matching one (like {@link HashMap}, which keeps the
+     * hash code in the {@code Node}). Neither the keys nor the values can be {@code null}.
+     *
+     * <br>
+     * Being a {@link Map}, it can replace the result of {@link Collectors#toMap(Function, Function)} where a map is
+     * expected ({@link #equals(Object)} and {@link #hashCode()} follow the {@link Map} contract). Entries can't be
+     * removed and, once {@link #freeze() frozen}, {@link #put(Object, Object)} throws
+     * {@link UnsupportedOperationException}.
+     *
+     * @param <K> the type of the keys
+     * @param <V> the type of the values
+     */
+    protected static final class ObjectKeyMap<K, V> extends AbstractMap<K, V> {
+        /** key0, value0, key1, value1, ... */
+        private Object[] table;
+        /** Mixed hash codes of the keys (never 0), compared before calling {@code equals}; 0 for an empty slot. */
+        private int[] hashes;
+        private int size;
+        private boolean frozen;
+
+        public ObjectKeyMap() {
+            this(0);
+        }
+
+        /**
+         * @param expectedSize number of entries that can be added without resizing
+         * @throws IllegalArgumentException if the table can't hold that many entries
+         */
+        public ObjectKeyMap(int expectedSize) {
+            int capacity = tableSize(expectedSize, MAX_LOAD, MAX_OBJECT_CAPACITY);
+            table = new Object[2 * capacity];
+            hashes = new int[capacity];
+        }
+
+        /**
+         * Like {@link Collectors#toMap(Function, Function)}: duplicate keys throw an {@link IllegalStateException}.
+         *
+         * @param keyMapper the key of an element, not {@code null}
+         * @param valueMapper the value of an element, not {@code null}
+         * @param <T> the type of the elements
+         * @param <K> the type of the keys
+         * @param <V> the type of the values
+         * @return a {@link Collector} returning a frozen {@link ObjectKeyMap}
+         */
+        public static <T, K, V> Collector<T, ?, ObjectKeyMap<K, V>> toObjectKeyMap(
+                Function<? super T, ? extends K> keyMapper, Function<? super T, ? extends V> valueMapper) {
+            return toObjectKeyMap(keyMapper, valueMapper, null);
+        }
+
+        /**
+         * Like {@link Collectors#toMap(Function, Function, BinaryOperator)}.
+         *
+         * @param keyMapper the key of an element, not {@code null}
+         * @param valueMapper the value of an element, not {@code null}
+         * @param mergeFunction merges the values of the same key, in encounter order
+         * @param <T> the type of the elements
+         * @param <K> the type of the keys
+         * @param <V> the type of the values
+         * @return a {@link Collector} returning a frozen {@link ObjectKeyMap}
+         */
+        public static <T, K, V> Collector<T, ?, ObjectKeyMap<K, V>> toObjectKeyMap(
+                Function<? super T, ? extends K> keyMapper, Function<? super T, ? extends V> valueMapper,
+                BinaryOperator<V> mergeFunction) {
+            return Collector.<T, ObjectKeyMap<K, V>, ObjectKeyMap<K, V>>of(ObjectKeyMap::new,
+                    (map, t) -> map.mergeValue(keyMapper.apply(t), valueMapper.apply(t), mergeFunction),
+                    (left, right) -> left.combine(right, mergeFunction),
+                    ObjectKeyMap::freeze);
+        }
+
+        private static int hash(Object key) {
+            int h = mix(key.hashCode());
+            return h != 0 ? h : 1;
+        }
+
+        /** Index of the key's slot in {@link #table}, or of the empty slot where it would go. */
+        private int slot(Object key, int hash) {
+            int mask = hashes.length - 1;
+            int i = hash & mask;
+            int h;
+            while ((h = hashes[i]) != 0 && (h != hash || !key.equals(table[i << 1]))) {
+                i = (i + 1) & mask;
+            }
+            return i << 1;
+        }
+
+        private int slot(Object key) {
+            return slot(key, hash(key));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V get(Object key) {
+            return key == null ? null : (V) table[slot(key) + 1];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key != null && table[slot(key)] != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V put(K key, V value) {
+            if (frozen) {
+                throw frozen();
+            }
+            Objects.requireNonNull(key, "key");
+            Objects.requireNonNull(value, "value");
+
+            int hash = hash(key);
+            int i = slot(key, hash);
+            V previous = (V) table[i + 1];
+            table[i] = key;
+            table[i + 1] = value;
+            hashes[i >> 1] = hash;
+            if (previous == null && ++size > (table.length >> 1) * MAX_LOAD) {
+                rehash(grow(table.length >> 1, MAX_OBJECT_CAPACITY));
+            }
+            return previous;
+        }
+
+        /**
+         * @param key the key, not {@code null}
+         * @param value the value, not {@code null}
+         * @param mergeFunction merges the current value and {@code value}; {@code null} to reject duplicate keys
+         * @return the new value of the key
+         * @see IntKeyMap#merge(int, Object, BinaryOperator)
+         */
+        @SuppressWarnings("unchecked")
+        public V mergeValue(K key, V value, BinaryOperator<V> mergeFunction) {
+            Objects.requireNonNull(key, "key");
+            int hash = hash(key);
+            int i = slot(key, hash);
+            V oldValue = (V) table[i + 1];
+            if (oldValue == null) {
+                if (frozen) {
+                    throw frozen();
+                }
+                table[i] = key;
+                table[i + 1] = Objects.requireNonNull(value, "value");
+                hashes[i >> 1] = hash;
+                if (++size > (table.length >> 1) * MAX_LOAD) {
+                    rehash(grow(table.length >> 1, MAX_OBJECT_CAPACITY));
+                }
+                return value;
+            }
+            if (frozen) {
+                throw frozen();
+            }
+            V newValue = Recipe_4_3_Adding_a_Linear_Collection_to_a_Map.merge(key, oldValue, value, mergeFunction);
+            table[i + 1] = newValue;
+            return newValue;
+        }
+
+        private ObjectKeyMap<K, V> combine(ObjectKeyMap<K, V> other, BinaryOperator<V> mergeFunction) {
+            if (size >= other.size) {
+                other.forEach((key, value) -> mergeValue(key, value, mergeFunction));
+                return this;
+            }
+            BinaryOperator<V> reversed = mergeFunction == null ? null : (v1, v2) -> mergeFunction.apply(v2, v1);
+            forEach((key, value) -> other.mergeValue(key, value, reversed));
+            return other;
+        }
+
+        /**
+         * Shrinks the table and makes the map read-only. Calling it again does nothing.
+         *
+         * @return this map
+         */
+        public ObjectKeyMap<K, V> freeze() {
+            if (!frozen) {
+                int capacity = tableSize(size, FROZEN_MAX_LOAD, MAX_OBJECT_CAPACITY);
+                if (capacity < table.length >> 1) {
+                    rehash(capacity);
+                }
+                frozen = true;
+            }
+            return this;
+        }
+
+        public boolean isFrozen() {
+            return frozen;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEach(BiConsumer<? super K, ? super V> action) {
+            for (int i = 0; i < table.length; i += 2) {
+                if (table[i] != null) {
+                    action.accept((K) table[i], (V) table[i + 1]);
+                }
+            }
+        }
+
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            return new AbstractSet<Entry<K, V>>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new Iterator<Entry<K, V>>() {
+                        private int next = advance(0);
+
+                        private int advance(int i) {
+                            while (i < table.length && table[i] == null) {
+                                i += 2;
+                            }
+                            return i;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < table.length;
+                        }
+
+                        @Override
+                        @SuppressWarnings("unchecked")
+                        public Entry<K, V> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<K, V> entry = new SimpleImmutableEntry<>((K) table[next], (V) table[next + 1]);
+                            next = advance(next + 2);
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+
+        /**
+         * @param capacity the number of slots (half the length of the table)
+         */
+        private void rehash(int capacity) {
+            Object[] oldTable = table;
+            int[] oldHashes = hashes;
+            table = new Object[2 * capacity];
+            hashes = new int[capacity];
+            for (int i = 0; i < oldHashes.length; i++) {
+                if (oldHashes[i] != 0) {
+                    int j = slot(oldTable[i << 1], oldHashes[i]);
+                    table[j] = oldTable[i << 1];
+                    table[j + 1] = oldTable[(i << 1) + 1];
+                    hashes[j >> 1] = oldHashes[i];
+                }
+            }
+        }
+    }
+
+    protected class Book {
+        private int id;
+        private String name;
+        private double price;
+
+        public Book(int id, String name, double price) {
+            this.id = id;
+            this.name = name;
+            this.price = price;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public void setPrice(double price) {
+            this.price = price;
+        }
+
+        /**
+         * Made-up ISBN-13, shared by the books with the same name.
+         */
+        public long getIsbn() {
+            return 978_0_000_00000_0L + (name.hashCode() & 0x7FFFFFFFL) % 1_000_000_000L;
+        }
+
+        @Override
+        public String toString() {
+            return "Book{" +
+                    "id=" + id +
+                    ", name='" + name + '\'' +
+                    ", price=" + price +
+                    '}';
+        }
+    }
 }
@@ -1,4 +1,380 @@
 package chapter_4_Comparators_and_Collectors;
 
+import org.junit.Assert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * <h1>(4.4.) Sorting Maps</h1>
+ * <br>
+ *
+ * <ol>
+ *     <li><h2>TO DO</h2>
+ *         - sort a {@link Map} by key or by value
+ *     </li>
+ *
+ *     <li><h2>HOW</h2>
+ *         - use the static methods of the {@link Map.Entry} interface: {@link Map.Entry#comparingByKey()},
+ *         {@link Map.Entry#comparingByKey(Comparator)}, {@link Map.Entry#comparingByValue()} and
+ *         {@link Map.Entry#comparingByValue(Comparator)}
+ *     </li>
+ *
+ *     <li><h2>EQ.</h2>
+ *         <ul>
+ *             <li>
+ *                 {@link #sortingMapsByKeyAndValue()}
+ *                 - sorting the number of words of each length, by length and by number of words
+ *             </li>
+ *             <li>
+ *                 {@link #findingTheTopKEntries()}
+ *                 - keeping the k best entries without sorting the whole map ({@link TopK})
+ *             </li>
+ *        </ul>
+ *     </li>
+ * </ol>
+ *
+ * @see Recipe_4_1_Sorting_Using_a_Comparator sorting with a Comparator
+ */
 public class Recipe_4_4_Sorting_Maps {
+    private static final String TEXT =
+            "It was the best of times it was the worst of times it was the age of wisdom it was the age of " +
+            "foolishness it was the epoch of belief it was the epoch of incredulity it was the season of Light it " +
+            "was the season of Darkness it was the spring of hope it was the winter of despair we had everything " +
+            "before us we had nothing before us we were all going direct to Heaven we were all going direct the " +
+            "other way";
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Running methods for this specific sub-chapter</b> &#9674;&#9674;&#9674;
+     *
+     * @param args not important
+     */
+    public static void main(String[] args) {
+        System.out.println("Chapter 4 - 4.4. Sorting Maps");
+
+
+        System.out.println();
+        // *** Sorting Maps by Key and Value ***
+        sortingMapsByKeyAndValue();
+
+        System.out.println();
+        // *** Finding the Top K Entries ***
+        findingTheTopKEntries();
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Sorting Maps by Key and Value</b> &#9674;&#9674;&#9674;
+     *
+     * <pre>
+     * {@code
+     * Map<Integer, Long> lengthCounts = Arrays.stream(TEXT.split(" "))
+     *                                         .collect(Collectors.groupingBy(String::length, Collectors.counting()));
+     *
+     * lengthCounts.entrySet().stream()
+     *             .sorted(Map.Entry.comparingByKey(Comparator.reverseOrder()))
+     *             .limit(5)
+     *             .forEach(e -> System.out.printf("Length %d: %d words%n", e.getKey(), e.getValue()));
+     *
+     * lengthCounts.entrySet().stream()
+     *             .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
+     *             .limit(5)
+     *             .forEach(e -> System.out.printf("Length %d: %d words%n", e.getKey(), e.getValue()));
+     * }
+     * </pre>
+     */
+    protected static void sortingMapsByKeyAndValue() {
+        System.out.println("\n*** Sorting Maps by Key and Value ***");
+
+        Map<Integer, Long> lengthCounts = Arrays.stream(TEXT.split(" "))
+                .collect(Collectors.groupingBy(String::length, Collectors.counting()));
+
+        System.out.println("Number of words of each length (descending):");
+        lengthCounts.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(Comparator.reverseOrder()))
+                .limit(5)
+                .forEach(e -> System.out.printf("Length %d: %d words%n", e.getKey(), e.getValue()));
+
+        System.out.println("Number of words of each length (by number of words, descending):");
+        lengthCounts.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
+                .limit(5)
+                .forEach(e -> System.out.printf("Length %d: %d words%n", e.getKey(), e.getValue()));
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Finding the Top K Entries</b> &#9674;&#9674;&#9674;
+     *
+     * <br>
+     * {@code sorted(...).limit(k)} sorts all the n entries to keep k of them: O(n log n) time and a copy of the whole
+     * stream. {@link TopK} keeps the k best elements seen so far in a bounded heap: O(n log k) time and O(min(n, k)) memory. The
+     * result is the same as {@code sorted(comparator).limit(k)}, including the order of equal elements (the earlier one
+     * in encounter order first), and parallel streams combine one heap per split.
+     *
+     * <pre>
+     * {@code
+     * Comparator<Map.Entry<String, Long>> byScore = Map.Entry.comparingByValue(Comparator.reverseOrder());
+     * List<Map.Entry<String, Long>> leaderboard = scores.entrySet().parallelStream()
+     *                                                   .collect(TopK.topK(10, byScore));
+     *
+     * Map<String, Long> top = TopK.topEntriesByValue(scores.entrySet().parallelStream(), 10);
+     *
+     * TopK<Long> topValues = TopK.of(3, Comparator.reverseOrder());
+     * scores.values().forEach(topValues);
+     * }
+     * </pre>
+     */
+    protected static void findingTheTopKEntries() {
+        System.out.println("\n*** Finding the Top K Entries ***");
+
+        SplittableRandom random = new SplittableRandom(42);
+        Map<String, Long> scores = IntStream.range(0, 1_000_000)
+                .boxed()
+                .collect(Collectors.toMap(i -> "player" + i, i -> (long) random.nextInt(100_000)));
+
+        Comparator<Map.Entry<String, Long>> byScore = Map.Entry.comparingByValue(Comparator.reverseOrder());
+        List<Map.Entry<String, Long>> leaderboard = scores.entrySet().parallelStream()
+                .collect(TopK.topK(10, byScore));
+        Assert.assertEquals(scores.entrySet().stream().sorted(byScore).limit(10).collect(Collectors.toList()),
+                            leaderboard);
+        leaderboard.forEach(e -> System.out.println(e.getKey() + ": " + e.getValue()));
+
+        Map<String, Long> top = TopK.topEntriesByValue(scores.entrySet().parallelStream(), 3);
+        System.out.println("top 3: " + top);
+
+        // ties keep the encounter order, like a stable sort
+        List<String> shortest = Arrays.stream(TEXT.split(" "))
+                .collect(TopK.topK(8, Comparator.comparingInt(String::length)));
+        Assert.assertEquals(Arrays.stream(TEXT.split(" "))
+                                    .sorted(Comparator.comparingInt(String::length))
+                                    .limit(8)
+                                    .collect(Collectors.toList()),
+                            shortest);
+        System.out.println("8 shortest words: " + shortest);
+
+        // no limit: the heaps only grow as needed
+        List<String> allWords = Arrays.stream(TEXT.split(" ")).parallel()
+                .collect(TopK.topK(Integer.MAX_VALUE, Comparator.comparingInt(String::length)));
+        Assert.assertEquals(Arrays.stream(TEXT.split(" "))
+                                    .sorted(Comparator.comparingInt(String::length))
+                                    .collect(Collectors.toList()),
+                            allWords);
+        System.out.println("all " + allWords.size() + " words, longest: " + allWords.get(allWords.size() - 1));
+
+        TopK<Long> topValues = TopK.of(3, Comparator.reverseOrder());
+        scores.values().forEach(topValues);
+        System.out.println("3 best scores: " + topValues.toList() + " (out of " + topValues.count() + ")");
+    }
+
+    /**
+     * The first k elements in the order of a {@link Comparator}, kept in a bounded heap. {@code accept} is O(log k),
+     * and O(1) for the elements that don't make it into the top k once it is full.
+     *
+     * <br>
+     * Equal elements are ordered by encounter order (every element is numbered when accepted), so the result is exactly
+     * the result of {@code sorted(comparator).limit(k)}. {@link #combine(TopK)} numbers the elements of the other
+     * instance after the elements of this one, like the combiner of an ordered {@link Collector}.
+     *
+     * <br>
+     * The heap starts with room for {@value #INITIAL_CAPACITY} elements and grows up to k, so that a large k (e.g.
+     * {@link Integer#MAX_VALUE} for no limit) costs only the memory of the elements actually kept, in each of the
+     * instances of a parallel collect.
+     *
+     * <br>
+     * Not thread safe: use {@link #topK(int, Comparator)} on parallel streams.
+     *
+     * @param <T> the type of the elements
+     */
+    protected static final class TopK<T> implements Consumer<T> {
+        /** Initial length of the arrays of the heap, when k is larger. */
+        public static final int INITIAL_CAPACITY = 16;
+
+        private final int k;
+        private final Comparator<? super T> comparator;
+        /** Heap with the worst kept element at index 0. */
+        private Object[] elements;
+        /** Encounter number of each element of the heap. */
+        private long[] positions;
+        private int size;
+        /** Number of elements accepted, which also numbers the next one. */
+        private long count;
+
+        private TopK(int k, Comparator<? super T> comparator) {
+            if (k < 0) {
+                throw new IllegalArgumentException("k must not be negative: " + k);
+            }
+            this.k = k;
+            this.comparator = Objects.requireNonNull(comparator, "comparator");
+            this.elements = new Object[Math.min(k, INITIAL_CAPACITY)];
+            this.positions = new long[elements.length];
+        }
+
+        /**
+         * @param k the number of elements to keep
+         * @param comparator the order of the elements; the first k are kept
+         * @param <T> the type of the elements
+         * @return an empty {@link TopK}
+         */
+        public static <T> TopK<T> of(int k, Comparator<? super T> comparator) {
+            return new TopK<>(k, comparator);
+        }
+
+        /**
+         * Like {@code sorted(comparator).limit(k).collect(Collectors.toList())}, without sorting the stream.
+         *
+         * @param k the number of elements to keep
+         * @param comparator the order of the elements; the first k are kept
+         * @param <T> the type of the elements
+         * @return a {@link Collector} returning at most k elements, sorted
+         */
+        public static <T> Collector<T, ?, List<T>> topK(int k, Comparator<? super T> comparator) {
+            if (k < 0) {
+                throw new IllegalArgumentException("k must not be negative: " + k);
+            }
+            return Collector.of(() -> new TopK<T>(k, comparator),
+                    TopK::accept,
+                    TopK::combine,
+                    TopK::toList);
+        }
+
+        /**
+         * The k entries with the largest values, like sorting the entries by
+         * {@code comparingByValue(Comparator.reverseOrder())}.
+         *
+         * @param entries the entries of a map, e.g. {@code map.entrySet().stream()} or {@code parallelStream()}
+         * @param k the number of entries to keep
+         * @param <K> the type of the keys
+         * @param <V> the type of the values
+         * @return a {@link LinkedHashMap} with at most k entries, the largest value first
+         */
+        public static <K, V extends Comparable<? super V>> Map<K, V> topEntriesByValue(Stream<Map.Entry<K, V>> entries,
+                                                                                       int k) {
+            return entries.collect(topK(k, Map.Entry.<K, V>comparingByValue(Comparator.reverseOrder())))
+                    .stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue,
+                            (v1, v2) -> v1, LinkedHashMap::new));
+        }
+
+        /**
+         * @param element the next element in encounter order
+         */
+        @Override
+        public void accept(T element) {
+            offer(element, count++);
+        }
+
+        private void offer(Object element, long position) {
+            if (size < k) {
+                if (size == elements.length) {
+                    int capacity = (int) Math.min(k, 2L * size);
+                    elements = Arrays.copyOf(elements, capacity);
+                    positions = Arrays.copyOf(positions, capacity);
+                }
+                siftUp(size++, element, position);
+            } else if (k > 0 && compare(element, position, elements[0], positions[0]) < 0) {
+                siftDown(0, element, position);
+            }
+        }
+
+        /**
+         * Adds the kept elements of {@code other}, which come after the elements of this instance in encounter order.
+         *
+         * @param other another {@link TopK} with the same k and comparator
+         * @return this instance
+         */
+        public TopK<T> combine(TopK<T> other) {
+            for (int i = 0; i < other.size; i++) {
+                offer(other.elements[i], count + other.positions[i]);
+            }
+            count += other.count;
+            return this;
+        }
+
+        /**
+         * @return the kept elements, sorted; the instance can still be used
+         */
+        @SuppressWarnings("unchecked")
+        public List<T> toList() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (i, j) -> compare(elements[i], positions[i], elements[j], positions[j]));
+
+            List<T> list = new ArrayList<>(size);
+            for (Integer i : order) {
+                list.add((T) elements[i]);
+            }
+            return list;
+        }
+
+        /**
+         * @return the number of kept elements, at most k
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return the number of accepted elements
+         */
+        public long count() {
+            return count;
+        }
+
+        @SuppressWarnings("unchecked")
+        private int compare(Object e1, long p1, Object e2, long p2) {
+            int c = comparator.compare((T) e1, (T) e2);
+            return c != 0 ? c : Long.compare(p1, p2);
+        }
+
+        /** Heap order: the parent is worse than (after) its children. */
+        private void siftUp(int i, Object element, long position) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (compare(element, position, elements[parent], positions[parent]) <= 0) {
+                    break;
+                }
+                elements[i] = elements[parent];
+                positions[i] = positions[parent];
+                i = parent;
+            }
+            elements[i] = element;
+            positions[i] = position;
+        }
+
+        private void siftDown(int i, Object element, long position) {
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                int right = child + 1;
+                if (right < size && compare(elements[right], positions[right], elements[child], positions[child]) > 0) {
+                    child = right;
+                }
+                if (compare(element, position, elements[child], positions[child]) >= 0) {
+                    break;
+                }
+                elements[i] = elements[child];
+                positions[i] = positions[child];
+                i = child;
+            }
+            elements[i] = element;
+            positions[i] = position;
+        }
+
+        @Override
+        public String toString() {
+            return "TopK{k=" + k + ", count=" + count + ", elements=" + toList() + '}';
+        }
+    }
 }
@@ -1,4 +1,374 @@
 package chapter_4_Comparators_and_Collectors;
 
+import org.junit.Assert;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * <h1>(4.5.) Partitioning and Grouping</h1>
+ * <br>
+ *
+ * <ol>
+ *     <li><h2>TO DO</h2>
+ *         - divide a collection of elements into categories
+ *     </li>
+ *
+ *     <li><h2>HOW</h2>
+ *         - use {@link Collectors#partitioningBy(java.util.function.Predicate)} to split into two categories
+ *         (true and false) or {@link Collectors#groupingBy(Function)} to get a {@link Map} of categories
+ *     </li>
+ *
+ *     <li><h2>EQ.</h2>
+ *         <ul>
+ *             <li>
+ *                 {@link #partitioningAndGroupingStrings()}
+ *                 - partitioning strings by even / odd length and grouping them by length
+ *             </li>
+ *             <li>
+ *                 {@link #partitioningIntoNumberedBuckets()}
+ *                 - splitting into n buckets chosen by an {@code int} classifier ({@link IntPartitioning})
+ *             </li>
+ *        </ul>
+ *     </li>
+ * </ol>
+ *
+ * @see chapter_2_The_java_util_function_Package.Recipe_2_3_Predicates#partitioningByInAStream()
+ * @see chapter_3_Streams.Recipe_3_7_Counting_Elements
+ * @see Recipe_4_6_Downstream_Collectors downstream collectors
+ */
 public class Recipe_4_5_Partitioning_and_Collectors {
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Running methods for this specific sub-chapter</b> &#9674;&#9674;&#9674;
+     *
+     * @param args not important
+     */
+    public static void main(String[] args) {
+        System.out.println("Chapter 4 - 4.5. Partitioning and Grouping");
+
+
+        System.out.println();
+        // *** Partitioning and Grouping Strings ***
+        partitioningAndGroupingStrings();
+
+        System.out.println();
+        // *** Partitioning into Numbered Buckets ***
+        partitioningIntoNumberedBuckets();
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Partitioning and Grouping Strings</b> &#9674;&#9674;&#9674;
+     *
+     * <pre>
+     * {@code
+     * List<String> strings = Arrays.asList("this", "is", "a", "long", "list", "of", "strings", "to", "use", "as", "a",
+     *                                      "demo");
+     *
+     * Map<Boolean, List<String>> lengthMap = strings.stream()
+     *                                               .collect(Collectors.partitioningBy(s -> s.length() % 2 == 0));
+     *
+     * Map<Integer, List<String>> lengthGroups = strings.stream()
+     *                                                  .collect(Collectors.groupingBy(String::length));
+     * }
+     * </pre>
+     */
+    protected static void partitioningAndGroupingStrings() {
+        System.out.println("\n*** Partitioning and Grouping Strings ***");
+
+        List<String> strings = Arrays.asList("this", "is", "a", "long", "list", "of", "strings", "to", "use", "as", "a",
+                                             "demo");
+
+        Map<Boolean, List<String>> lengthMap = strings.stream()
+                .collect(Collectors.partitioningBy(s -> s.length() % 2 == 0));
+        lengthMap.forEach((key, value) -> System.out.printf("%5s: %s%n", key, value));
+
+        Map<Integer, List<String>> lengthGroups = strings.stream()
+                .collect(Collectors.groupingBy(String::length));
+        lengthGroups.forEach((key, value) -> System.out.printf("%5s: %s%n", key, value));
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Partitioning into Numbered Buckets</b> &#9674;&#9674;&#9674;
+     *
+     * <br>
+     * {@code partitioningBy} only has two buckets and {@code groupingBy} looks up every element's bucket in a
+     * {@link java.util.HashMap} with a boxed key. When the classifier already returns a bucket number in
+     * {@code [0, n)} (a shard, a hash bucket, a histogram bin), {@link IntPartitioning} keeps the buckets in an array
+     * and counts the elements of every bucket in the same pass.
+     *
+     * <pre>
+     * {@code
+     * IntPartitioning.Buckets<List<String>> byLength = strings.stream()
+     *                                                         .collect(IntPartitioning.partitioningByInt(8, String::length));
+     *
+     * IntPartitioning.Buckets<IntSummaryStatistics> byShard = IntStream.range(0, 1_000_000).boxed().parallel()
+     *         .collect(IntPartitioning.partitioningByInt(16, i -> i & 15, Collectors.summarizingInt(i -> i)));
+     *
+     * long[] sizes = IntStream.range(0, 1_000_000).boxed().parallel()
+     *                         .collect(IntPartitioning.bucketSizes(64, i -> i % 64));
+     * }
+     * </pre>
+     */
+    protected static void partitioningIntoNumberedBuckets() {
+        System.out.println("\n*** Partitioning into Numbered Buckets ***");
+
+        List<String> strings = Arrays.asList("this", "is", "a", "long", "list", "of", "strings", "to", "use", "as", "a",
+                                             "demo");
+
+        IntPartitioning.Buckets<List<String>> byLength = strings.stream()
+                .collect(IntPartitioning.partitioningByInt(8, String::length));
+        System.out.println(byLength);
+        System.out.println("sizes: " + Arrays.toString(byLength.sizes()));
+
+        IntPartitioning.Buckets<IntSummaryStatistics> byShard = IntStream.range(0, 1_000_000).boxed().parallel()
+                .collect(IntPartitioning.partitioningByInt(16, i -> i & 15, Collectors.summarizingInt(i -> i)));
+        System.out.println("shard 3: " + byShard.get(3));
+
+        long[] sizes = IntStream.range(0, 1_000_000).boxed().parallel()
+                .collect(IntPartitioning.bucketSizes(64, i -> i % 64));
+        Assert.assertEquals(1_000_000, Arrays.stream(sizes).sum());
+        System.out.println("64 buckets, from " + Arrays.stream(sizes).min().getAsLong() + " to "
+                + Arrays.stream(sizes).max().getAsLong() + " elements");
+
+        List<List<Integer>> parts = IntStream.range(0, 100_000).boxed().parallel()
+                .collect(IntPartitioning.partitioningByInt(8, i -> i % 8)).asList();
+        Assert.assertEquals(IntStream.range(0, 100_000).boxed().filter(i -> i % 8 == 5).collect(Collectors.toList()),
+                            parts.get(5));
+
+        try {
+            strings.stream().collect(IntPartitioning.partitioningByInt(4, String::length));
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * {@link Collector}s splitting the elements of a stream into {@code n} buckets numbered by a classifier returning an
+     * {@code int} in {@code [0, n)}. The buckets are kept in an array: no {@link Map}, no boxed keys, and the number of
+     * elements of every bucket is counted while collecting.
+     *
+     * <br>
+     * Each bucket has its own container of the downstream {@link Collector}, created the first time an element goes
+     * into it. On parallel streams every split has its own array of buckets and the buckets with the same number are
+     * combined in encounter order, so the lists of {@link #partitioningByInt(int, ToIntFunction)} keep the order of the
+     * stream.
+     */
+    protected static final class IntPartitioning {
+
+        private IntPartitioning() {
+        }
+
+        /**
+         * Like {@code groupingBy(classifier)} for a classifier returning {@code 0} to {@code buckets - 1}.
+         *
+         * @param buckets the number of buckets
+         * @param classifier the bucket of an element, in {@code [0, buckets)}
+         * @param <T> the type of the elements
+         * @return a {@link Collector} returning the list of elements of every bucket
+         */
+        public static <T> Collector<T, ?, Buckets<List<T>>> partitioningByInt(int buckets,
+                                                                              ToIntFunction<? super T> classifier) {
+            return partitioningByInt(buckets, classifier, Collectors.toList());
+        }
+
+        /**
+         * Like {@code groupingBy(classifier, downstream)} for a classifier returning {@code 0} to {@code buckets - 1}.
+         *
+         * @param buckets the number of buckets
+         * @param classifier the bucket of an element, in {@code [0, buckets)}
+         * @param downstream the {@link Collector} for the elements of each bucket
+         * @param <T> the type of the elements
+         * @param <A> the accumulation type of the downstream {@link Collector}
+         * @param <D> the result type of the downstream {@link Collector}
+         * @return a {@link Collector} returning the result of {@code downstream} for every bucket
+         */
+        public static <T, A, D> Collector<T, ?, Buckets<D>> partitioningByInt(int buckets,
+                                                                               ToIntFunction<? super T> classifier,
+                                                                               Collector<? super T, A, D> downstream) {
+            if (buckets <= 0) {
+                throw new IllegalArgumentException("buckets must be positive: " + buckets);
+            }
+            Objects.requireNonNull(classifier, "classifier");
+
+            Supplier<A> supplier = downstream.supplier();
+            BiConsumer<A, ? super T> accumulator = downstream.accumulator();
+            BinaryOperator<A> combiner = downstream.combiner();
+
+            return Collector.<T, Accumulation<A>, Buckets<D>>of(
+                    () -> new Accumulation<>(buckets),
+                    (accumulation, t) -> {
+                        int bucket = bucket(classifier.applyAsInt(t), buckets);
+                        @SuppressWarnings("unchecked")
+                        A container = (A) accumulation.containers[bucket];
+                        if (container == null) {
+                            container = supplier.get();
+                            accumulation.containers[bucket] = container;
+                        }
+                        accumulator.accept(container, t);
+                        accumulation.sizes[bucket]++;
+                    },
+                    (left, right) -> left.combine(right, combiner),
+                    accumulation -> accumulation.finish(supplier, downstream));
+        }
+
+        /**
+         * The number of elements of every bucket, like {@code groupingBy(classifier, counting())} without a
+         * {@link Map} nor boxed counts.
+         *
+         * @param buckets the number of buckets
+         * @param classifier the bucket of an element, in {@code [0, buckets)}
+         * @param <T> the type of the elements
+         * @return a {@link Collector} returning an array of {@code buckets} sizes
+         */
+        public static <T> Collector<T, ?, long[]> bucketSizes(int buckets, ToIntFunction<? super T> classifier) {
+            if (buckets <= 0) {
+                throw new IllegalArgumentException("buckets must be positive: " + buckets);
+            }
+            Objects.requireNonNull(classifier, "classifier");
+
+            return Collector.of(() -> new long[buckets],
+                    (sizes, t) -> sizes[bucket(classifier.applyAsInt(t), buckets)]++,
+                    (left, right) -> {
+                        for (int i = 0; i < buckets; i++) {
+                            left[i] += right[i];
+                        }
+                        return left;
+                    },
+                    Collector.Characteristics.IDENTITY_FINISH, Collector.Characteristics.UNORDERED);
+        }
+
+        private static int bucket(int bucket, int buckets) {
+            if (bucket < 0 || bucket >= buckets) {
+                throw new IllegalArgumentException("The classifier returned " + bucket + ", not in [0, " + buckets + ")");
+            }
+            return bucket;
+        }
+
+        /**
+         * The containers of the downstream {@link Collector} ({@code null} until a bucket gets its first element) and
+         * the sizes of the buckets.
+         */
+        private static final class Accumulation<A> {
+            private final Object[] containers;
+            private final long[] sizes;
+
+            private Accumulation(int buckets) {
+                containers = new Object[buckets];
+                sizes = new long[buckets];
+            }
+
+            @SuppressWarnings("unchecked")
+            private Accumulation<A> combine(Accumulation<A> right, BinaryOperator<A> combiner) {
+                for (int i = 0; i < containers.length; i++) {
+                    if (right.containers[i] != null) {
+                        containers[i] = containers[i] == null
+                                ? right.containers[i]
+                                : combiner.apply((A) containers[i], (A) right.containers[i]);
+                    }
+                    sizes[i] += right.sizes[i];
+                }
+                return this;
+            }
+
+            @SuppressWarnings("unchecked")
+            private <D> Buckets<D> finish(Supplier<A> supplier, Collector<?, A, D> downstream) {
+                boolean identityFinish = downstream.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH);
+                Function<A, D> finisher = downstream.finisher();
+
+                Object[] results = new Object[containers.length];
+                for (int i = 0; i < containers.length; i++) {
+                    A container = containers[i] != null ? (A) containers[i] : supplier.get();
+                    results[i] = identityFinish ? container : finisher.apply(container);
+                }
+                return new Buckets<>(results, sizes);
+            }
+        }
+
+        /**
+         * The result of every bucket and its number of elements.
+         *
+         * @param <D> the type of the result of a bucket
+         */
+        protected static final class Buckets<D> {
+            private final Object[] results;
+            private final long[] sizes;
+
+            private Buckets(Object[] results, long[] sizes) {
+                this.results = results;
+                this.sizes = sizes;
+            }
+
+            /**
+             * @return the number of buckets
+             */
+            public int count() {
+                return results.length;
+            }
+
+            /**
+             * @param bucket the bucket, in {@code [0, count())}
+             * @return the result of the downstream {@link Collector} for the bucket (its empty result for an empty
+             * bucket)
+             */
+            @SuppressWarnings("unchecked")
+            public D get(int bucket) {
+                return (D) results[bucket];
+            }
+
+            /**
+             * @param bucket the bucket, in {@code [0, count())}
+             * @return the number of elements that went into the bucket
+             */
+            public long size(int bucket) {
+                return sizes[bucket];
+            }
+
+            /**
+             * @return a copy of the number of elements of every bucket
+             */
+            public long[] sizes() {
+                return sizes.clone();
+            }
+
+            /**
+             * @return an unmodifiable list view of the results, indexed by bucket
+             */
+            public List<D> asList() {
+                return Collections.unmodifiableList(new AbstractList<D>() {
+                    @Override
+                    public D get(int index) {
+                        return Buckets.this.get(index);
+                    }
+
+                    @Override
+                    public int size() {
+                        return results.length;
+                    }
+                });
+            }
+
+            @Override
+            public String toString() {
+                StringBuilder sb = new StringBuilder("Buckets{");
+                for (int i = 0; i < results.length; i++) {
+                    sb.append(i == 0 ? "" : ", ").append(i).append(": ").append(results[i]);
+                }
+                return sb.append('}').toString();
+            }
+        }
+    }
 }
@@ -1,4 +1,373 @@
 package chapter_4_Comparators_and_Collectors;
 
+import org.junit.Assert;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * <h1>(4.6.) Downstream Collectors</h1>
+ * <br>
+ *
+ * <ol>
+ *     <li><h2>TO DO</h2>
+ *         - post-process the collections returned by a {@code groupingBy} or {@code partitioningBy} operation
+ *     </li>
+ *
+ *     <li><h2>HOW</h2>
+ *         - use one of the overloaded versions taking a downstream {@link Collector}, with one of the static methods
+ *         of {@link Collectors} ({@code counting}, {@code summingInt}, {@code mapping}, ...)
+ *     </li>
+ *
+ *     <li><h2>EQ.</h2>
+ *         <ul>
+ *             <li>
+ *                 {@link #countingPartitionedAndGroupedElements()}
+ *                 - counting the elements of every partition / group instead of listing them
+ *             </li>
+ *             <li>
+ *                 {@link #aggregatingWithStripedCounters()}
+ *                 - concurrent counts and sums per key, readable while the stream runs ({@link StripedGroups})
+ *             </li>
+ *        </ul>
+ *     </li>
+ * </ol>
+ *
+ * @see Recipe_4_5_Partitioning_and_Collectors partitioning and grouping
+ * @see chapter_3_Streams.Recipe_3_7_Counting_Elements counting elements
+ */
 public class Recipe_4_6_Downstream_Collectors {
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Running methods for this specific sub-chapter</b> &#9674;&#9674;&#9674;
+     *
+     * @param args not important
+     */
+    public static void main(String[] args) {
+        System.out.println("Chapter 4 - 4.6. Downstream Collectors");
+
+
+        System.out.println();
+        // *** Counting Partitioned and Grouped Elements ***
+        countingPartitionedAndGroupedElements();
+
+        System.out.println();
+        // *** Aggregating with Striped Counters ***
+        aggregatingWithStripedCounters();
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Counting Partitioned and Grouped Elements</b> &#9674;&#9674;&#9674;
+     *
+     * <pre>
+     * {@code
+     * List<String> strings = Arrays.asList("this", "is", "a", "long", "list", "of", "strings", "to", "use", "as", "a",
+     *                                      "demo");
+     *
+     * Map<Boolean, Long> numberLengthMap = strings.stream()
+     *                                             .collect(Collectors.partitioningBy(s -> s.length() % 2 == 0,
+     *                                                                                Collectors.counting()));
+     *
+     * Map<Integer, Long> lengthCounts = strings.stream()
+     *                                          .collect(Collectors.groupingBy(String::length, Collectors.counting()));
+     *
+     * Map<Integer, String> joinedByLength = strings.stream()
+     *                                              .collect(Collectors.groupingBy(String::length,
+     *                                                                             Collectors.joining(", ")));
+     * }
+     * </pre>
+     */
+    protected static void countingPartitionedAndGroupedElements() {
+        System.out.println("\n*** Counting Partitioned and Grouped Elements ***");
+
+        List<String> strings = Arrays.asList("this", "is", "a", "long", "list", "of", "strings", "to", "use", "as", "a",
+                                             "demo");
+
+        Map<Boolean, Long> numberLengthMap = strings.stream()
+                .collect(Collectors.partitioningBy(s -> s.length() % 2 == 0, Collectors.counting()));
+        numberLengthMap.forEach((k, v) -> System.out.printf("%5s: %d%n", k, v));
+
+        Map<Integer, Long> lengthCounts = strings.stream()
+                .collect(Collectors.groupingBy(String::length, Collectors.counting()));
+        lengthCounts.forEach((k, v) -> System.out.printf("%5s: %d%n", k, v));
+
+        Map<Integer, String> joinedByLength = strings.stream()
+                .collect(Collectors.groupingBy(String::length, Collectors.joining(", ")));
+        joinedByLength.forEach((k, v) -> System.out.printf("%5s: %s%n", k, v));
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Aggregating with Striped Counters</b> &#9674;&#9674;&#9674;
+     *
+     * <br>
+     * On a parallel stream, {@code groupingBy(classifier, counting())} builds one map per split and then merges them,
+     * and {@code groupingByConcurrent(classifier, counting())} shares one map but merges a new boxed {@link Long} into
+     * it for every element, so threads counting the same key contend on the same bin. {@link StripedGroups} keeps a
+     * {@link LongAdder} (and a {@link DoubleAdder} for sums) per key: a contended adder spreads the updates over several
+     * cells, so a hot key scales with the number of cores. The {@link StripedGroups} is created before collecting, so
+     * another thread can read a snapshot of the counts while the stream is still running.
+     *
+     * <pre>
+     * {@code
+     * StripedGroups<Integer> groups = new StripedGroups<>();
+     * new Thread(() -> IntStream.range(0, 10_000_000).boxed().parallel()
+     *                           .collect(groups.summingLong(i -> i % 4, i -> i))).start();
+     *
+     * Map<Integer, Long> counts = groups.counts(); // while the stream is running
+     *
+     * Map<Integer, Long> lengthCounts = strings.parallelStream()
+     *                                          .collect(StripedGroups.countingByConcurrent(String::length));
+     * }
+     * </pre>
+     */
+    protected static void aggregatingWithStripedCounters() {
+        System.out.println("\n*** Aggregating with Striped Counters ***");
+
+        StripedGroups<Integer> groups = new StripedGroups<>();
+        Thread collecting = new Thread(() -> IntStream.range(0, 10_000_000).boxed().parallel()
+                .collect(groups.summingLong(i -> i % 4, i -> i)));
+        collecting.start();
+
+        try {
+            while (collecting.isAlive()) {
+                System.out.println("while running: " + groups.counts());
+                collecting.join(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        System.out.println("counts:        " + groups.counts());
+        System.out.println("sums:          " + groups.longSums());
+        Assert.assertEquals(IntStream.range(0, 10_000_000).filter(i -> i % 4 == 1).asLongStream().sum(),
+                            groups.longSum(1));
+
+        List<String> strings = Arrays.asList("this", "is", "a", "long", "list", "of", "strings", "to", "use", "as", "a",
+                                             "demo");
+        Map<Integer, Long> lengthCounts = strings.parallelStream()
+                .collect(StripedGroups.countingByConcurrent(String::length));
+        Assert.assertEquals(strings.stream().collect(Collectors.groupingBy(String::length, Collectors.counting())),
+                            lengthCounts);
+        System.out.println("lengths:       " + lengthCounts);
+
+        Map<Integer, Double> averageLength = new StripedGroups<Integer>()
+                .addAll(strings.parallelStream(), s -> s.length() % 2, String::length)
+                .averages();
+        System.out.println("average length (odd / even): " + averageLength);
+    }
+
+    /**
+     * Counts and sums per key, in a {@link ConcurrentHashMap} of striped cells: a {@link LongAdder} for the count, a
+     * {@link LongAdder} for {@code long} sums and a {@link DoubleAdder} for {@code double} sums. Any number of threads
+     * can add to it, and reading it never blocks them.
+     *
+     * <br>
+     * The collectors returned by the instance methods ({@link #counting(Function)},
+     * {@link #summingLong(Function, ToLongFunction)}, {@link #summingDouble(Function, ToDoubleFunction)}) are
+     * {@link Collector.Characteristics#CONCURRENT CONCURRENT} and
+     * {@link Collector.Characteristics#UNORDERED UNORDERED}: a parallel stream accumulates directly into this instance,
+     * without a container per split nor a merge at the end.
+     *
+     * <br>
+     * The snapshots ({@link #counts()}, {@link #longSums()}, ...) can be taken at any time; while elements are still
+     * being added, every value is a recent sum of its key, not a point in time shared by all the keys (like
+     * {@link LongAdder#sum()}).
+     *
+     * @param <K> the type of the keys
+     */
+    protected static final class StripedGroups<K> {
+        private final ConcurrentMap<K, Cell> cells = new ConcurrentHashMap<>();
+
+        /**
+         * {@code groupingByConcurrent(classifier, counting())} with striped counters.
+         *
+         * @param classifier the key of an element
+         * @param <T> the type of the elements
+         * @param <K> the type of the keys
+         * @return a {@link Collector} returning a snapshot of the counts
+         */
+        public static <T, K> Collector<T, ?, Map<K, Long>> countingByConcurrent(Function<? super T, ? extends K> classifier) {
+            return Collector.of(StripedGroups<K>::new,
+                    (groups, t) -> groups.cell(classifier.apply(t)).count.increment(),
+                    (left, right) -> left.addAll(right),
+                    StripedGroups::counts,
+                    Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED);
+        }
+
+        /**
+         * @param classifier the key of an element
+         * @param <T> the type of the elements
+         * @return a {@link Collector} counting the elements of every key into this instance
+         */
+        public <T> Collector<T, ?, StripedGroups<K>> counting(Function<? super T, ? extends K> classifier) {
+            return collector((groups, t) -> groups.cell(classifier.apply(t)).count.increment());
+        }
+
+        /**
+         * @param classifier the key of an element
+         * @param mapper the value to add
+         * @param <T> the type of the elements
+         * @return a {@link Collector} counting and summing the elements of every key into this instance
+         */
+        public <T> Collector<T, ?, StripedGroups<K>> summingLong(Function<? super T, ? extends K> classifier,
+                                                                 ToLongFunction<? super T> mapper) {
+            return collector((groups, t) -> groups.cell(classifier.apply(t)).add(mapper.applyAsLong(t)));
+        }
+
+        /**
+         * @param classifier the key of an element
+         * @param mapper the value to add
+         * @param <T> the type of the elements
+         * @return a {@link Collector} counting and summing the elements of every key into this instance
+         */
+        public <T> Collector<T, ?, StripedGroups<K>> summingDouble(Function<? super T, ? extends K> classifier,
+                                                                   ToDoubleFunction<? super T> mapper) {
+            return collector((groups, t) -> groups.cell(classifier.apply(t)).add(mapper.applyAsDouble(t)));
+        }
+
+        /**
+         * Counts the elements of {@code stream} and sums {@code mapper}.
+         *
+         * @param stream the elements; parallel streams add from several threads at once
+         * @param classifier the key of an element
+         * @param mapper the value to add
+         * @param <T> the type of the elements
+         * @return this instance
+         */
+        public <T> StripedGroups<K> addAll(Stream<T> stream,
+                                           Function<? super T, ? extends K> classifier,
+                                           ToDoubleFunction<? super T> mapper) {
+            return stream.collect(summingDouble(classifier, mapper));
+        }
+
+        private <T> Collector<T, StripedGroups<K>, StripedGroups<K>> collector(
+                BiConsumer<StripedGroups<K>, T> accumulator) {
+            // every split gets this instance: a CONCURRENT collector is only combined with itself
+            return Collector.of(() -> this,
+                    accumulator,
+                    (left, right) -> left == right ? left : left.addAll(right),
+                    Collector.Characteristics.IDENTITY_FINISH,
+                    Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED);
+        }
+
+        /**
+         * The cell of a key, created the first time. {@link ConcurrentHashMap#computeIfAbsent} locks the bin on Java 8
+         * even when the key is there, so the cell is read with {@code get} first.
+         */
+        private Cell cell(K key) {
+            Cell cell = cells.get(key);
+            return cell != null ? cell : cells.computeIfAbsent(key, k -> new Cell());
+        }
+
+        private StripedGroups<K> addAll(StripedGroups<K> other) {
+            other.cells.forEach((key, cell) -> {
+                Cell target = cell(key);
+                target.count.add(cell.count.sum());
+                target.longSum.add(cell.longSum.sum());
+                target.doubleSum.add(cell.doubleSum.sum());
+            });
+            return this;
+        }
+
+        /**
+         * @param key the key
+         * @return the number of elements of the key so far
+         */
+        public long count(K key) {
+            Cell cell = cells.get(key);
+            return cell == null ? 0 : cell.count.sum();
+        }
+
+        /**
+         * @param key the key
+         * @return the {@code long} sum of the key so far
+         */
+        public long longSum(K key) {
+            Cell cell = cells.get(key);
+            return cell == null ? 0 : cell.longSum.sum();
+        }
+
+        /**
+         * @param key the key
+         * @return the {@code double} sum of the key so far
+         */
+        public double doubleSum(K key) {
+            Cell cell = cells.get(key);
+            return cell == null ? 0 : cell.doubleSum.sum();
+        }
+
+        /**
+         * @return a snapshot of the number of elements of every key
+         */
+        public Map<K, Long> counts() {
+            return snapshot(cell -> cell.count.sum());
+        }
+
+        /**
+         * @return a snapshot of the {@code long} sums of every key
+         */
+        public Map<K, Long> longSums() {
+            return snapshot(cell -> cell.longSum.sum());
+        }
+
+        /**
+         * @return a snapshot of the {@code double} sums of every key
+         */
+        public Map<K, Double> doubleSums() {
+            return snapshot(cell -> cell.doubleSum.sum());
+        }
+
+        /**
+         * @return a snapshot of the average of every key: the {@code double} sum and the {@code long} sum divided by
+         * the count
+         */
+        public Map<K, Double> averages() {
+            return snapshot(cell -> {
+                long count = cell.count.sum();
+                return count == 0 ? 0 : (cell.doubleSum.sum() + cell.longSum.sum()) / count;
+            });
+        }
+
+        private <V> Map<K, V> snapshot(Function<Cell, V> value) {
+            Map<K, V> snapshot = new HashMap<>();
+            cells.forEach((key, cell) -> snapshot.put(key, value.apply(cell)));
+            return snapshot;
+        }
+
+        @Override
+        public String toString() {
+            return "StripedGroups" + counts();
+        }
+
+        /** The striped counters of one key. */
+        private static final class Cell {
+            private final LongAdder count = new LongAdder();
+            private final LongAdder longSum = new LongAdder();
+            private final DoubleAdder doubleSum = new DoubleAdder();
+
+            private void add(long value) {
+                longSum.add(value);
+                count.increment();
+            }
+
+            private void add(double value) {
+                doubleSum.add(value);
+                count.increment();
+            }
+        }
+    }
 }
@@ -1,4 +1,1994 @@
 package chapter_4_Comparators_and_Collectors;
 
+import org.junit.Assert;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * <h1>(4.8.) Creating Immutable Collections</h1>
+ * <br>
+ *
+ * <ol>
+ *     <li><h2>TO DO</h2>
+ *         - create an immutable list, set or map using the Stream API
+ *     </li>
+ *
+ *     <li><h2>HOW</h2>
+ *         - use the {@code unmodifiableList}, {@code unmodifiableSet} and {@code unmodifiableMap} methods of
+ *         {@link Collections}, for example in the finisher of {@link Collectors#collectingAndThen(Collector, Function)}
+ *     </li>
+ *
+ *     <li><h2>EQ.</h2>
+ *         <ul>
+ *             <li>
+ *                 {@link #creatingImmutableCollections()}
+ *                 - unmodifiable views created with {@link Collections} and {@code collectingAndThen}
+ *             </li>
+ *             <li>
+ *                 {@link #usingCompactImmutableCollections()}
+ *                 - exactly sized, array-backed immutable collections ({@link CompactCollections})
+ *             </li>
+ *             <li>
+ *                 {@link #printingTheMemoryFootprint()}
+ *                 - memory used by the unmodifiable JDK collections and by the compact ones
+ *             </li>
+ *             <li>
+ *                 {@link #takingPersistentSnapshots()}
+ *                 - persistent vector and hash map sharing their structure between versions
+ *                 ({@link PersistentVector}, {@link PersistentHashMap})
+ *             </li>
+ *        </ul>
+ *     </li>
+ * </ol>
+ *
+ * <br>
+ * The unmodifiable views of {@link Collections} are not immutable: whoever holds the original collection can still
+ * change it. Copying the elements before wrapping them (like {@code collectingAndThen} does, the list being new) makes
+ * them effectively immutable.
+ */
 public class Recipe_4_8_Creating_Immutable_Collections {
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Running methods for this specific sub-chapter</b> &#9674;&#9674;&#9674;
+     *
+     * @param args not important
+     */
+    public static void main(String[] args) {
+        System.out.println("Chapter 4 - 4.8. Creating Immutable Collections");
+
+
+        System.out.println();
+        // *** Creating Immutable Collections ***
+        creatingImmutableCollections();
+
+        System.out.println();
+        // *** Using Compact Immutable Collections ***
+        usingCompactImmutableCollections();
+
+        System.out.println();
+        // *** Printing the Memory Footprint ***
+        printingTheMemoryFootprint();
+
+        System.out.println();
+        // *** Taking Persistent Snapshots ***
+        takingPersistentSnapshots();
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Creating Immutable Collections</b> &#9674;&#9674;&#9674;
+     *
+     * <pre>
+     * {@code
+     * @SafeVarargs
+     * public static <T> List<T> createImmutableList(T... elements) {
+     *     return Arrays.stream(elements)
+     *                  .collect(Collectors.collectingAndThen(Collectors.toList(), Collections::unmodifiableList));
+     * }
+     *
+     * @SafeVarargs
+     * public static <T> Set<T> createImmutableSet(T... elements) {
+     *     return Arrays.stream(elements)
+     *                  .collect(Collectors.collectingAndThen(Collectors.toSet(), Collections::unmodifiableSet));
+     * }
+     *
+     * Map<String, Integer> map = Collections.unmodifiableMap(new HashMap<String, Integer>() {{
+     *     put("have", 1);
+     *     put("the", 2);
+     *     put("high", 3);
+     *     put("ground", 4);
+     * }});
+     * }
+     * </pre>
+     */
+    protected static void creatingImmutableCollections() {
+        System.out.println("\n*** Creating Immutable Collections ***");
+
+        List<String> list = createImmutableList("this", "is", "a", "list", "of", "strings");
+        Set<String> set = createImmutableSet("this", "is", "a", "set", "of", "strings", "strings");
+        Map<String, Integer> map = Collections.unmodifiableMap(new HashMap<String, Integer>() {{
+            put("have", 1);
+            put("the", 2);
+            put("high", 3);
+            put("ground", 4);
+        }});
+        System.out.println(list);
+        System.out.println(set);
+        System.out.println(map);
+
+        try {
+            list.add("more");
+        } catch (UnsupportedOperationException e) {
+            System.out.println("list.add: UnsupportedOperationException");
+        }
+    }
+
+    @SafeVarargs
+    private static <T> List<T> createImmutableList(T... elements) {
+        // the elements are copied into the stream: the varargs array itself never leaves the method
+        Stream.Builder<T> builder = Stream.builder();
+        for (T element : elements) {
+            builder.add(element);
+        }
+        return builder.build()
+                .collect(Collectors.collectingAndThen(Collectors.toList(), Collections::unmodifiableList));
+    }
+
+    @SafeVarargs
+    private static <T> Set<T> createImmutableSet(T... elements) {
+        Stream.Builder<T> builder = Stream.builder();
+        for (T element : elements) {
+            builder.add(element);
+        }
+        return builder.build()
+                .collect(Collectors.collectingAndThen(Collectors.toSet(), Collections::unmodifiableSet));
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Using Compact Immutable Collections</b> &#9674;&#9674;&#9674;
+     *
+     * <br>
+     * {@code unmodifiableList(new ArrayList<>(...))} is two objects (the view and the list) and an array with up to 50%
+     * free slots; a {@link HashMap} is a table plus one {@code Node} per entry. The {@link CompactCollections} are one
+     * object and one array of exactly the right size (plus an {@code int[]} hash index for the sets and maps, with open
+     * addressing), and the sets and maps of up to 3 elements keep them in fields, without any array.
+     * <br>
+     * They are immutable (every mutator throws {@link UnsupportedOperationException}), keep the insertion order, reject
+     * {@code null} and only have {@code final} fields: once built they can be handed to other threads without copying
+     * nor locking, even through a data race.
+     *
+     * <pre>
+     * {@code
+     * List<String> list = CompactCollections.listOf("this", "is", "a", "list");
+     * Set<String> small = CompactCollections.setOf("a", "b", "c");
+     * Map<String, Integer> map = CompactCollections.mapOf("have", 1, "the", 2, "high", 3);
+     *
+     * Set<Integer> squares = IntStream.range(0, 1000).mapToObj(i -> i * i)
+     *                                 .collect(CompactCollections.toCompactSet());
+     * Map<Integer, String> names = IntStream.range(0, 1000).boxed()
+     *                                       .collect(CompactCollections.toCompactMap(i -> i, i -> "#" + i));
+     * }
+     * </pre>
+     */
+    protected static void usingCompactImmutableCollections() {
+        System.out.println("\n*** Using Compact Immutable Collections ***");
+
+        List<String> list = CompactCollections.listOf("this", "is", "a", "list");
+        Set<String> small = CompactCollections.setOf("a", "b", "c");
+        Map<String, Integer> map = CompactCollections.mapOf("have", 1, "the", 2, "high", 3);
+        System.out.println(list + " " + small + " " + map);
+        System.out.println(small.getClass().getSimpleName() + ", " + map.getClass().getSimpleName());
+
+        Set<Integer> squares = IntStream.range(0, 1000).mapToObj(i -> i * i)
+                .collect(CompactCollections.toCompactSet());
+        Map<Integer, String> names = IntStream.range(0, 1000).boxed().parallel()
+                .collect(CompactCollections.toCompactMap(i -> i, i -> "#" + i));
+        Assert.assertEquals(IntStream.range(0, 1000).mapToObj(i -> i * i).collect(Collectors.toSet()), squares);
+        Assert.assertEquals(IntStream.range(0, 1000).boxed().collect(Collectors.toMap(i -> i, i -> "#" + i)), names);
+        System.out.println(squares.getClass().getSimpleName() + ": " + squares.size() + " squares, contains 961: "
+                + squares.contains(961));
+        System.out.println(names.getClass().getSimpleName() + ": " + names.size() + " names, 42 -> " + names.get(42));
+
+        // final fields: another thread sees the complete collection without synchronization
+        CompletableFuture<Integer> sizeInAnotherThread = CompletableFuture.supplyAsync(names::size);
+        System.out.println("size seen by another thread: " + sizeInAnotherThread.join());
+
+        try {
+            names.put(-1, "not added");
+        } catch (UnsupportedOperationException e) {
+            System.out.println("put: UnsupportedOperationException");
+        }
+        try {
+            CompactCollections.setOf("a", "b", "a");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Printing the Memory Footprint</b> &#9674;&#9674;&#9674;
+     *
+     * <br>
+     * Estimated bytes used by the collection itself (not by the elements), on a 64-bit JVM with compressed references:
+     * 12-byte object headers, 16-byte array headers, 4-byte references and everything aligned to 8 bytes. The JDK
+     * collections are built like the collectors build them ({@code add} one element at a time).
+     *
+     * <pre>
+     * {@code
+     * long bytes = CompactCollections.estimatedBytes(compactMap);
+     * long jdkBytes = CompactCollections.estimatedHashMapBytes(compactMap.size());
+     * }
+     * </pre>
+     */
+    protected static void printingTheMemoryFootprint() {
+        System.out.println("\n*** Printing the Memory Footprint ***");
+
+        System.out.printf("%8s | %12s %12s | %12s %12s | %12s %12s%n",
+                "size", "ArrayList", "CompactList", "HashSet", "CompactSet", "HashMap", "CompactMap");
+        for (int size : new int[]{0, 1, 3, 4, 10, 100, 10_000, 1_000_000}) {
+            List<Integer> list = IntStream.range(0, size).boxed().collect(CompactCollections.toCompactList());
+            Set<Integer> set = IntStream.range(0, size).boxed().collect(CompactCollections.toCompactSet());
+            Map<Integer, Integer> map = IntStream.range(0, size).boxed()
+                    .collect(CompactCollections.toCompactMap(i -> i, i -> i));
+
+            System.out.printf("%8d | %12d %12d | %12d %12d | %12d %12d%n", size,
+                    CompactCollections.estimatedUnmodifiableArrayListBytes(size), CompactCollections.estimatedBytes(list),
+                    CompactCollections.estimatedHashSetBytes(size), CompactCollections.estimatedBytes(set),
+                    CompactCollections.estimatedHashMapBytes(size), CompactCollections.estimatedBytes(map));
+        }
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Taking Persistent Snapshots</b> &#9674;&#9674;&#9674;
+     *
+     * <br>
+     * A lookup table that changes (like the {@code Employees} of recipe 6.5 or a map of books by id) and is read by other
+     * threads is often published as an immutable copy: every change copies the whole table. The
+     * {@link PersistentVector} and {@link PersistentHashMap} share their structure instead: they are trees with 32
+     * children per node, and an update copies only the path from the root to the changed leaf (at most
+     * {@code log32(n)} arrays of 32 slots), the old version staying valid and unchanged. Taking a snapshot is just
+     * keeping the reference.
+     * <br>
+     * A writer updates them through an {@link java.util.concurrent.atomic.AtomicReference} and the readers just read
+     * it: they never block nor see a partial update. A {@code Builder} (what Clojure calls a transient) applies a
+     * batch of changes in place, on the nodes it created itself, and returns a new version in {@code O(1)}; the
+     * collectors use one.
+     *
+     * <pre>
+     * {@code
+     * PersistentVector<String> employees = Stream.of("Anakin", "Obi-Wan", "Padme")
+     *                                            .collect(PersistentVector.toPersistentVector());
+     * PersistentVector<String> snapshot = employees;
+     * employees = employees.plus("Ahsoka").with(0, "Vader");
+     *
+     * AtomicReference<PersistentHashMap<Integer, String>> books = new AtomicReference<>(
+     *         IntStream.range(0, 10_000).boxed()
+     *                  .collect(PersistentHashMap.toPersistentMap(id -> id, id -> "Book " + id)));
+     * books.updateAndGet(map -> map.plus(10_000, "Book 10000").minus(0));
+     * }
+     * </pre>
+     */
+    protected static void takingPersistentSnapshots() {
+        System.out.println("\n*** Taking Persistent Snapshots ***");
+
+        PersistentVector<String> employees = Stream.of("Anakin", "Obi-Wan", "Padme")
+                .collect(PersistentVector.toPersistentVector());
+        PersistentVector<String> snapshot = employees;
+        employees = employees.plus("Ahsoka").with(0, "Vader");
+        System.out.println("snapshot: " + snapshot + ", current: " + employees);
+
+        AtomicReference<PersistentHashMap<Integer, String>> books = new AtomicReference<>(
+                IntStream.range(0, 10_000).boxed()
+                        .collect(PersistentHashMap.toPersistentMap(id -> id, id -> "Book " + id)));
+        PersistentHashMap<Integer, String> before = books.get();
+
+        // a reader iterates over its snapshot while the writer replaces every book
+        CompletableFuture<Long> reader = CompletableFuture.supplyAsync(() -> books.get().values().stream().count());
+        for (int id = 0; id < 10_000; id++) {
+            int bookId = id;
+            books.updateAndGet(map -> map.plus(bookId, "Revised book " + bookId));
+        }
+        System.out.println("reader saw " + reader.join() + " books");
+
+        PersistentHashMap.Builder<Integer, String> batch = books.get().toBuilder();
+        for (int id = 10_000; id < 10_100; id++) {
+            batch.put(id, "Book " + id);
+        }
+        batch.remove(0);
+        books.set(batch.build());
+
+        Assert.assertEquals(10_000, before.size());
+        Assert.assertEquals("Book 42", before.get(42));
+        Assert.assertEquals("Revised book 42", books.get().get(42));
+        Assert.assertNull(books.get().get(0));
+        System.out.println("before: " + before.size() + " books, " + before.get(42)
+                + "; now: " + books.get().size() + " books, " + books.get().get(42));
+    }
+
+    /**
+     * Immutable, exactly sized, array-backed {@link List}, {@link Set} and {@link Map} (like the {@code List.of},
+     * {@code Set.of} and {@code Map.of} of Java 9, which don't exist on Java 8).
+     *
+     * <ul>
+     *     <li>
+     *         {@link CompactList} - the elements in an array of exactly {@code size()} slots
+     *     </li>
+     *     <li>
+     *         {@link SmallSet} / {@link SmallMap} - up to 3 elements / entries in fields, compared with {@code equals}
+     *         one after the other
+     *     </li>
+     *     <li>
+     *         {@link CompactSet} / {@link CompactMap} - the elements (keys and values next to each other for the map)
+     *         in an exactly sized array, in insertion order, and an open-addressing hash table of {@code int} indexes
+     *         into that array, at most 2/3 full
+     *     </li>
+     * </ul>
+     *
+     * Like Java 9's collections, they reject {@code null} elements, keys and values, and the factory methods reject
+     * duplicates; the collectors keep the first element (set) or throw on duplicate keys unless a merge function is
+     * given (map), like {@link Collectors#toSet()} and {@link Collectors#toMap(Function, Function)}.
+     * <br>
+     * All the fields are {@code final} and the arrays are never written after the constructor: by the
+     * {@code final} field semantics of the Java Memory Model, any thread that gets a reference sees the complete
+     * collection, even without synchronization.
+     */
+    protected static final class CompactCollections {
+        /** Sets and maps up to this size use {@link SmallSet} / {@link SmallMap}. */
+        private static final int SMALL_SIZE = 3;
+
+        private CompactCollections() {
+        }
+
+        /**
+         * @param elements the elements, not {@code null}
+         * @param <E> the type of the elements
+         * @return an immutable list of the elements
+         */
+        @SafeVarargs
+        public static <E> List<E> listOf(E... elements) {
+            Object[] copy = new Object[elements.length];
+            for (int i = 0; i < elements.length; i++) {
+                copy[i] = Objects.requireNonNull(elements[i], "element");
+            }
+            return CompactList.of(copy);
+        }
+
+        /**
+         * @param collection the elements, not {@code null}
+         * @param <E> the type of the elements
+         * @return an immutable list of the elements; {@code collection} itself if it already is one
+         */
+        @SuppressWarnings("unchecked")
+        public static <E> List<E> copyOf(Collection<? extends E> collection) {
+            if (collection instanceof CompactList) {
+                return (List<E>) collection;
+            }
+            return CompactList.of(requireNoNulls(collection.toArray()));
+        }
+
+        /**
+         * @param elements the elements, not {@code null} and without duplicates
+         * @param <E> the type of the elements
+         * @return an immutable set of the elements, in the same order
+         * @throws IllegalArgumentException if there are duplicate elements
+         */
+        @SafeVarargs
+        public static <E> Set<E> setOf(E... elements) {
+            HashBuilder builder = new HashBuilder(1, elements.length);
+            for (E element : elements) {
+                if (builder.add(element, null) >= 0) {
+                    throw new IllegalArgumentException("duplicate element: " + element);
+                }
+            }
+            return builder.toSet();
+        }
+
+        /**
+         * @param k1 the first key
+         * @param v1 the value of the first key
+         * @param <K> the type of the keys
+         * @param <V> the type of the values
+         * @return an immutable map with one entry
+         */
+        public static <K, V> Map<K, V> mapOf(K k1, V v1) {
+            return mapOfPairs(k1, v1);
+        }
+
+        /**
+         * @return an immutable map with two entries, in this order
+         * @see #mapOf(Object, Object)
+         */
+        public static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2) {
+            return mapOfPairs(k1, v1, k2, v2);
+        }
+
+        /**
+         * @return an immutable map with three entries, in this order
+         * @see #mapOf(Object, Object)
+         */
+        public static <K, V> Map<K, V> mapOf(K k1, V v1, K k2, V v2, K k3, V v3) {
+            return mapOfPairs(k1, v1, k2, v2, k3, v3);
+        }
+
+        private static <K, V> Map<K, V> mapOfPairs(Object... pairs) {
+            HashBuilder builder = new HashBuilder(2, pairs.length / 2);
+            for (int i = 0; i < pairs.length; i += 2) {
+                if (builder.add(pairs[i], Objects.requireNonNull(pairs[i + 1], "value")) >= 0) {
+                    throw new IllegalArgumentException("duplicate key: " + pairs[i]);
+                }
+            }
+            return builder.toMap();
+        }
+
+        /**
+         * @param map the entries, without {@code null} keys or values
+         * @param <K> the type of the keys
+         * @param <V> the type of the values
+         * @return an immutable map of the entries, in the iteration order of {@code map}
+         */
+        @SuppressWarnings("unchecked")
+        public static <K, V> Map<K, V> copyOf(Map<? extends K, ? extends V> map) {
+            if (map instanceof CompactMap || map instanceof SmallMap) {
+                return (Map<K, V>) map;
+            }
+            HashBuilder builder = new HashBuilder(2, map.size());
+            map.forEach((key, value) -> builder.add(key, Objects.requireNonNull(value, "value")));
+            return builder.toMap();
+        }
+
+        /**
+         * Like {@code collectingAndThen(toList(), Collections::unmodifiableList)}, with an exactly sized array.
+         *
+         * @param <T> the type of the elements
+         * @return a {@link Collector} returning an immutable list
+         */
+        public static <T> Collector<T, ?, List<T>> toCompactList() {
+            return Collector.<T, ArrayList<T>, List<T>>of(ArrayList::new,
+                    ArrayList::add,
+                    (left, right) -> {
+                        left.addAll(right);
+                        return left;
+                    },
+                    list -> CompactList.of(requireNoNulls(list.toArray())));
+        }
+
+        /**
+         * Like {@code collectingAndThen(toSet(), Collections::unmodifiableSet)}, keeping the first of equal elements
+         * and the encounter order. The elements are added straight into the array and the hash index of the set.
+         *
+         * @param <T> the type of the elements
+         * @return a {@link Collector} returning an immutable set
+         */
+        public static <T> Collector<T, ?, Set<T>> toCompactSet() {
+            return Collector.<T, HashBuilder, Set<T>>of(() -> new HashBuilder(1, 0),
+                    (builder, t) -> builder.add(t, null),
+                    (left, right) -> left.addAll(right, null),
+                    HashBuilder::toSet);
+        }
+
+        /**
+         * Like {@link Collectors#toMap(Function, Function)}: a duplicate key throws an {@link IllegalStateException}.
+         *
+         * @param keyMapper the key of an element
+         * @param valueMapper the value of an element
+         * @param <T> the type of the elements
+         * @param <K> the type of the keys
+         * @param <V> the type of the values
+         * @return a {@link Collector} returning an immutable map, in encounter order
+         */
+        public static <T, K, V> Collector<T, ?, Map<K, V>> toCompactMap(Function<? super T, ? extends K> keyMapper,
+                                                                        Function<? super T, ? extends V> valueMapper) {
+            return toCompactMap(keyMapper, valueMapper, null);
+        }
+
+        /**
+         * Like {@link Collectors#toMap(Function, Function, BinaryOperator)}.
+         *
+         * @param keyMapper the key of an element
+         * @param valueMapper the value of an element
+         * @param mergeFunction merges the values of the same key, in encounter order
+         * @param <T> the type of the elements
+         * @param <K> the type of the keys
+         * @param <V> the type of the values
+         * @return a {@link Collector} returning an immutable map, in encounter order
+         */
+        @SuppressWarnings("unchecked")
+        public static <T, K, V> Collector<T, ?, Map<K, V>> toCompactMap(Function<? super T, ? extends K> keyMapper,
+                                                                        Function<? super T, ? extends V> valueMapper,
+                                                                        BinaryOperator<V> mergeFunction) {
+            BinaryOperator<Object> merge = (BinaryOperator<Object>) (BinaryOperator<?>) mergeFunction;
+            return Collector.<T, HashBuilder, Map<K, V>>of(() -> new HashBuilder(2, 0),
+                    (builder, t) -> builder.put(keyMapper.apply(t), valueMapper.apply(t), merge),
+                    (left, right) -> left.addAll(right, merge),
+                    HashBuilder::toMap);
+        }
+
+        /**
+         * @param collection a collection created by this class
+         * @return the estimated number of bytes used by the collection, without its elements
+         */
+        public static long estimatedBytes(Object collection) {
+            if (collection instanceof Footprint) {
+                return ((Footprint) collection).estimatedBytes();
+            }
+            throw new IllegalArgumentException("not a compact collection: " + collection.getClass().getName());
+        }
+
+        /**
+         * @param size number of elements added one at a time (from the default capacity of 10)
+         * @return the estimated bytes of an {@code unmodifiableList(ArrayList)}
+         */
+        public static long estimatedUnmodifiableArrayListBytes(int size) {
+            long capacity = 0;
+            while (capacity < size) {
+                capacity = capacity == 0 ? 10 : capacity + (capacity >> 1);
+            }
+            // UnmodifiableRandomAccessList (header, list, list): 24, ArrayList (header, modCount, size, array): 24
+            return 24 + 24 + (capacity == 0 ? 0 : arrayBytes(capacity, 4));
+        }
+
+        /**
+         * @param size number of elements added one at a time
+         * @return the estimated bytes of an {@code unmodifiableSet(HashSet)}
+         */
+        public static long estimatedHashSetBytes(int size) {
+            // UnmodifiableSet: 16, HashSet: 16
+            return 16 + 16 + estimatedHashMapBytes(size);
+        }
+
+        /**
+         * @param size number of entries put one at a time
+         * @return the estimated bytes of a {@link HashMap} (with its entry set view), without the unmodifiable view
+         */
+        public static long estimatedHashMapBytes(int size) {
+            long table = 0;
+            if (size > 0) {
+                table = 16;
+                while (size > table * 3 / 4) {
+                    table <<= 1;
+                }
+            }
+            // HashMap: 48, Node (header, hash, key, value, next): 32
+            return 48 + (table == 0 ? 0 : arrayBytes(table, 4)) + 32L * size;
+        }
+
+        private static long arrayBytes(long length, int elementBytes) {
+            return align(16 + length * elementBytes);
+        }
+
+        private static long align(long bytes) {
+            return (bytes + 7) & ~7L;
+        }
+
+        private static Object[] requireNoNulls(Object[] elements) {
+            for (Object element : elements) {
+                Objects.requireNonNull(element, "element");
+            }
+            return elements;
+        }
+
+        private static int spread(Object key) {
+            int h = key.hashCode() * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        /** Smallest power of two that keeps the hash index at most 2/3 full. */
+        private static int indexSize(int size) {
+            int capacity = 4;
+            while (capacity * 2 < size * 3) {
+                capacity <<= 1;
+            }
+            return capacity;
+        }
+
+        /**
+         * Slot of {@code key} in {@code index}, or {@code ~slot} of the empty slot where it would go.
+         *
+         * @param index 1 + the position of each key in {@code data}; 0 for an empty slot
+         * @param data the keys, every {@code stride} slots
+         */
+        private static int probe(int[] index, Object[] data, int stride, Object key) {
+            int mask = index.length - 1;
+            int i = spread(key) & mask;
+            int position;
+            while ((position = index[i]) != 0) {
+                if (key.equals(data[(position - 1) * stride])) {
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+            return ~i;
+        }
+
+        /**
+         * Hash index of {@code size} distinct keys: each one goes into the first empty slot, without any
+         * {@code equals}.
+         *
+         * @param hashes the {@link #spread(Object)} hash of each key
+         */
+        private static int[] buildIndex(int[] hashes, int size) {
+            int[] index = new int[indexSize(size)];
+            int mask = index.length - 1;
+            for (int position = 0; position < size; position++) {
+                int i = hashes[position] & mask;
+                while (index[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                index[i] = position + 1;
+            }
+            return index;
+        }
+
+        /** Estimated size of the collection itself. */
+        private interface Footprint {
+            long estimatedBytes();
+        }
+
+        /**
+         * Keys (with their values when {@code stride} is 2) in insertion order, and the hash index, growing while a
+         * collector adds to it. The builder also keeps the hash of each key (the collections don't, to stay small):
+         * probing compares them before calling {@code equals}, and growing the index doesn't call {@code hashCode}
+         * again.
+         */
+        private static final class HashBuilder {
+            private final int stride;
+            private Object[] data;
+            private int[] hashes;
+            private int[] index;
+            private int size;
+
+            private HashBuilder(int stride, int expectedSize) {
+                this.stride = stride;
+                this.data = new Object[Math.max(expectedSize, 4) * stride];
+                this.hashes = new int[Math.max(expectedSize, 4)];
+                this.index = new int[indexSize(expectedSize)];
+            }
+
+            /**
+             * @return the position of the equal key already there, or -1 if the key was added
+             */
+            private int add(Object key, Object value) {
+                Objects.requireNonNull(key, stride == 1 ? "element" : "key");
+                int hash = spread(key);
+                int mask = index.length - 1;
+                int i = hash & mask;
+                int position;
+                while ((position = index[i]) != 0) {
+                    if (hashes[position - 1] == hash && key.equals(data[(position - 1) * stride])) {
+                        return position - 1;
+                    }
+                    i = (i + 1) & mask;
+                }
+
+                if (size == hashes.length) {
+                    data = Arrays.copyOf(data, data.length * 2);
+                    hashes = Arrays.copyOf(hashes, hashes.length * 2);
+                }
+                data[size * stride] = key;
+                if (stride == 2) {
+                    data[size * 2 + 1] = value;
+                }
+                hashes[size] = hash;
+                index[i] = ++size;
+                if (index.length * 2 < size * 3) {
+                    index = buildIndex(hashes, size);
+                }
+                return -1;
+            }
+
+            private void put(Object key, Object value, BinaryOperator<Object> mergeFunction) {
+                Objects.requireNonNull(value, "value");
+                int position = add(key, value);
+                if (position >= 0) {
+                    Object oldValue = data[position * 2 + 1];
+                    if (mergeFunction == null) {
+                        throw new IllegalStateException(String.format(
+                                "Duplicate key %s (attempted merging values %s and %s)", key, oldValue, value));
+                    }
+                    data[position * 2 + 1] = Objects.requireNonNull(mergeFunction.apply(oldValue, value), "value");
+                }
+            }
+
+            private HashBuilder addAll(HashBuilder other, BinaryOperator<Object> mergeFunction) {
+                for (int i = 0; i < other.size; i++) {
+                    if (stride == 1) {
+                        add(other.data[i], null);
+                    } else {
+                        put(other.data[i * 2], other.data[i * 2 + 1], mergeFunction);
+                    }
+                }
+                return this;
+            }
+
+            private Object[] trimmedData() {
+                return data.length == size * stride ? data : Arrays.copyOf(data, size * stride);
+            }
+
+            private int[] trimmedIndex() {
+                return index.length == indexSize(size) ? index : buildIndex(hashes, size);
+            }
+
+            @SuppressWarnings("unchecked")
+            private <E> Set<E> toSet() {
+                if (size <= SMALL_SIZE) {
+                    return (Set<E>) new SmallSet<>(data, size);
+                }
+                Object[] elements = trimmedData();
+                return new CompactSet<>(elements, trimmedIndex());
+            }
+
+            @SuppressWarnings("unchecked")
+            private <K, V> Map<K, V> toMap() {
+                if (size <= SMALL_SIZE) {
+                    return (Map<K, V>) new SmallMap<>(data, size);
+                }
+                Object[] entries = trimmedData();
+                return new CompactMap<>(entries, trimmedIndex());
+            }
+        }
+
+        /**
+         * Immutable list backed by an array of exactly {@code size()} elements.
+         *
+         * @param <E> the type of the elements
+         */
+        protected static final class CompactList<E> extends AbstractList<E> implements RandomAccess, Footprint {
+            private static final CompactList<?> EMPTY = new CompactList<>(new Object[0]);
+
+            private final Object[] elements;
+
+            private CompactList(Object[] elements) {
+                this.elements = elements;
+            }
+
+            @SuppressWarnings("unchecked")
+            private static <E> List<E> of(Object[] elements) {
+                return elements.length == 0 ? (List<E>) EMPTY : new CompactList<>(elements);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E get(int index) {
+                return (E) elements[index];
+            }
+
+            @Override
+            public int size() {
+                return elements.length;
+            }
+
+            @Override
+            public Object[] toArray() {
+                return elements.clone();
+            }
+
+            @Override
+            public long estimatedBytes() {
+                return this == EMPTY ? 0 : 16 + arrayBytes(elements.length, 4);
+            }
+        }
+
+        /**
+         * Immutable set of up to 3 elements, kept in fields.
+         *
+         * @param <E> the type of the elements
+         */
+        protected static final class SmallSet<E> extends AbstractSet<E> implements Footprint {
+            private final E e0;
+            private final E e1;
+            private final E e2;
+            private final int size;
+
+            @SuppressWarnings("unchecked")
+            private SmallSet(Object[] elements, int size) {
+                this.e0 = size > 0 ? (E) elements[0] : null;
+                this.e1 = size > 1 ? (E) elements[1] : null;
+                this.e2 = size > 2 ? (E) elements[2] : null;
+                this.size = size;
+            }
+
+            private E get(int i) {
+                return i == 0 ? e0 : i == 1 ? e1 : e2;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o != null && (o.equals(e0) || o.equals(e1) || o.equals(e2));
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<E> iterator() {
+                return new Iterator<E>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public E next() {
+                        if (next >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        return get(next++);
+                    }
+                };
+            }
+
+            @Override
+            public long estimatedBytes() {
+                return 32;
+            }
+        }
+
+        /**
+         * Immutable set: the elements in insertion order in an exactly sized array, and a hash index of their
+         * positions.
+         *
+         * @param <E> the type of the elements
+         */
+        protected static final class CompactSet<E> extends AbstractSet<E> implements Footprint {
+            private final Object[] elements;
+            private final int[] index;
+
+            private CompactSet(Object[] elements, int[] index) {
+                this.elements = elements;
+                this.index = index;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o != null && probe(index, elements, 1, o) >= 0;
+            }
+
+            @Override
+            public int size() {
+                return elements.length;
+            }
+
+            @Override
+            public Iterator<E> iterator() {
+                return new Iterator<E>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < elements.length;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public E next() {
+                        if (next >= elements.length) {
+                            throw new NoSuchElementException();
+                        }
+                        return (E) elements[next++];
+                    }
+                };
+            }
+
+            @Override
+            public Object[] toArray() {
+                return elements.clone();
+            }
+
+            @Override
+            public long estimatedBytes() {
+                return 24 + arrayBytes(elements.length, 4) + arrayBytes(index.length, 4);
+            }
+        }
+
+        /**
+         * Immutable map of up to 3 entries, kept in fields.
+         *
+         * @param <K> the type of the keys
+         * @param <V> the type of the values
+         */
+        protected static final class SmallMap<K, V> extends AbstractMap<K, V> implements Footprint {
+            private final K k0;
+            private final V v0;
+            private final K k1;
+            private final V v1;
+            private final K k2;
+            private final V v2;
+            private final int size;
+
+            @SuppressWarnings("unchecked")
+            private SmallMap(Object[] entries, int size) {
+                this.k0 = size > 0 ? (K) entries[0] : null;
+                this.v0 = size > 0 ? (V) entries[1] : null;
+                this.k1 = size > 1 ? (K) entries[2] : null;
+                this.v1 = size > 1 ? (V) entries[3] : null;
+                this.k2 = size > 2 ? (K) entries[4] : null;
+                this.v2 = size > 2 ? (V) entries[5] : null;
+                this.size = size;
+            }
+
+            @Override
+            public V get(Object key) {
+                if (key == null) {
+                    return null;
+                }
+                return key.equals(k0) ? v0 : key.equals(k1) ? v1 : key.equals(k2) ? v2 : null;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return get(key) != null;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Set<Entry<K, V>> entrySet() {
+                return new AbstractSet<Entry<K, V>>() {
+                    @Override
+                    public Iterator<Entry<K, V>> iterator() {
+                        return new Iterator<Entry<K, V>>() {
+                            private int next;
+
+                            @Override
+                            public boolean hasNext() {
+                                return next < size;
+                            }
+
+                            @Override
+                            public Entry<K, V> next() {
+                                if (next >= size) {
+                                    throw new NoSuchElementException();
+                                }
+                                int i = next++;
+                                return i == 0 ? new SimpleImmutableEntry<>(k0, v0)
+                                        : i == 1 ? new SimpleImmutableEntry<>(k1, v1)
+                                        : new SimpleImmutableEntry<>(k2, v2);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return size;
+                    }
+                };
+            }
+
+            @Override
+            public long estimatedBytes() {
+                return 40;
+            }
+        }
+
+        /**
+         * Immutable map: the entries in insertion order in an exactly sized array (key, value, key, value, ...), and a
+         * hash index of the positions of the keys.
+         *
+         * @param <K> the type of the keys
+         * @param <V> the type of the values
+         */
+        protected static final class CompactMap<K, V> extends AbstractMap<K, V> implements Footprint {
+            private final Object[] entries;
+            private final int[] index;
+
+            private CompactMap(Object[] entries, int[] index) {
+                this.entries = entries;
+                this.index = index;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V get(Object key) {
+                if (key == null) {
+                    return null;
+                }
+                int slot = probe(index, entries, 2, key);
+                return slot < 0 ? null : (V) entries[(index[slot] - 1) * 2 + 1];
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return key != null && probe(index, entries, 2, key) >= 0;
+            }
+
+            @Override
+            public int size() {
+                return entries.length / 2;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void forEach(BiConsumer<? super K, ? super V> action) {
+                for (int i = 0; i < entries.length; i += 2) {
+                    action.accept((K) entries[i], (V) entries[i + 1]);
+                }
+            }
+
+            @Override
+            public Set<Entry<K, V>> entrySet() {
+                return new AbstractSet<Entry<K, V>>() {
+                    @Override
+                    public Iterator<Entry<K, V>> iterator() {
+                        return new Iterator<Entry<K, V>>() {
+                            private int next;
+
+                            @Override
+                            public boolean hasNext() {
+                                return next < entries.length;
+                            }
+
+                            @Override
+                            @SuppressWarnings("unchecked")
+                            public Entry<K, V> next() {
+                                if (next >= entries.length) {
+                                    throw new NoSuchElementException();
+                                }
+                                Entry<K, V> entry = new SimpleImmutableEntry<>((K) entries[next], (V) entries[next + 1]);
+                                next += 2;
+                                return entry;
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return entries.length / 2;
+                    }
+                };
+            }
+
+            @Override
+            public long estimatedBytes() {
+                return 24 + arrayBytes(entries.length, 4) + arrayBytes(index.length, 4);
+            }
+        }
+    }
+
+    /**
+     * Persistent (immutable, structurally shared) vector: a tree of 32-slot arrays with the last elements in a
+     * separate {@code tail} array, like Clojure's {@code PersistentVector}.
+     * <br>
+     * {@link #get(int)} and {@link #with(int, Object)} walk down {@code log32(n)} levels (at most 7 for
+     * {@code Integer.MAX_VALUE} elements), {@link #plus(Object)} usually just copies the tail. The updates return a
+     * new vector sharing all the unchanged arrays with this one, which never changes.
+     * <br>
+     * The {@link Builder} adds and sets in place on the arrays it created itself (those are tagged with its
+     * {@code owner}), and copies the shared ones once, on the first write.
+     *
+     * @param <E> the type of the elements ({@code null} is allowed, like in an {@link ArrayList})
+     */
+    protected static final class PersistentVector<E> extends AbstractList<E> implements RandomAccess {
+        private static final int BITS = 5;
+        private static final int WIDTH = 1 << BITS;
+        private static final int MASK = WIDTH - 1;
+        private static final Node EMPTY_NODE = new Node(null, new Object[WIDTH]);
+        private static final PersistentVector<?> EMPTY = new PersistentVector<>(0, BITS, EMPTY_NODE, new Object[0]);
+
+        private final int size;
+        private final int shift;
+        private final Node root;
+        private final Object[] tail;
+
+        private PersistentVector(int size, int shift, Node root, Object[] tail) {
+            this.size = size;
+            this.shift = shift;
+            this.root = root;
+            this.tail = tail;
+        }
+
+        /**
+         * @param <E> the type of the elements
+         * @return the empty vector
+         */
+        @SuppressWarnings("unchecked")
+        public static <E> PersistentVector<E> empty() {
+            return (PersistentVector<E>) EMPTY;
+        }
+
+        /**
+         * @param elements the elements
+         * @param <E> the type of the elements
+         * @return a vector of the elements
+         */
+        @SafeVarargs
+        public static <E> PersistentVector<E> of(E... elements) {
+            Builder<E> builder = builder();
+            for (E element : elements) {
+                builder.add(element);
+            }
+            return builder.build();
+        }
+
+        /**
+         * @param <E> the type of the elements
+         * @return a builder starting from the empty vector
+         */
+        public static <E> Builder<E> builder() {
+            return PersistentVector.<E>empty().toBuilder();
+        }
+
+        /**
+         * @param <T> the type of the elements
+         * @return a {@link Collector} returning a vector of the elements, in encounter order
+         */
+        public static <T> Collector<T, ?, PersistentVector<T>> toPersistentVector() {
+            return Collector.<T, Builder<T>, PersistentVector<T>>of(PersistentVector::builder,
+                    Builder::add,
+                    Builder::addAll,
+                    Builder::build);
+        }
+
+        /**
+         * @return a builder starting from this vector, which doesn't change
+         */
+        public Builder<E> toBuilder() {
+            return new Builder<>(size, shift, root, Arrays.copyOf(tail, WIDTH));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            checkIndex(index, size);
+            return (E) arrayFor(index, size, shift, root, tail)[index & MASK];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @param element the element to add
+         * @return a new vector with {@code element} at the end
+         */
+        public PersistentVector<E> plus(E element) {
+            int tailSize = size - tailOffset(size);
+            if (tailSize < WIDTH) {
+                Object[] newTail = Arrays.copyOf(tail, tailSize + 1);
+                newTail[tailSize] = element;
+                return new PersistentVector<>(size + 1, shift, root, newTail);
+            }
+
+            Node tailNode = new Node(null, tail);
+            if ((size >>> BITS) > (1 << shift)) {
+                Node newRoot = new Node(null, new Object[WIDTH]);
+                newRoot.array[0] = root;
+                newRoot.array[1] = newPath(shift, tailNode, null);
+                return new PersistentVector<>(size + 1, shift + BITS, newRoot, new Object[]{element});
+            }
+            return new PersistentVector<>(size + 1, shift, pushTail(size, shift, root, tailNode, null),
+                    new Object[]{element});
+        }
+
+        /**
+         * @param index the index of the element to replace
+         * @param element the new element
+         * @return a new vector with {@code element} at {@code index}
+         */
+        public PersistentVector<E> with(int index, E element) {
+            checkIndex(index, size);
+            if (index >= tailOffset(size)) {
+                Object[] newTail = tail.clone();
+                newTail[index & MASK] = element;
+                return new PersistentVector<>(size, shift, root, newTail);
+            }
+            return new PersistentVector<>(size, shift, replace(shift, root, index, element, null), tail);
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+                private int next;
+                private Object[] array;
+
+                @Override
+                public boolean hasNext() {
+                    return next < size;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public E next() {
+                    if (next >= size) {
+                        throw new NoSuchElementException();
+                    }
+                    if ((next & MASK) == 0) {
+                        array = arrayFor(next, size, shift, root, tail);
+                    }
+                    return (E) array[next++ & MASK];
+                }
+            };
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEach(Consumer<? super E> action) {
+            for (int start = 0; start < size; start += WIDTH) {
+                Object[] array = arrayFor(start, size, shift, root, tail);
+                for (int i = 0, end = Math.min(WIDTH, size - start); i < end; i++) {
+                    action.accept((E) array[i]);
+                }
+            }
+        }
+
+        private static void checkIndex(int index, int size) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+        }
+
+        /** Index of the first element in the tail. */
+        private static int tailOffset(int size) {
+            return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+        }
+
+        private static Object[] arrayFor(int index, int size, int shift, Node root, Object[] tail) {
+            if (index >= tailOffset(size)) {
+                return tail;
+            }
+            Node node = root;
+            for (int level = shift; level > 0; level -= BITS) {
+                node = (Node) node.array[(index >>> level) & MASK];
+            }
+            return node.array;
+        }
+
+        /** {@code node} itself if {@code owner} may change it in place, otherwise a copy that {@code owner} may. */
+        private static Node editable(Node node, Object owner) {
+            return owner != null && node.owner == owner ? node : new Node(owner, node.array.clone());
+        }
+
+        private static Node newPath(int level, Node node, Object owner) {
+            if (level == 0) {
+                return node;
+            }
+            Node path = new Node(owner, new Object[WIDTH]);
+            path.array[0] = newPath(level - BITS, node, owner);
+            return path;
+        }
+
+        /** Adds the full tail of a vector of {@code size} elements as the last leaf of the tree. */
+        private static Node pushTail(int size, int level, Node parent, Node tailNode, Object owner) {
+            Node result = editable(parent, owner);
+            int i = ((size - 1) >>> level) & MASK;
+            if (level == BITS) {
+                result.array[i] = tailNode;
+            } else {
+                Node child = (Node) parent.array[i];
+                result.array[i] = child != null
+                        ? pushTail(size, level - BITS, child, tailNode, owner)
+                        : newPath(level - BITS, tailNode, owner);
+            }
+            return result;
+        }
+
+        private static Node replace(int level, Node node, int index, Object element, Object owner) {
+            Node result = editable(node, owner);
+            if (level == 0) {
+                result.array[index & MASK] = element;
+            } else {
+                int i = (index >>> level) & MASK;
+                result.array[i] = replace(level - BITS, (Node) node.array[i], index, element, owner);
+            }
+            return result;
+        }
+
+        /** 32 children (or elements for the leaves), changed in place only by the builder that owns it. */
+        private static final class Node {
+            private final Object owner;
+            private final Object[] array;
+
+            private Node(Object owner, Object[] array) {
+                this.owner = owner;
+                this.array = array;
+            }
+        }
+
+        /**
+         * Mutable builder of {@link PersistentVector}s. Not thread-safe, but the vectors it builds are.
+         *
+         * @param <E> the type of the elements
+         */
+        public static final class Builder<E> {
+            private Object owner = new Object();
+            private int size;
+            private int shift;
+            private Node root;
+            private Object[] tail;
+
+            private Builder(int size, int shift, Node root, Object[] tail) {
+                this.size = size;
+                this.shift = shift;
+                this.root = root;
+                this.tail = tail;
+            }
+
+            /**
+             * @param element the element to add at the end
+             * @return this builder
+             */
+            public Builder<E> add(E element) {
+                int tailSize = size - tailOffset(size);
+                if (tailSize < WIDTH) {
+                    tail[tailSize] = element;
+                    size++;
+                    return this;
+                }
+
+                Node tailNode = new Node(owner, tail);
+                tail = new Object[WIDTH];
+                tail[0] = element;
+                if ((size >>> BITS) > (1 << shift)) {
+                    Node newRoot = new Node(owner, new Object[WIDTH]);
+                    newRoot.array[0] = root;
+                    newRoot.array[1] = newPath(shift, tailNode, owner);
+                    root = newRoot;
+                    shift += BITS;
+                } else {
+                    root = pushTail(size, shift, root, tailNode, owner);
+                }
+                size++;
+                return this;
+            }
+
+            /**
+             * @param other the builder whose elements to add at the end
+             * @return this builder
+             */
+            public Builder<E> addAll(Builder<? extends E> other) {
+                for (int i = 0; i < other.size; i++) {
+                    add(other.get(i));
+                }
+                return this;
+            }
+
+            /**
+             * @param index the index of the element to replace
+             * @param element the new element
+             * @return this builder
+             */
+            public Builder<E> set(int index, E element) {
+                checkIndex(index, size);
+                if (index >= tailOffset(size)) {
+                    tail[index & MASK] = element;
+                } else {
+                    root = replace(shift, root, index, element, owner);
+                }
+                return this;
+            }
+
+            /**
+             * @param index the index of the element
+             * @return the element at {@code index}
+             */
+            @SuppressWarnings("unchecked")
+            public E get(int index) {
+                checkIndex(index, size);
+                return (E) arrayFor(index, size, shift, root, tail)[index & MASK];
+            }
+
+            public int size() {
+                return size;
+            }
+
+            /**
+             * Returns the elements added so far as a vector, in {@code O(1)}. The builder can still be used afterwards:
+             * it will copy the arrays it shares with that vector before changing them.
+             *
+             * @return a vector of the elements
+             */
+            public PersistentVector<E> build() {
+                if (size == 0) {
+                    return empty();
+                }
+                PersistentVector<E> vector = new PersistentVector<>(size, shift, root,
+                        Arrays.copyOf(tail, size - tailOffset(size)));
+                owner = new Object();
+                return vector;
+            }
+        }
+    }
+
+    /**
+     * Persistent (immutable, structurally shared) hash map: a hash array mapped trie (HAMT), like Clojure's
+     * {@code PersistentHashMap}.
+     * <br>
+     * Each level uses 5 bits of the hash of the key to pick one of 32 slots, and each node only stores its used slots,
+     * found with a 32-bit {@code bitmap}: a slot is either a key and its value, or a child node (keys with the same
+     * 5 bits). Keys with the same full hash share a collision node. {@link #get(Object)}, {@link #plus(Object, Object)}
+     * and {@link #minus(Object)} visit {@code log32(n)} nodes, and the updates copy only those.
+     * <br>
+     * Like the {@link CompactCollections}, it rejects {@code null} keys and values.
+     *
+     * @param <K> the type of the keys
+     * @param <V> the type of the values
+     */
+    protected static final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+        private static final int BITS = 5;
+        private static final int MASK = (1 << BITS) - 1;
+        private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(0, null);
+        private static final BinaryOperator<Object> REPLACE = (oldValue, value) -> value;
+
+        private final int size;
+        private final Node root;
+
+        private PersistentHashMap(int size, Node root) {
+            this.size = size;
+            this.root = root;
+        }
+
+        /**
+         * @param <K> the type of the keys
+         * @param <V> the type of the values
+         * @return the empty map
+         */
+        @SuppressWarnings("unchecked")
+        public static <K, V> PersistentHashMap<K, V> empty() {
+            return (PersistentHashMap<K, V>) EMPTY;
+        }
+
+        /**
+         * @param <K> the type of the keys
+         * @param <V> the type of the values
+         * @return a builder starting from the empty map
+         */
+        public static <K, V> Builder<K, V> builder() {
+            return PersistentHashMap.<K, V>empty().toBuilder();
+        }
+
+        /**
+         * Like {@link Collectors#toMap(Function, Function)}: a duplicate key throws an {@link IllegalStateException}.
+         *
+         * @param keyMapper the key of an element
+         * @param valueMapper the value of an element
+         * @param <T> the type of the elements
+         * @param <K> the type of the keys
+         * @param <V> the type of the values
+         * @return a {@link Collector} returning a persistent map
+         */
+        public static <T, K, V> Collector<T, ?, PersistentHashMap<K, V>> toPersistentMap(
+                Function<? super T, ? extends K> keyMapper, Function<? super T, ? extends V> valueMapper) {
+            return toPersistentMap(keyMapper, valueMapper, null);
+        }
+
+        /**
+         * Like {@link Collectors#toMap(Function, Function, BinaryOperator)}.
+         *
+         * @param keyMapper the key of an element
+         * @param valueMapper the value of an element
+         * @param mergeFunction merges the values of the same key, in encounter order
+         * @param <T> the type of the elements
+         * @param <K> the type of the keys
+         * @param <V> the type of the values
+         * @return a {@link Collector} returning a persistent map
+         */
+        @SuppressWarnings("unchecked")
+        public static <T, K, V> Collector<T, ?, PersistentHashMap<K, V>> toPersistentMap(
+                Function<? super T, ? extends K> keyMapper, Function<? super T, ? extends V> valueMapper,
+                BinaryOperator<V> mergeFunction) {
+            BinaryOperator<Object> merge = (BinaryOperator<Object>) (BinaryOperator<?>) mergeFunction;
+            return Collector.<T, Builder<K, V>, PersistentHashMap<K, V>>of(PersistentHashMap::builder,
+                    (builder, t) -> builder.put(keyMapper.apply(t), valueMapper.apply(t), merge),
+                    (left, right) -> left.putAll(right, merge),
+                    Builder::build);
+        }
+
+        /**
+         * @return a builder starting from this map, which doesn't change
+         */
+        public Builder<K, V> toBuilder() {
+            return new Builder<>(size, root);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V get(Object key) {
+            return (V) find(root, key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @param key the key
+         * @param value its new value
+         * @return a new map where {@code key} has {@code value}; this map if it already had it
+         */
+        public PersistentHashMap<K, V> plus(K key, V value) {
+            Change change = new Change();
+            Node newRoot = put(root, null, key, value, REPLACE, change);
+            return newRoot == root ? this : new PersistentHashMap<>(size + change.sizeDelta, newRoot);
+        }
+
+        /**
+         * @param key the key to remove
+         * @return a new map without {@code key}; this map if it didn't have it
+         */
+        public PersistentHashMap<K, V> minus(Object key) {
+            if (key == null || root == null) {
+                return this;
+            }
+            Change change = new Change();
+            Node newRoot = root.remove(null, 0, hash(key), key, change);
+            return newRoot == root ? this : new PersistentHashMap<>(size + change.sizeDelta, newRoot);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEach(BiConsumer<? super K, ? super V> action) {
+            if (root != null) {
+                root.forEach((BiConsumer<Object, Object>) action);
+            }
+        }
+
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            return new AbstractSet<Entry<K, V>>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new EntryIterator<>(root);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+
+        private static int hash(Object key) {
+            int h = key.hashCode() * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        /** Walks down with a loop rather than recursive calls, which the JIT compiler inlines less. */
+        private static Object find(Node root, Object key) {
+            if (key == null || root == null) {
+                return null;
+            }
+            int hash = hash(key);
+            Node node = root;
+            for (int shift = 0; ; shift += BITS) {
+                if (node instanceof CollisionNode) {
+                    return ((CollisionNode) node).find(hash, key);
+                }
+                int bitmap = ((BitmapNode) node).bitmap;
+                int bit = 1 << ((hash >>> shift) & MASK);
+                if ((bitmap & bit) == 0) {
+                    return null;
+                }
+                int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+                Object k = node.array[i];
+                if (k != null) {
+                    return key.equals(k) ? node.array[i + 1] : null;
+                }
+                node = (Node) node.array[i + 1];
+            }
+        }
+
+        private static Node put(Node root, Object owner, Object key, Object value, BinaryOperator<Object> mergeFunction,
+                                Change change) {
+            Objects.requireNonNull(key, "key");
+            Objects.requireNonNull(value, "value");
+            int hash = hash(key);
+            if (root == null) {
+                change.sizeDelta = 1;
+                return new BitmapNode(owner, 1 << (hash & MASK), new Object[]{key, value});
+            }
+            return root.put(owner, 0, hash, key, value, mergeFunction, change);
+        }
+
+        /** Node with the two entries, at level {@code shift}. */
+        private static Node pair(Object owner, int shift, int hash1, Object key1, Object value1,
+                                 int hash2, Object key2, Object value2) {
+            if (hash1 == hash2) {
+                return new CollisionNode(owner, hash1, new Object[]{key1, value1, key2, value2});
+            }
+            int i1 = (hash1 >>> shift) & MASK;
+            int i2 = (hash2 >>> shift) & MASK;
+            if (i1 == i2) {
+                return new BitmapNode(owner, 1 << i1,
+                        new Object[]{null, pair(owner, shift + BITS, hash1, key1, value1, hash2, key2, value2)});
+            }
+            return new BitmapNode(owner, (1 << i1) | (1 << i2), i1 < i2
+                    ? new Object[]{key1, value1, key2, value2}
+                    : new Object[]{key2, value2, key1, value1});
+        }
+
+        private static Object merge(Object key, Object oldValue, Object value, BinaryOperator<Object> mergeFunction) {
+            if (mergeFunction == null) {
+                throw new IllegalStateException(String.format(
+                        "Duplicate key %s (attempted merging values %s and %s)", key, oldValue, value));
+            }
+            return Objects.requireNonNull(mergeFunction.apply(oldValue, value), "value");
+        }
+
+        private static Object[] insertPair(Object[] array, int i, Object key, Object value) {
+            Object[] result = new Object[array.length + 2];
+            System.arraycopy(array, 0, result, 0, i);
+            result[i] = key;
+            result[i + 1] = value;
+            System.arraycopy(array, i, result, i + 2, array.length - i);
+            return result;
+        }
+
+        private static Object[] removePair(Object[] array, int i) {
+            Object[] result = new Object[array.length - 2];
+            System.arraycopy(array, 0, result, 0, i);
+            System.arraycopy(array, i + 2, result, i, result.length - i);
+            return result;
+        }
+
+        /** How an update changed the size of the map. */
+        private static final class Change {
+            private int sizeDelta;
+        }
+
+        /**
+         * Key and value pairs: {@code array[2i]} is a key and {@code array[2i + 1]} its value, or {@code array[2i]} is
+         * {@code null} and {@code array[2i + 1]} a child node. Changed in place only by the builder that owns it.
+         */
+        private abstract static class Node {
+            final Object owner;
+            Object[] array;
+
+            Node(Object owner, Object[] array) {
+                this.owner = owner;
+                this.array = array;
+            }
+
+            /** @return the node with the entry, {@code this} if unchanged */
+            abstract Node put(Object owner, int shift, int hash, Object key, Object value,
+                              BinaryOperator<Object> mergeFunction, Change change);
+
+            /** @return the node without the entry, {@code this} if unchanged, {@code null} if empty */
+            abstract Node remove(Object owner, int shift, int hash, Object key, Change change);
+
+            abstract Node copy(Object owner);
+
+            Node editable(Object owner) {
+                return owner != null && this.owner == owner ? this : copy(owner);
+            }
+
+            Node withSlot(Object owner, int i, Object value) {
+                Node node = editable(owner);
+                node.array[i] = value;
+                return node;
+            }
+
+            void forEach(BiConsumer<Object, Object> action) {
+                for (int i = 0; i < array.length; i += 2) {
+                    if (array[i] != null) {
+                        action.accept(array[i], array[i + 1]);
+                    } else {
+                        ((Node) array[i + 1]).forEach(action);
+                    }
+                }
+            }
+        }
+
+        private static final class BitmapNode extends Node {
+            private int bitmap;
+
+            private BitmapNode(Object owner, int bitmap, Object[] array) {
+                super(owner, array);
+                this.bitmap = bitmap;
+            }
+
+            @Override
+            Node put(Object owner, int shift, int hash, Object key, Object value,
+                     BinaryOperator<Object> mergeFunction, Change change) {
+                int bit = 1 << ((hash >>> shift) & MASK);
+                int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+                if ((bitmap & bit) == 0) {
+                    change.sizeDelta = 1;
+                    Object[] newArray = insertPair(array, i, key, value);
+                    if (owner != null && this.owner == owner) {
+                        array = newArray;
+                        bitmap |= bit;
+                        return this;
+                    }
+                    return new BitmapNode(owner, bitmap | bit, newArray);
+                }
+
+                Object k = array[i];
+                Object v = array[i + 1];
+                if (k == null) {
+                    Node child = (Node) v;
+                    Node newChild = child.put(owner, shift + BITS, hash, key, value, mergeFunction, change);
+                    return newChild == child ? this : withSlot(owner, i + 1, newChild);
+                }
+                if (key.equals(k)) {
+                    Object newValue = merge(key, v, value, mergeFunction);
+                    return newValue == v ? this : withSlot(owner, i + 1, newValue);
+                }
+                change.sizeDelta = 1;
+                Node node = editable(owner);
+                node.array[i] = null;
+                node.array[i + 1] = pair(owner, shift + BITS, hash(k), k, v, hash, key, value);
+                return node;
+            }
+
+            @Override
+            Node remove(Object owner, int shift, int hash, Object key, Change change) {
+                int bit = 1 << ((hash >>> shift) & MASK);
+                if ((bitmap & bit) == 0) {
+                    return this;
+                }
+                int i = 2 * Integer.bitCount(bitmap & (bit - 1));
+                Object k = array[i];
+                if (k == null) {
+                    Node child = (Node) array[i + 1];
+                    Node newChild = child.remove(owner, shift + BITS, hash, key, change);
+                    if (newChild == child) {
+                        return this;
+                    }
+                    if (newChild != null) {
+                        return withSlot(owner, i + 1, newChild);
+                    }
+                } else if (key.equals(k)) {
+                    change.sizeDelta = -1;
+                } else {
+                    return this;
+                }
+
+                if (bitmap == bit) {
+                    return null;
+                }
+                Object[] newArray = removePair(array, i);
+                if (owner != null && this.owner == owner) {
+                    array = newArray;
+                    bitmap ^= bit;
+                    return this;
+                }
+                return new BitmapNode(owner, bitmap ^ bit, newArray);
+            }
+
+            @Override
+            Node copy(Object owner) {
+                return new BitmapNode(owner, bitmap, array.clone());
+            }
+        }
+
+        /** Keys with the same full hash, compared one after the other. */
+        private static final class CollisionNode extends Node {
+            private final int hash;
+
+            private CollisionNode(Object owner, int hash, Object[] array) {
+                super(owner, array);
+                this.hash = hash;
+            }
+
+            private int indexOf(Object key) {
+                for (int i = 0; i < array.length; i += 2) {
+                    if (key.equals(array[i])) {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+
+            private Object find(int hash, Object key) {
+                int i = hash == this.hash ? indexOf(key) : -1;
+                return i < 0 ? null : array[i + 1];
+            }
+
+            @Override
+            Node put(Object owner, int shift, int hash, Object key, Object value,
+                     BinaryOperator<Object> mergeFunction, Change change) {
+                if (hash != this.hash) {
+                    // a key with another hash reached this level: push this node one level down
+                    return new BitmapNode(owner, 1 << ((this.hash >>> shift) & MASK), new Object[]{null, this})
+                            .put(owner, shift, hash, key, value, mergeFunction, change);
+                }
+                int i = indexOf(key);
+                if (i >= 0) {
+                    Object oldValue = array[i + 1];
+                    Object newValue = merge(key, oldValue, value, mergeFunction);
+                    return newValue == oldValue ? this : withSlot(owner, i + 1, newValue);
+                }
+                change.sizeDelta = 1;
+                Node node = editable(owner);
+                node.array = insertPair(array, array.length, key, value);
+                return node;
+            }
+
+            @Override
+            Node remove(Object owner, int shift, int hash, Object key, Change change) {
+                int i = hash == this.hash ? indexOf(key) : -1;
+                if (i < 0) {
+                    return this;
+                }
+                change.sizeDelta = -1;
+                if (array.length == 2) {
+                    return null;
+                }
+                Node node = editable(owner);
+                node.array = removePair(array, i);
+                return node;
+            }
+
+            @Override
+            Node copy(Object owner) {
+                return new CollisionNode(owner, hash, array.clone());
+            }
+        }
+
+        /** Depth-first iterator over the entries, with a stack of (node, next slot) pairs. */
+        private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+            /** Enough for 7 levels of 5 bits (32-bit hashes) and a collision node. */
+            private static final int MAX_DEPTH = 8;
+
+            private final Node[] nodes = new Node[MAX_DEPTH];
+            private final int[] positions = new int[MAX_DEPTH];
+            private int depth;
+            private Object nextKey;
+            private Object nextValue;
+
+            private EntryIterator(Node root) {
+                if (root == null) {
+                    depth = -1;
+                } else {
+                    nodes[0] = root;
+                }
+                advance();
+            }
+
+            private void advance() {
+                nextKey = null;
+                while (depth >= 0) {
+                    Node node = nodes[depth];
+                    int position = positions[depth];
+                    if (position >= node.array.length) {
+                        depth--;
+                        continue;
+                    }
+                    positions[depth] = position + 2;
+                    if (node.array[position] != null) {
+                        nextKey = node.array[position];
+                        nextValue = node.array[position + 1];
+                        return;
+                    }
+                    depth++;
+                    nodes[depth] = (Node) node.array[position + 1];
+                    positions[depth] = 0;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return nextKey != null;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Entry<K, V> next() {
+                if (nextKey == null) {
+                    throw new NoSuchElementException();
+                }
+                Entry<K, V> entry = new SimpleImmutableEntry<>((K) nextKey, (V) nextValue);
+                advance();
+                return entry;
+            }
+        }
+
+        /**
+         * Mutable builder of {@link PersistentHashMap}s. Not thread-safe, but the maps it builds are.
+         *
+         * @param <K> the type of the keys
+         * @param <V> the type of the values
+         */
+        public static final class Builder<K, V> {
+            private final Change change = new Change();
+            private Object owner = new Object();
+            private int size;
+            private Node root;
+
+            private Builder(int size, Node root) {
+                this.size = size;
+                this.root = root;
+            }
+
+            /**
+             * @param key the key
+             * @param value its new value
+             * @return this builder
+             */
+            public Builder<K, V> put(K key, V value) {
+                return put(key, value, REPLACE);
+            }
+
+            private Builder<K, V> put(Object key, Object value, BinaryOperator<Object> mergeFunction) {
+                change.sizeDelta = 0;
+                root = PersistentHashMap.put(root, owner, key, value, mergeFunction, change);
+                size += change.sizeDelta;
+                return this;
+            }
+
+            private Builder<K, V> putAll(Builder<K, V> other, BinaryOperator<Object> mergeFunction) {
+                if (other.root != null) {
+                    other.root.forEach((key, value) -> put(key, value, mergeFunction));
+                }
+                return this;
+            }
+
+            /**
+             * @param key the key to remove
+             * @return this builder
+             */
+            public Builder<K, V> remove(Object key) {
+                if (key != null && root != null) {
+                    change.sizeDelta = 0;
+                    root = root.remove(owner, 0, hash(key), key, change);
+                    size += change.sizeDelta;
+                }
+                return this;
+            }
+
+            /**
+             * @param key the key
+             * @return its value, or {@code null}
+             */
+            @SuppressWarnings("unchecked")
+            public V get(Object key) {
+                return (V) find(root, key);
+            }
+
+            public int size() {
+                return size;
+            }
+
+            /**
+             * Returns the entries put so far as a map, in {@code O(1)}. The builder can still be used afterwards: it
+             * will copy the nodes it shares with that map before changing them.
+             *
+             * @return a map of the entries
+             */
+            public PersistentHashMap<K, V> build() {
+                if (size == 0) {
+                    return empty();
+                }
+                owner = new Object();
+                return new PersistentHashMap<>(size, root);
+            }
+        }
+    }
 }
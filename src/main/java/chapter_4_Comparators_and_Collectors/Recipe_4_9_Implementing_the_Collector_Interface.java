@@ -1,4 +1,328 @@
 package chapter_4_Comparators_and_Collectors;
 
+import org.junit.Assert;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * <h1>(4.9.) Implementing the Collector Interface</h1>
+ * <br>
+ *
+ * <ol>
+ *     <li><h2>TO DO</h2>
+ *         - provide your own implementation of {@link Collector}, because none of the factory methods in
+ *         {@link Collectors} give you exactly what you need
+ *     </li>
+ *
+ *     <li><h2>HOW</h2>
+ *         - provide lambdas or method references for the {@link Supplier}, accumulator ({@link BiConsumer}), combiner
+ *         ({@link BinaryOperator}) and finisher ({@link Function}) to the static {@code Collector.of} factory methods,
+ *         along with the {@link Collector.Characteristics} that apply
+ *     </li>
+ *
+ *     <li><h2>EQ.</h2>
+ *         <ul>
+ *             <li>
+ *                 {@link #implementingTheCollectorInterface()}
+ *                 - collecting into an unmodifiable {@link SortedSet} with {@code Collector.of}
+ *             </li>
+ *             <li>
+ *                 {@link #declaringCollectorCharacteristics()}
+ *                 - concurrent, unordered and identity-finish collectors ({@link CharacteristicCollectors})
+ *             </li>
+ *        </ul>
+ *     </li>
+ * </ol>
+ *
+ * <br>
+ * The characteristics tell the stream what it may skip:
+ * <ul>
+ *     <li>
+ *         {@link Collector.Characteristics#CONCURRENT} - the accumulator can be called from several threads on the
+ *         same container: a parallel stream that is unordered (or collected by an {@code UNORDERED} collector) creates
+ *         a single container and never calls the combiner
+ *     </li>
+ *     <li>
+ *         {@link Collector.Characteristics#UNORDERED} - the result doesn't depend on the encounter order
+ *     </li>
+ *     <li>
+ *         {@link Collector.Characteristics#IDENTITY_FINISH} - the container is the result: the finisher is never called
+ *     </li>
+ * </ul>
+ *
+ * @see chapter_3_Streams.Recipe_3_3_Reduction_Operations_Using_Reduce#usingACollector() the three-argument collect
+ * @see Recipe_4_6_Downstream_Collectors.StripedGroups#countingByConcurrent(Function) concurrent counting by key
+ */
 public class Recipe_4_9_Implementing_the_Collector_Interface {
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Running methods for this specific sub-chapter</b> &#9674;&#9674;&#9674;
+     *
+     * @param args not important
+     */
+    public static void main(String[] args) {
+        System.out.println("Chapter 4 - 4.9. Implementing the Collector Interface");
+
+
+        System.out.println();
+        // *** Implementing the Collector Interface ***
+        implementingTheCollectorInterface();
+
+        System.out.println();
+        // *** Declaring Collector Characteristics ***
+        declaringCollectorCharacteristics();
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Implementing the Collector Interface</b> &#9674;&#9674;&#9674;
+     *
+     * <pre>
+     * {@code
+     * public static SortedSet<String> oddLengthStringSet(String... strings) {
+     *     Collector<String, ?, SortedSet<String>> intoSet =
+     *             Collector.of(TreeSet<String>::new,
+     *                          SortedSet::add,
+     *                          (left, right) -> {
+     *                              left.addAll(right);
+     *                              return left;
+     *                          },
+     *                          Collections::unmodifiableSortedSet);
+     *     return Stream.of(strings)
+     *                  .filter(s -> s.length() % 2 != 0)
+     *                  .collect(intoSet);
+     * }
+     * }
+     * </pre>
+     */
+    protected static void implementingTheCollectorInterface() {
+        System.out.println("\n*** Implementing the Collector Interface ***");
+
+        List<String> strings = Stream.of("this", "is", "a", "list", "of", "strings", "to", "use", "as", "a", "demo")
+                .collect(Collectors.toList());
+        SortedSet<String> oddLengthStrings = oddLengthStringSet(strings.toArray(new String[0]));
+        System.out.println(oddLengthStrings);
+        System.out.println(oddLengthStrings.getClass().getSimpleName());
+    }
+
+    private static SortedSet<String> oddLengthStringSet(String... strings) {
+        Collector<String, ?, SortedSet<String>> intoSet =
+                Collector.of(TreeSet<String>::new,
+                        SortedSet::add,
+                        (left, right) -> {
+                            left.addAll(right);
+                            return left;
+                        },
+                        Collections::unmodifiableSortedSet);
+        return Stream.of(strings)
+                .filter(s -> s.length() % 2 != 0)
+                .collect(intoSet);
+    }
+
+    /**
+     * &#9674;&#9674;&#9674; <b>Declaring Collector Characteristics</b> &#9674;&#9674;&#9674;
+     *
+     * <br>
+     * {@link Collectors#toSet()} is {@code UNORDERED} and {@code IDENTITY_FINISH} but not {@code CONCURRENT}: a
+     * parallel stream fills one {@link java.util.HashSet} per split of the source, then merges them two by two. The
+     * {@link CharacteristicCollectors} declare every characteristic that holds, so that the stream can skip that work.
+     *
+     * <pre>
+     * {@code
+     * Set<Integer> set = numbers.parallelStream().collect(CharacteristicCollectors.toConcurrentSet());
+     * long distinct = numbers.parallelStream().collect(CharacteristicCollectors.countingDistinct());
+     * BitSet bits = numbers.parallelStream().collect(CharacteristicCollectors.toBitSet());
+     * StringBuilder digits = strings.stream().collect(CharacteristicCollectors.toStringBuilder());
+     * }
+     * </pre>
+     */
+    protected static void declaringCollectorCharacteristics() {
+        System.out.println("\n*** Declaring Collector Characteristics ***");
+
+        List<Integer> numbers = IntStream.range(0, 100_000).map(i -> i % 1000).boxed().collect(Collectors.toList());
+        Set<Integer> expected = numbers.stream().collect(Collectors.toSet());
+
+        Collector<Integer, ?, Set<Integer>> toConcurrentSet = CharacteristicCollectors.toConcurrentSet();
+        Set<Integer> set = numbers.parallelStream().collect(toConcurrentSet);
+        Assert.assertEquals(expected, set);
+        System.out.println("toConcurrentSet " + toConcurrentSet.characteristics() + ": " + set.size() + " elements");
+
+        Collector<Object, ?, Long> countingDistinct = CharacteristicCollectors.countingDistinct();
+        long distinct = numbers.parallelStream().collect(countingDistinct);
+        Assert.assertEquals(expected.size(), distinct);
+        System.out.println("countingDistinct " + countingDistinct.characteristics() + ": " + distinct);
+
+        Collector<Integer, ?, BitSet> toBitSet = CharacteristicCollectors.toBitSet();
+        BitSet bits = numbers.parallelStream().collect(toBitSet);
+        Assert.assertEquals(expected.size(), bits.cardinality());
+        System.out.println("toBitSet " + toBitSet.characteristics() + ": " + bits.cardinality() + " bits set");
+
+        Collector<String, ?, NavigableSet<String>> toConcurrentSortedSet =
+                CharacteristicCollectors.toConcurrentSortedSet(Comparator.reverseOrder());
+        NavigableSet<String> sorted = numbers.parallelStream().map(String::valueOf).collect(toConcurrentSortedSet);
+        System.out.println("toConcurrentSortedSet " + toConcurrentSortedSet.characteristics() + ": "
+                + sorted.first() + " ... " + sorted.last());
+
+        Collector<String, ?, TreeSet<String>> toSortedSet = CharacteristicCollectors.toSortedSet();
+        TreeSet<String> sortedWords = Stream.of("this", "is", "a", "sorted", "set").parallel().collect(toSortedSet);
+        System.out.println("toSortedSet " + toSortedSet.characteristics() + ": " + sortedWords);
+
+        Collector<CharSequence, ?, StringBuilder> toStringBuilder = CharacteristicCollectors.toStringBuilder();
+        StringBuilder digits = IntStream.range(0, 10).mapToObj(String::valueOf).parallel().collect(toStringBuilder);
+        Assert.assertEquals("0123456789", digits.toString());
+        System.out.println("toStringBuilder " + toStringBuilder.characteristics() + ": " + digits);
+    }
+
+    /**
+     * {@link Collector}s declaring all the {@link Collector.Characteristics} that hold for them.
+     *
+     * <ul>
+     *     <li>
+     *         {@link #toConcurrentSet()}, {@link #toConcurrentSortedSet(Comparator)} - {@code CONCURRENT},
+     *         {@code UNORDERED}, {@code IDENTITY_FINISH}: every thread adds to the same concurrent set
+     *     </li>
+     *     <li>
+     *         {@link #countingDistinct()} - {@code CONCURRENT}, {@code UNORDERED}: a concurrent set, and its size as
+     *         the result
+     *     </li>
+     *     <li>
+     *         {@link #toBitSet()}, {@link #toSortedSet()} - {@code UNORDERED}, {@code IDENTITY_FINISH}: one container
+     *         per split of a parallel stream, as the containers aren't thread-safe
+     *     </li>
+     *     <li>
+     *         {@link #toStringBuilder()} - {@code IDENTITY_FINISH}: the {@link StringBuilder} is the result, without
+     *         the copy into a {@link String} of {@link Collectors#joining()}
+     *     </li>
+     * </ul>
+     *
+     * A {@code CONCURRENT} collector still needs a combiner: an ordered parallel stream (a {@link List} source) only
+     * shares one container if the collector is also {@code UNORDERED}, otherwise it combines the containers of the
+     * splits like for any other collector.
+     */
+    protected static final class CharacteristicCollectors {
+        private CharacteristicCollectors() {
+        }
+
+        /**
+         * Like {@link Collectors#toSet()}, into a single {@link ConcurrentHashMap#newKeySet()} shared by all the
+         * threads of a parallel stream.
+         *
+         * @param <T> the type of the elements
+         * @return a {@code CONCURRENT}, {@code UNORDERED}, {@code IDENTITY_FINISH} collector
+         */
+        public static <T> Collector<T, ?, Set<T>> toConcurrentSet() {
+            return Collector.<T, Set<T>>of(ConcurrentHashMap::newKeySet,
+                    Set::add,
+                    (left, right) -> {
+                        left.addAll(right);
+                        return left;
+                    },
+                    Collector.Characteristics.CONCURRENT,
+                    Collector.Characteristics.UNORDERED);
+        }
+
+        /**
+         * Like {@code collectingAndThen(toCollection(() -> new TreeSet<>(comparator)), ...)}, into a single
+         * {@link ConcurrentSkipListSet} shared by all the threads of a parallel stream.
+         *
+         * @param comparator the order of the set
+         * @param <T> the type of the elements
+         * @return a {@code CONCURRENT}, {@code UNORDERED}, {@code IDENTITY_FINISH} collector
+         */
+        public static <T> Collector<T, ?, NavigableSet<T>> toConcurrentSortedSet(Comparator<? super T> comparator) {
+            return Collector.<T, NavigableSet<T>>of(() -> new ConcurrentSkipListSet<>(comparator),
+                    NavigableSet::add,
+                    (left, right) -> {
+                        left.addAll(right);
+                        return left;
+                    },
+                    Collector.Characteristics.CONCURRENT,
+                    Collector.Characteristics.UNORDERED);
+        }
+
+        /**
+         * Like {@code collectingAndThen(toSet(), Set::size)} or {@code distinct().count()}: on a parallel stream, the
+         * elements go into one concurrent set instead of one set per split (merged at the end), or the ordered
+         * {@code distinct()} of a parallel {@link List} stream.
+         *
+         * @return a {@code CONCURRENT}, {@code UNORDERED} collector counting the distinct elements
+         */
+        public static Collector<Object, ?, Long> countingDistinct() {
+            return Collector.<Object, Set<Object>, Long>of(ConcurrentHashMap::newKeySet,
+                    Set::add,
+                    (left, right) -> {
+                        left.addAll(right);
+                        return left;
+                    },
+                    set -> (long) set.size(),
+                    Collector.Characteristics.CONCURRENT,
+                    Collector.Characteristics.UNORDERED);
+        }
+
+        /**
+         * Set of non-negative {@code int}s as a {@link BitSet}: one bit per possible value, instead of a boxed
+         * {@link Integer} and a hash node per element. The containers of the splits of a parallel stream are merged
+         * with {@link BitSet#or(BitSet)}, a word at a time.
+         *
+         * @return an {@code UNORDERED}, {@code IDENTITY_FINISH} collector
+         */
+        public static Collector<Integer, ?, BitSet> toBitSet() {
+            return Collector.<Integer, BitSet>of(BitSet::new,
+                    BitSet::set,
+                    (left, right) -> {
+                        left.or(right);
+                        return left;
+                    },
+                    Collector.Characteristics.UNORDERED);
+        }
+
+        /**
+         * The collector of {@link #implementingTheCollectorInterface()}, returning the {@link TreeSet} itself (the
+         * {@code unmodifiableSortedSet} finisher is one more object per call, and one more indirection per access).
+         *
+         * @param <T> the type of the elements, {@link Comparable}
+         * @return an {@code UNORDERED}, {@code IDENTITY_FINISH} collector
+         */
+        public static <T extends Comparable<? super T>> Collector<T, ?, TreeSet<T>> toSortedSet() {
+            return Collector.<T, TreeSet<T>>of(TreeSet::new,
+                    TreeSet::add,
+                    (left, right) -> {
+                        if (left.size() < right.size()) {
+                            right.addAll(left);
+                            return right;
+                        }
+                        left.addAll(right);
+                        return left;
+                    },
+                    Collector.Characteristics.UNORDERED);
+        }
+
+        /**
+         * Like {@link Collectors#joining()}, returning the {@link StringBuilder}, which the caller can keep appending
+         * to or write out without a copy. Ordered: the combiner appends the right part to the left one.
+         *
+         * @return an {@code IDENTITY_FINISH} collector
+         */
+        public static Collector<CharSequence, ?, StringBuilder> toStringBuilder() {
+            return Collector.<CharSequence, StringBuilder>of(StringBuilder::new,
+                    StringBuilder::append,
+                    StringBuilder::append);
+        }
+    }
 }
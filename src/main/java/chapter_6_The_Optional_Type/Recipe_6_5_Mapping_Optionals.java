@@ -2,7 +2,9 @@ package chapter_6_The_Optional_Type;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -28,6 +30,10 @@ import java.util.stream.Stream;
  *                 {@link #findingEmployeesByIds()}
  *                 - finding Employees by ids
  *             </li>
+ *             <li>
+ *                 {@link #findingEmployeesByIdsWithAnIndex()}
+ *                 - finding Employees by ids with an index ({@link IndexedEmployees})
+ *             </li>
  *        </ul>
  *     </li>
  * </ol>
@@ -55,6 +61,10 @@ public class Recipe_6_5_Mapping_Optionals {
         System.out.println();
         // *** Finding Employees by Ids***
         new Recipe_6_5_Mapping_Optionals().findingEmployeesByIds();
+
+        System.out.println();
+        // *** Finding Employees by Ids with an Index ***
+        new Recipe_6_5_Mapping_Optionals().findingEmployeesByIdsWithAnIndex();
     }
 
     /**
@@ -90,6 +100,45 @@ public class Recipe_6_5_Mapping_Optionals {
         System.out.println(employeeList.findingEmployeesByIdsWithFlatMap(ids));
     }
 
+    /**
+     * &#9674;&#9674;&#9674; <b>Finding Employees by Ids with an Index</b> &#9674;&#9674;&#9674;
+     *
+     * <br>
+     * {@link Employees#findEmployeeById(int)} scans the whole list, so looking up {@code n} ids costs
+     * {@code n * employees}. {@link IndexedEmployees} keeps a {@link HashMap} from id to {@link Employee} next to the
+     * list: {@code findEmployeeById} becomes O(1) and {@link IndexedEmployees#findAll(int[])} looks up a batch of ids
+     * in a single pass, without an {@link Optional} per id.
+     *
+     * <pre>
+     * {@code
+     * IndexedEmployees employeeList = new IndexedEmployees();
+     * employeeList.addEmployee(new Employee(1));
+     * employeeList.addEmployee(new Employee(2));
+     *
+     * // Same methods as Employees
+     * System.out.println(employeeList.findingEmployeesByIds(ids));
+     *
+     * // Batch lookup
+     * System.out.println(employeeList.findAll(new int[] {1, 2, 3}));
+     * }
+     * </pre>
+     */
+    protected void findingEmployeesByIdsWithAnIndex() {
+        System.out.println("\n*** Finding Employees by Ids with an Index ***");
+        List<Integer> ids = Arrays.asList(1, 2, 3);
+        IndexedEmployees employeeList = new IndexedEmployees();
+
+        Employee employee = new Employee(1);
+        employeeList.addEmployee(employee);
+        employee = new Employee(2);
+        employeeList.addEmployee(employee);
+
+        System.out.println("\tWith map():");
+        System.out.println(employeeList.findingEmployeesByIds(ids));
+        System.out.println("\tWith findAll():");
+        System.out.println(employeeList.findAll(new int[] {1, 2, 3}));
+    }
+
     /**
      * List of employees.
      */
@@ -161,13 +210,6 @@ public class Recipe_6_5_Mapping_Optionals {
          * @return list of {@link Employee}
          */
         public List<Employee> findingEmployeesByIdsWithFlatMap(List<Integer> ids) {
-            ids.stream()
-                    .map(this::findEmployeeById) // Stream<Optional<Employee>>
-                    .filter(Optional::isPresent) // Remove empty Optionals
-                    .flatMap(optional ->
-                            optional.map(Stream::of)
-                                    .orElseGet(Stream::empty));
-
             return ids.stream()
                     .map(this::findEmployeeById) // Stream<Optional<Employee>>
                     .filter(Optional::isPresent) // Remove empty Optionals
@@ -179,6 +221,68 @@ public class Recipe_6_5_Mapping_Optionals {
 
     }
 
+    /**
+     * List of employees indexed by id.
+     *
+     * <br>
+     * Like {@link Employees#findEmployeeById(int)}, when several employees have the same id the first one added is
+     * found.
+     */
+    protected class IndexedEmployees extends Employees {
+        private final Map<Integer, Employee> employeesById = new HashMap<>();
+
+        @Override
+        public void addEmployee(Employee employee) {
+            super.addEmployee(employee);
+            employeesById.putIfAbsent(employee.getId(), employee);
+        }
+
+        /**
+         * Find an Employee by Id, in constant time.
+         *
+         * <pre>
+         * {@code
+         * return Optional.ofNullable(employeesById.get(id));
+         * }
+         * </pre>
+         *
+         * @param id {@link Employee}'s id
+         * @return {@code Optional<Employee>}
+         */
+        @Override
+        public Optional<Employee> findEmployeeById(int id) {
+            return Optional.ofNullable(employeesById.get(id));
+        }
+
+        /**
+         * Find the Employees with the given Ids, in one pass over {@code ids}. Missing ids are skipped.
+         *
+         * <pre>
+         * {@code
+         * List<Employee> found = new ArrayList<>(ids.length);
+         * for (int id : ids) {
+         *     Employee employee = employeesById.get(id);
+         *     if (employee != null) found.add(employee);
+         * }
+         * return found;
+         * }
+         * </pre>
+         *
+         * @param ids {@link Employee} ids
+         * @return list of {@link Employee}, in the order of {@code ids}
+         */
+        public List<Employee> findAll(int[] ids) {
+            List<Employee> found = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                Employee employee = employeesById.get(id);
+                if (employee != null) {
+                    found.add(employee);
+                }
+            }
+            return found;
+        }
+    }
+
     /**
      * Employee class.
      */